@@ -34,6 +34,7 @@ import org.dbpedia.spotlight.lucene.LuceneFeatureVector;
 import org.dbpedia.spotlight.lucene.LuceneManager;
 import org.dbpedia.spotlight.model.*;
 import org.dbpedia.spotlight.model.vsm.FeatureVector;
+import org.dbpedia.spotlight.util.Deadline;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -171,8 +172,19 @@ public class BaseSearcher implements Closeable {
             //LOG.debug("Start search. timeout="+timeout);
             long start = System.nanoTime();
             TopScoreDocCollector collector = TopScoreDocCollector.create(n, false);
-            //TimeLimitingCollector collector = new TimeLimitingCollector(tCollector, timeout);  //TODO try to bring this back later
-            mSearcher.search(query, filter, collector);
+            Deadline deadline = Deadline.current();
+            if (deadline == null) {
+                mSearcher.search(query, filter, collector);
+            } else {
+                // Within a request with a deadline, the search is stopped once the deadline has passed and
+                // the hits collected so far are returned (anytime search):
+                TimeLimitingCollector limitedCollector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), Math.max(1L, deadline.remainingMillis()));
+                try {
+                    mSearcher.search(query, filter, limitedCollector);
+                } catch (TimeLimitingCollector.TimeExceededException e) {
+                    LOG.info(String.format("%s passed, returning partial hits for %s.", deadline, query.toString()));
+                }
+            }
             //mSearcher.
             hits = collector.topDocs().scoreDocs;
             long end = System.nanoTime();
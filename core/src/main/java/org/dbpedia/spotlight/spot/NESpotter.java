@@ -186,7 +186,7 @@ public class NESpotter implements Spotter {
 
                     SurfaceForm surfaceForm = new SurfaceForm(surfaceFormStr);
                     SurfaceFormOccurrence sfocc =  new SurfaceFormOccurrence(surfaceForm, text, entStart);
-                    sfocc.features().put("type", new Feature("type",oType.toString()));
+                    sfocc.setFeature(new Feature("type",oType.toString()));
                     sfOccurrences.add(sfocc);
                 }
             }
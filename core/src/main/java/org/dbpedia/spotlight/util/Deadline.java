@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.util;
+
+/**
+ * The time budget of a request. A deadline is started when a request is received and is
+ * available to all steps running on the request thread via {@link #current()}. Steps that run
+ * on other threads must be given the deadline explicitly.
+ *
+ * Steps that can produce a cheaper result (e.g. disambiguation by prior only) should switch to it
+ * once the deadline {@link #isClose() is close}, so that the request finishes within its budget
+ * instead of failing.
+ *
+ * @author Joachim Daiber
+ */
+public class Deadline {
+
+    /**
+     * Share of the budget that is left when the deadline is considered close.
+     */
+    public static final double RESERVE = 0.2;
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    private final long budget;
+    private final long end;
+
+    /**
+     * @param budget time budget in milliseconds
+     */
+    public Deadline(long budget) {
+        this.budget = budget;
+        this.end = System.nanoTime() + budget * 1000000L;
+    }
+
+    /**
+     * Starts a deadline for the current thread. Must be followed by {@link #clear()} once the request is done.
+     *
+     * @param budget time budget in milliseconds, no deadline is started if the budget is not positive
+     * @return the deadline or null if there is no budget
+     */
+    public static Deadline start(long budget) {
+        if (budget <= 0)
+            return null;
+
+        Deadline deadline = new Deadline(budget);
+        current.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * @return the deadline of the request of the current thread or null if there is none
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    public static void clear() {
+        current.remove();
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the remaining time in milliseconds (negative if the deadline has passed)
+     */
+    public long remainingMillis() {
+        return (end - System.nanoTime()) / 1000000L;
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() >= end;
+    }
+
+    /**
+     * @return true if less than {@link #RESERVE} of the budget is left
+     */
+    public boolean isClose() {
+        return remainingMillis() < budget * RESERVE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Deadline[%d ms left of %d ms]", remainingMillis(), budget);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.dbpedia.spotlight.db
+
+import java.io.{PrintWriter, File}
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy
+import org.dbpedia.spotlight.model.{DBpediaResourceOccurrence, Factory, Paragraph, Text}
+
+/**
+ * Annotates a text file with one paragraph per line offline. The paragraphs are disambiguated in
+ * batches (see [[org.dbpedia.spotlight.disambiguate.ParagraphDisambiguator.disambiguateBatch]]).
+ *
+ * The output is a tab-separated file with one line per annotation:
+ *
+ * line number, offset, surface form, DBpedia resource, similarity score
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.BatchAnnotator -Dexec.args="/data/spotlight/en paragraphs.txt annotations.tsv [batch size]"
+ *
+ * @author Joachim Daiber
+ */
+
+object BatchAnnotator {
+
+  val DEFAULT_BATCH_SIZE = 1000
+
+  def main(args: Array[String]) {
+    val model = SpotlightModel.fromFolder(new File(args(0)))
+    val batchSize = if (args.length > 3) args(3).toInt else DEFAULT_BATCH_SIZE
+
+    val spotter = model.spotters.get(SpotterPolicy.Default)
+    val disambiguator = model.disambiguators.get(DisambiguationPolicy.Default).disambiguator
+
+    val out = new PrintWriter(new File(args(2)), "UTF-8")
+    val start = System.currentTimeMillis()
+    var annotated = 0
+
+    scala.io.Source.fromFile(args(1), "UTF-8").getLines().zipWithIndex.grouped(batchSize).foreach { batch: Seq[(String, Int)] =>
+
+      //Spot all non-empty lines of the batch:
+      val spotted = batch.filter(_._1.trim.nonEmpty).map { case (line: String, lineNumber: Int) =>
+        val text = new Text(line)
+        model.tokenizer.tokenizeMaybe(text)
+        (lineNumber, spotter.extract(text))
+      }.filter(!_._2.isEmpty)
+
+      val paragraphs: List[Paragraph] = spotted.map { s => Factory.paragraph().fromJ(s._2) }.toList
+
+      spotted.map(_._1).zip(disambiguator.disambiguateBatch(paragraphs)).foreach { case (lineNumber: Int, occs: List[DBpediaResourceOccurrence]) =>
+        occs.foreach { occ: DBpediaResourceOccurrence =>
+          out.println(List(lineNumber + 1, occ.textOffset, occ.surfaceForm.name, occ.resource.uri, occ.similarityScore).mkString("\t"))
+        }
+      }
+
+      annotated += batch.size
+      SpotlightLog.info(this.getClass, "Annotated %d paragraphs (%.1f paragraphs per second).", annotated, annotated * 1000.0 / math.max(1, System.currentTimeMillis() - start))
+    }
+
+    out.close()
+    model.close()
+  }
+
+}
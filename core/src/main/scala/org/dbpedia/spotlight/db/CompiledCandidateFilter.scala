@@ -0,0 +1,75 @@
+package org.dbpedia.spotlight.db
+
+import memory.MemoryResourceStore
+import model.ResourceStore
+import org.dbpedia.spotlight.filter.annotations.FilterPolicy
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * A [[org.dbpedia.spotlight.filter.candidates.CandidateFilter]] compiled for the resources of a
+ * resource store, which checks a candidate by the ID of its resource.
+ *
+ * For a [[org.dbpedia.spotlight.db.memory.MemoryResourceStore]], the filter is checked without
+ * creating the resource: the support is read from the store, the type filter is evaluated once for each
+ * distinct type list of the store and the result of the SPARQL query is converted to a set of resource IDs.
+ * For other resource stores, the resources are checked by the candidate filter.
+ *
+ * A compiled filter is created once per request.
+ *
+ * @author Joachim Daiber
+ */
+class CompiledCandidateFilter(val filter: CandidateFilter, resStore: ResourceStore) {
+
+  private val memoryStore = resStore match {
+    case s: MemoryResourceStore => s
+    case _ => null
+  }
+
+  private val targetSupport = if (filter.hasSupport) filter.supportFilter.targetSupport else -1
+
+  //Accepted type lists by their index in the resource store:
+  private val acceptedTypeLists: Array[Boolean] =
+    if (memoryStore != null && filter.hasTypes)
+      memoryStore.typeLists.map(filter.typeFilter.acceptTypes(_))
+    else
+      null
+
+  //IDs of the resources in the result of the SPARQL query:
+  private val sparqlIDs: java.util.BitSet =
+    if (memoryStore != null && filter.hasSparql) {
+      val ids = new java.util.BitSet(memoryStore.size)
+      filter.sparqlFilter.uriSet.foreach { uri: String =>
+        memoryStore.idFromURI.get(uri) match {
+          case id: Integer => ids.set(id)
+          case _ =>
+        }
+      }
+      SpotlightLog.debug(this.getClass, "%d of %d SPARQL results are resources.", ids.cardinality(), filter.sparqlFilter.uriSet.size)
+      ids
+    } else {
+      null
+    }
+
+  private val sparqlWhitelist = filter.hasSparql && filter.sparqlFilter.listColor == FilterPolicy.Whitelist
+
+  def accept(id: Int): Boolean = {
+    if (memoryStore == null)
+      return filter.accept(resStore.getResource(id))
+
+    (targetSupport < 0         || memoryStore.supportForID(id) > targetSupport) &&
+    (acceptedTypeLists == null || acceptedTypeLists(memoryStore.typeListForID(id))) &&
+    (sparqlIDs == null         || sparqlIDs.get(id) == sparqlWhitelist)
+  }
+
+}
+
+object CompiledCandidateFilter {
+
+  /**
+   * @return the compiled filter or null if the filter does not reject any candidate
+   */
+  def compile(filter: CandidateFilter, resStore: ResourceStore): CompiledCandidateFilter =
+    if (filter == null || filter.isEmpty) null else new CompiledCandidateFilter(filter, resStore)
+
+}
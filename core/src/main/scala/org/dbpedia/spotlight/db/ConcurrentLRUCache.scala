@@ -0,0 +1,85 @@
+package org.dbpedia.spotlight.db
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A bounded cache that can be used by many threads. The entries are distributed over a number
+ * of segments by the hash of their key, each segment is a small LRU map with its own lock, so
+ * threads only block each other if they use the same segment.
+ *
+ * The least recently used entry of a segment is removed if the segment is full, the cache holds
+ * at most maxSize entries.
+ *
+ * @author Joachim Daiber
+ */
+
+class ConcurrentLRUCache[K, V](val maxSize: Int, maxSegments: Int = ConcurrentLRUCache.DEFAULT_SEGMENTS) {
+
+  require(maxSize > 0, "The maximum size of the cache must be positive.")
+
+  //Every segment holds at least one entry, hence there are never more segments than entries:
+  private val segmentCount = math.max(1, math.min(maxSegments, maxSize))
+
+  //The capacities of the segments add up to maxSize:
+  private val segments = Array.tabulate(segmentCount) { i: Int =>
+    new ConcurrentLRUCache.Segment[K, V](maxSize / segmentCount + (if (i < maxSize % segmentCount) 1 else 0))
+  }
+
+  val hits   = new AtomicLong(0)
+  val misses = new AtomicLong(0)
+
+  private def segment(key: K): ConcurrentLRUCache.Segment[K, V] = {
+    //Spread the bits of the hash code, since the lower bits of consecutive IDs are used otherwise:
+    var h = key.hashCode
+    h ^= (h >>> 20) ^ (h >>> 12)
+    h ^= (h >>> 7) ^ (h >>> 4)
+    segments((h & 0x7fffffff) % segmentCount)
+  }
+
+  /**
+   * @return the cached value or null if there is no value for the key
+   */
+  def get(key: K): V = {
+    val s = segment(key)
+    val v = s.synchronized { s.get(key) }
+
+    if (v == null)
+      misses.incrementAndGet()
+    else
+      hits.incrementAndGet()
+    v
+  }
+
+  def put(key: K, value: V) {
+    val s = segment(key)
+    s.synchronized { s.put(key, value) }
+  }
+
+  def size: Int = segments.map(s => s.synchronized { s.size() }).sum
+
+  def clear() {
+    segments.foreach(s => s.synchronized { s.clear() })
+  }
+
+  /**
+   * Share of requests that were answered from the cache.
+   */
+  def hitRate: Double = {
+    val h = hits.get()
+    val total = h + misses.get()
+    if (total == 0) 0.0 else h / total.toDouble
+  }
+
+  override def toString = "ConcurrentLRUCache[size=%d/%d, hit rate=%.3f]".format(size, maxSize, hitRate)
+
+}
+
+object ConcurrentLRUCache {
+
+  val DEFAULT_SEGMENTS = 16
+
+  private[db] class Segment[K, V](capacity: Int) extends java.util.LinkedHashMap[K, V](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[K, V]): Boolean = size() > capacity
+  }
+
+}
@@ -1,6 +1,6 @@
 package org.dbpedia.spotlight.db
 
-import model.{ResourceStore, SurfaceFormStore, CandidateMapStore}
+import model.{CandidateSlice, ResourceStore, SurfaceFormStore, CandidateMapStore}
 import org.dbpedia.spotlight.model._
 import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
 
@@ -35,6 +35,107 @@ class DBCandidateSearcher(val resStore: ResourceStore, val sfStore: SurfaceFormS
   }
 
 
+  //Number of surface forms whose top candidates are cached, 0 to disable the cache:
+  private var cache: ConcurrentLRUCache[Int, DBCandidateSearcher.CachedCandidates] =
+    new ConcurrentLRUCache(DBCandidateSearcher.DEFAULT_CACHE_SIZE)
+
+  def cacheSize: Int = if (cache == null) 0 else cache.maxSize
+
+  def cacheSize_=(size: Int) {
+    cache = if (size > 0) new ConcurrentLRUCache(size) else null
+  }
+
+  /**
+   * Share of the requests for top candidates that were answered from the cache.
+   */
+  def cacheHitRate: Double = if (cache == null) 0.0 else cache.hitRate
+
+  def cacheStatistics: String = if (cache == null) "Candidate cache disabled." else cache.toString
+
+
+  /**
+   * Retrieves the n DBpedia Resources with the highest co-occurrence count with surface form sf,
+   * sorted by decreasing count. Only the returned candidates are created.
+   *
+   * The candidates of the most frequently requested surface forms are cached by the ID of the surface
+   * form, including the candidates of the normalized surface form if the surface form has no candidates.
+   *
+   * @param sf the surface form
+   * @param n maximum number of candidates
+   * @return
+   */
+  def getTopCandidates(sf: SurfaceForm, n: Int): Seq[Candidate] = {
+    if (cache == null)
+      return searchTopCandidates(sf, n)
+
+    //Surface forms that are not in the store have the default ID, hence the name is compared as well:
+    val cached = cache.get(sf.id)
+    if (cached != null && cached.name.equals(sf.name) && (n <= cached.n || cached.candidates.length < cached.n)) {
+      if (n >= cached.candidates.length)
+        cached.candidates
+      else
+        cached.candidates.take(n)
+    } else {
+      val candidates = searchTopCandidates(sf, n).toArray[Candidate]
+      cache.put(sf.id, new DBCandidateSearcher.CachedCandidates(sf.name, n, candidates))
+      candidates
+    }
+  }
+
+  /**
+   * Retrieves the n DBpedia Resources with the highest co-occurrence count with surface form sf, if at least
+   * one of them is accepted by the filter. Otherwise, no candidate is returned and none is created, since the
+   * filter is checked on the IDs of the candidate resources.
+   *
+   * The rejected candidates are still returned along with the accepted ones, they are needed for ranking
+   * the candidates of the surface form.
+   *
+   * @param sf the surface form
+   * @param n maximum number of candidates
+   * @param filter the constraints of the request, may be null
+   * @return
+   */
+  def getTopCandidates(sf: SurfaceForm, n: Int, filter: CompiledCandidateFilter): Seq[Candidate] = {
+    if (filter == null)
+      return getTopCandidates(sf, n)
+
+    val (_, slice) = topCandidateIDs(sf, n)
+    if ((0 until slice.length).exists{ i: Int => filter.accept(slice.resourceID(i)) })
+      getTopCandidates(sf, n)
+    else
+      Seq[Candidate]()
+  }
+
+  private def searchTopCandidates(sf: SurfaceForm, n: Int): Seq[Candidate] = {
+    val (candidateSF, slice) = topCandidateIDs(sf, n)
+    toCandidates(candidateSF, slice)
+  }
+
+  /**
+   * The IDs of the top candidates of the surface form, or of the normalized surface form if the surface form
+   * has no candidates, along with the surface form they belong to.
+   */
+  private def topCandidateIDs(sf: SurfaceForm, n: Int): (SurfaceForm, CandidateSlice) = {
+    val slice = candidateMap.getTopCandidateIDs(sf.id, n)
+
+    if (slice.length == 0) {
+      try {
+        val normalizedSF = sfStore.getSurfaceFormNormalized(sf.name)
+        (normalizedSF, candidateMap.getTopCandidateIDs(normalizedSF.id, n))
+      } catch {
+        case e: SurfaceFormNotFoundException => (sf, CandidateSlice.empty)
+      }
+    } else {
+      (sf, slice)
+    }
+  }
+
+  private def toCandidates(sf: SurfaceForm, slice: CandidateSlice): Seq[Candidate] =
+    (0 until slice.length).map { i: Int =>
+      new Candidate(sf, resStore.getResource(slice.resourceID(i)), slice.count(i))
+    }
+
+
   /**
    * Retrieves the number of DBpedia Resources that can be confused with surface form sf.
    *
@@ -45,3 +146,14 @@ class DBCandidateSearcher(val resStore: ResourceStore, val sfStore: SurfaceFormS
 
 
 }
+
+object DBCandidateSearcher {
+
+  val DEFAULT_CACHE_SIZE = 100000
+
+  /**
+   * The best candidates of a surface form, searched with the limit n.
+   */
+  class CachedCandidates(val name: String, val n: Int, val candidates: Array[Candidate])
+
+}
@@ -41,13 +41,15 @@ abstract class DBSpotter(
       tokenizer.tokenizeMaybe(text)
 
     var spots = ListBuffer[SurfaceFormOccurrence]()
+    val lookups = new DBSpotter.SpotLookups(this)
     val sentences: List[List[Token]] = DBSpotter.tokensToSentences(text.featureValue[List[Token]]("tokens").get)
 
     //Go through all sentences
     sentences.foreach{ sentence: List[Token] =>
       val spans = generateCandidates(sentence)
 
-      val tokenTypes = sentence.map(_.tokenType).toArray
+      val tokens = sentence.toArray
+      val tokenTypes = tokens.map(_.tokenType)
 
       spans.sorted
         .foreach(chunkSpan => {
@@ -70,14 +72,14 @@ abstract class DBSpotter(
 
           tokenSeqs.foreach{
             case (startToken: Int, endToken: Int) => {
-              val startOffset = sentence(startToken).offset
-              val endOffset = sentence(endToken).offset + sentence(endToken).token.length
+              val startOffset = tokens(startToken).offset
+              val endOffset = tokens(endToken).offset + tokens(endToken).token.length
 
-              val spot = text.text.substring(startOffset, endOffset)
+              val spot = lookups.get(text, startOffset, endOffset)
 
-              if (surfaceFormMatch(spot)) {
+              if (surfaceFormMatch(spot.score)) {
                 //The sub-chunk is in the dictionary, finish the processing of this chunk
-                val spotOcc = new SurfaceFormOccurrence(surfaceFormStore.getSurfaceForm(spot), text, startOffset, Provenance.Annotation, spotScore(spot))
+                val spotOcc = new SurfaceFormOccurrence(spot.surfaceForm, text, startOffset, Provenance.Annotation, spot.score)
                 spotOcc.setFeature(new Nominal("spot_type", chunkSpan.getType))
                 spotOcc.setFeature(new Feature("token_types", tokenTypes.slice(startToken, lastToken)))
                 spots += spotOcc
@@ -94,26 +96,33 @@ abstract class DBSpotter(
 
 
 
-  private def spotScore(spot: String): Double = {
+  /**
+   * Returns the surface form for the spot or null if the spot is not a known surface form.
+   */
+  private[db] def lookupSurfaceForm(spot: String): SurfaceForm = {
     try {
-      spotFeatureWeightVector match {
-        case Some(weights) => {
-          (weights dot DBSpotter.spotFeatures(surfaceFormStore.getSurfaceForm(spot)))
-        }
-        case None => surfaceFormStore.getSurfaceForm(spot).annotationProbability
-      }
+      surfaceFormStore.getSurfaceForm(spot)
     } catch {
-      case e: SurfaceFormNotFoundException => 0.0
-      case e: Exception => e.printStackTrace(); 0.0
-      case _ => 0.0
+      case e: SurfaceFormNotFoundException => null
+      case e: Exception => e.printStackTrace(); null
+      case _ => null
     }
   }
 
-  protected def surfaceFormMatch(spot: String): Boolean = {
+  private[db] def spotScore(sf: SurfaceForm): Double = {
+    if (sf == null)
+      0.0
+    else spotFeatureWeightVector match {
+      case Some(weights) => (weights dot DBSpotter.spotFeatures(sf))
+      case None => sf.annotationProbability
+    }
+  }
+
+  protected def surfaceFormMatch(score: Double): Boolean = {
     if (spotFeatureWeightVector.isDefined)
-      spotScore(spot) >= 0.5
+      score >= 0.5
     else
-      spotScore(spot) >= 0.25
+      score >= 0.25
   }
 
 
@@ -123,18 +132,23 @@ abstract class DBSpotter(
    * This method resolves overlap conflicts in spots by considering their source (e.g. NER, chunking) and
    * their scores.
    *
+   * The spots are sorted by their offset and length, then each spot is compared to the last spot that was
+   * kept, hence the conflicts are resolved in O(n log n).
+   *
    * @param spots
    * @return
    */
   def dropOverlappingSpots(spots: Seq[SurfaceFormOccurrence]): java.util.LinkedList[SurfaceFormOccurrence] = {
 
-    val sortedSpots = spots.distinct.sortBy(sf => (sf.textOffset, sf.surfaceForm.name.length) )
+    val sortedSpots = spots.distinct.sortBy(sf => (sf.textOffset, sf.surfaceForm.name.length) ).toArray
 
-    var remove = Set[Int]()
+    //Note that a spot replacing the last spot removes its direct predecessor, which is not
+    //necessarily the last spot:
+    val remove = new Array[Boolean](sortedSpots.length)
     var lastSpot: SurfaceFormOccurrence = null
 
     var i = 0
-    while (i < sortedSpots.size) {
+    while (i < sortedSpots.length) {
 
       val spot = sortedSpots(i)
 
@@ -144,23 +158,20 @@ abstract class DBSpotter(
         val spotIsLonger = spot.surfaceForm.name.length > lastSpot.surfaceForm.name.length
 
         if(spotIsLonger && spot.spotProb > lastSpot.spotProb/2.0) {
-          remove += i-1
+          remove(i-1) = true
           lastSpot = spot
         } else if(!spotIsLonger && !(spot.spotProb > lastSpot.spotProb*2.0)) {
-          remove += i
-          lastSpot = lastSpot
+          remove(i) = true
         } else if(spot.spotProb == lastSpot.spotProb && spotHasBetterType) {
-          remove += i-1
+          remove(i-1) = true
           lastSpot = spot
         } else if (spot.spotProb == lastSpot.spotProb && !spotHasBetterType) {
-          remove += i
-          lastSpot = lastSpot
+          remove(i) = true
         } else if(spot.spotProb > lastSpot.spotProb) {
-          remove += i-1
+          remove(i-1) = true
           lastSpot = spot
         } else {
-          remove += i
-          lastSpot = lastSpot
+          remove(i) = true
         }
       } else {
         lastSpot = spot
@@ -169,11 +180,12 @@ abstract class DBSpotter(
       i += 1
     }
 
-    //This is super inefficient :(
     val list = new java.util.LinkedList[SurfaceFormOccurrence]()
-    sortedSpots.zipWithIndex.foreach{ case (s: SurfaceFormOccurrence, i: Int) =>
-      if(!remove.contains(i))
-        list.add(s)
+    i = 0
+    while (i < sortedSpots.length) {
+      if (!remove(i))
+        list.add(sortedSpots(i))
+      i += 1
     }
     list
   }
@@ -181,6 +193,34 @@ abstract class DBSpotter(
 }
 
 object DBSpotter {
+
+  class SpotLookup(val surfaceForm: SurfaceForm, val score: Double)
+
+  /**
+   * The surface form lookups of a single request. Each span of the text is looked up and scored once,
+   * the spans are identified by their offsets in the text. Since the spans of the candidate chunks
+   * overlap heavily, a substring of the text is only created for spans that were not looked up before.
+   */
+  class SpotLookups(spotter: DBSpotter) {
+
+    private val lookups = new java.util.HashMap[Long, SpotLookup]()
+
+    def get(text: Text, startOffset: Int, endOffset: Int): SpotLookup = {
+      val key = (startOffset.toLong << 32) | endOffset
+      val cached = lookups.get(key)
+      if (cached != null)
+        cached
+      else {
+        val sf = spotter.lookupSurfaceForm(text.text.substring(startOffset, endOffset))
+        val lookup = new SpotLookup(sf, spotter.spotScore(sf))
+        lookups.put(key, lookup)
+        lookup
+      }
+    }
+
+    def size = lookups.size
+  }
+
   def spotFeatures(spot: SurfaceForm): DenseVector[Double] =
     DenseVector(
       //Annotation probability:
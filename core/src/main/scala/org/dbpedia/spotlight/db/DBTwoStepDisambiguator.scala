@@ -5,14 +5,19 @@ import org.dbpedia.spotlight.model._
 import org.dbpedia.spotlight.disambiguate.mixtures.Mixture
 import org.dbpedia.spotlight.log.SpotlightLog
 import scala.collection.JavaConverters._
-import similarity.{ContextSimilarity, TFICFSimilarity}
+import similarity.{ContextScorer, ContextSimilarity, TFICFSimilarity}
 import org.dbpedia.spotlight.disambiguate.{ParagraphDisambiguator, Disambiguator}
 import org.dbpedia.spotlight.exceptions.{SurfaceFormNotFoundException, InputException}
 import collection.mutable
 import scala.Predef._
-import breeze.{numerics, linalg}
+import breeze.numerics
 import scala.collection.JavaConversions._
 import scala.collection.mutable.ArrayBuffer
+import scala.concurrent.forkjoin.ForkJoinPool
+import java.util.concurrent.{ConcurrentHashMap, CountDownLatch}
+import org.dbpedia.spotlight.util.Deadline
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
+import java.util.concurrent.atomic.{AtomicLong, AtomicReference, AtomicInteger}
 
 
 /**
@@ -40,9 +45,6 @@ class DBTwoStepDisambiguator(
   /* Tokenizer that may be used for tokenization if the text is not already tokenized. */
   var tokenizer: TextTokenizer = null
 
-  private def getQuery(tokenTypes: Seq[TokenType]): java.util.Map[TokenType, Int]
-    = tokenTypes.groupBy(identity).mapValues(_.size).asJava
-
   /**
    * Calculate the context similarity given the text for all candidates in the set.
    *
@@ -50,19 +52,21 @@ class DBTwoStepDisambiguator(
    * @param candidates the set of candidates for a surface form
    * @return
    */
-  def getContextSimilarityScores(tokens: Seq[TokenType], candidates: Set[DBpediaResource]): mutable.Map[DBpediaResource, Double] = {
-
-    val query = getQuery(tokens)
+  def getContextSimilarityScores(tokens: Seq[TokenType], candidates: Set[DBpediaResource]): mutable.Map[DBpediaResource, Double] =
+    getContextSimilarityScores(TokenCounts.fromTokenTypes(tokens), candidates)
 
-    val contextCounts = candidates.map{ candRes: DBpediaResource =>
-      (candRes -> contextStore.getContextCounts(candRes))
-    }.toMap
+  def getContextSimilarityScores(query: TokenCounts, candidates: Set[DBpediaResource]): mutable.Map[DBpediaResource, Double] =
+    getContextSimilarityScores(query, candidates, null)
 
-    val totalContextCounts = candidates.map{ candRes: DBpediaResource =>
-      (candRes -> contextStore.getTotalTokenCount(candRes))
-    }.toMap
+  private def getContextSimilarityScores(query: TokenCounts, candidates: Set[DBpediaResource], cache: DBTwoStepDisambiguator.BatchCache): mutable.Map[DBpediaResource, Double] = {
+    val resources = candidates.toArray
+    val scores = contextSimilarity.score(
+      query,
+      resources.map(contextTokenCounts(_, cache)),
+      resources.map(contextStore.getTotalTokenCount(_))
+    )
 
-    contextSimilarity.score(query, contextCounts, totalContextCounts)
+    mutable.HashMap(resources.zip(scores): _*)
   }
 
   //maximum number of considered candidates
@@ -71,8 +75,109 @@ class DBTwoStepDisambiguator(
   //maximum context window in tokens in both directions
   val MAX_CONTEXT = 250
 
+  //maximum number of context windows of a paragraph that are disambiguated in parallel
+  var maxParallelWindows = DBTwoStepDisambiguator.DEFAULT_PARALLEL_WINDOWS
+
+  //skip candidates that can not be among the best k, only used if the context similarity and the mixture allow it
+  var pruneCandidates = true
+
+  //number of candidates whose context was scored and number of candidates skipped by the pruning
+  val scoredCandidates  = new AtomicLong(0)
+  val skippedCandidates = new AtomicLong(0)
+
+  //number of occurrences that were disambiguated by prior only because the deadline of the request was close
+  val fallbackOccurrences = new AtomicLong(0)
+
+  /**
+   * Statistics of the candidate cache, the pruning and the fallback since the disambiguator was created.
+   */
+  def statistics: String = "%s, %d candidates scored, %d candidates skipped, %d occurrences disambiguated by prior".format(
+    candidateSearcher.cacheStatistics, scoredCandidates.get(), skippedCandidates.get(), fallbackOccurrences.get())
+
+
+  //maximum number of paragraphs of a batch that are disambiguated in parallel
+  var maxParallelParagraphs = DBTwoStepDisambiguator.DEFAULT_PARALLEL_PARAGRAPHS
+
+
+  /**
+   * Returns the context of the resource. Within a batch, the context of each resource is only read once.
+   */
+  private def contextTokenCounts(resource: DBpediaResource, cache: DBTwoStepDisambiguator.BatchCache): TokenCounts = {
+    if (cache == null)
+      return contextStore.getContextTokenCounts(resource)
+
+    val cached = cache.contexts.get(resource.id)
+    if (cached != null)
+      cached
+    else {
+      val counts = contextStore.getContextTokenCounts(resource)
+      cache.contexts.putIfAbsent(resource.id, counts)
+      counts
+    }
+  }
+
+  /**
+   * Returns the candidates for the surface form of the occurrence, no candidates if a filter is given and none of
+   * them is accepted. Within a batch, the candidates of each surface form are only searched once.
+   */
+  private def lookupCandidates(sfOcc: SurfaceFormOccurrence, cache: DBTwoStepDisambiguator.BatchCache, filter: CompiledCandidateFilter): Seq[Candidate] = {
+    def search() = {
+      //Surface forms found by the spotter were already resolved by the store:
+      val sf = if (sfOcc.surfaceForm.id > 0) sfOcc.surfaceForm else try {
+        surfaceFormStore.getSurfaceForm(sfOcc.surfaceForm.name)
+      } catch {
+        case e: SurfaceFormNotFoundException => sfOcc.surfaceForm
+      }
+
+      //The candidates are sorted by their count (hence by prior) in the candidate map:
+      val cands = candidateSearcher.getTopCandidates(sf, MAX_CANDIDATES, filter)
+      SpotlightLog.debug(this.getClass, "# candidates for: %s = %s.", sf, cands.size)
+
+      cands
+    }
+
+    if (cache == null)
+      return search()
+
+    val cached = cache.candidates.get(sfOcc.surfaceForm.name)
+    if (cached != null)
+      cached
+    else {
+      val cands = search()
+      cache.candidates.putIfAbsent(sfOcc.surfaceForm.name, cands)
+      cands
+    }
+  }
+
+
+  def bestK(paragraph: Paragraph, k: Int): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] =
+    bestK(paragraph, k, null, Deadline.current(), null)
+
+  /**
+   * The result is the same as for bestK(paragraph, k), except that occurrences whose best candidate is rejected by
+   * the filter have no candidates. Rejected candidates are only scored if they may change the result (see bestK_).
+   */
+  override def bestK(paragraph: Paragraph, k: Int, filter: CandidateFilter): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] =
+    bestK(paragraph, k, null, Deadline.current(), CompiledCandidateFilter.compile(filter, candidateSearcher.resStore))
+
+  /**
+   * Disambiguates the paragraphs of a batch in parallel. Candidates and contexts are only read
+   * once per batch, so paragraphs sharing surface forms and candidates are cheaper to disambiguate
+   * in a batch than one by one.
+   */
+  override def bestKBatch(paragraphs: List[Paragraph], k: Int): List[Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]] =
+    bestKBatch(paragraphs, k, null)
+
+  def bestKBatch(paragraphs: List[Paragraph], k: Int, filter: CandidateFilter): List[Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]] = {
+    val cache = new DBTwoStepDisambiguator.BatchCache()
+    val deadline = Deadline.current()
+    val compiledFilter = CompiledCandidateFilter.compile(filter, candidateSearcher.resStore)
+    DBTwoStepDisambiguator.parallelMap(paragraphs.toIndexedSeq, maxParallelParagraphs) { p: Paragraph =>
+      bestK(p, k, cache, deadline, compiledFilter)
+    }.toList
+  }
 
-  def bestK(paragraph: Paragraph, k: Int): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
+  private def bestK(paragraph: Paragraph, k: Int, cache: DBTwoStepDisambiguator.BatchCache, deadline: Deadline, filter: CompiledCandidateFilter): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
 
     SpotlightLog.debug(this.getClass, "Running bestK for paragraph %s.",paragraph.id)
 
@@ -89,12 +194,12 @@ class DBTwoStepDisambiguator(
     val sentences = DBSpotter.tokensToSentences(paragraph.text.featureValue[List[Token]]("tokens").get)
 
     if (sentences.size <= MAX_CONTEXT)
-      bestK_(paragraph, paragraph.getOccurrences().toList, sentences.flatMap(_.map(_.tokenType)), k)
+      bestK_(paragraph, paragraph.getOccurrences().toList, sentences.flatMap(_.map(_.tokenType)), k, cache, deadline, filter)
     else {
       val occurrenceStack = paragraph.getOccurrences().toBuffer
       val currentTokens = ArrayBuffer[Token]()
 
-      sentences.flatMap{
+      val windows = sentences.flatMap{
         sentence: List[Token] =>
 
           currentTokens ++= sentence
@@ -109,145 +214,389 @@ class DBTwoStepDisambiguator(
             val sliceTokens = currentTokens.map(_.tokenType)
             currentTokens.clear()
 
-            //Disambiguate all occs in the current window:
-            Some( bestK_(paragraph, sliceOccs, sliceTokens, k) )
+            Some( (sliceOccs, sliceTokens) )
           } else {
             None
           }
-      }.toList.reduce(_ ++ _)
+      }.toIndexedSeq
+
+      //Disambiguate all occs in each window:
+      bestKWindows(paragraph, windows, k, cache, deadline, filter)
     }
   }
 
+  /**
+   * Disambiguates the windows of a paragraph in parallel on the shared window pool. At most
+   * maxParallelWindows windows of the paragraph are disambiguated at the same time, the calling
+   * thread disambiguates windows as well. The results are merged in the order of the windows.
+   */
+  private def bestKWindows(paragraph: Paragraph, windows: IndexedSeq[(List[SurfaceFormOccurrence], Seq[TokenType])], k: Int, cache: DBTwoStepDisambiguator.BatchCache, deadline: Deadline, filter: CompiledCandidateFilter): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
+    DBTwoStepDisambiguator.parallelMap(windows, maxParallelWindows) { w: (List[SurfaceFormOccurrence], Seq[TokenType]) =>
+      bestK_(paragraph, w._1, w._2, k, cache, deadline, filter)
+    }.foldLeft(Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]())(_ ++ _)
+  }
+
 
-  def bestK_(paragraph: Paragraph, occurrences: List[SurfaceFormOccurrence], tokens: Seq[TokenType], k: Int): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
+  /**
+   * Disambiguates the occurrences of a context window. If the deadline of the request is close, the context is
+   * not scored anymore and the remaining occurrences are disambiguated by their prior (see priorOnlyCandidates).
+   *
+   * The filter does not change the ranking or the scores of the candidates, the rejected candidates are still
+   * compared to the accepted ones. An occurrence whose best candidate is rejected has no candidates, since it
+   * would be removed by the annotation filters of the request anyway. If the contexts are scored one by one
+   * (the context similarity has a ContextScorer), occurrences none of whose candidates are accepted are not
+   * scored and, when pruning, rejected candidates that can not beat the best accepted candidate are only scored
+   * if the best candidate is accepted and they may be among the best k (see topCandidates). Otherwise, the
+   * context score of a candidate depends on all candidates of the window, hence all candidates are scored.
+   */
+  def bestK_(paragraph: Paragraph, occurrences: List[SurfaceFormOccurrence], tokens: Seq[TokenType], k: Int, cache: DBTwoStepDisambiguator.BatchCache = null, deadline: Deadline = null, filter: CompiledCandidateFilter = null): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
 
     if (occurrences.size == 0)
       return Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]()
 
+    val query = TokenCounts.fromTokenTypes(tokens)
+    val contextScorer = if (contextStore != null) contextSimilarity.scorer(query) else null
+
+    //Without a scorer for single contexts, the candidates of occurrences without accepted candidates are scored as well:
+    val searchFilter = if (contextStore == null || contextScorer != null) filter else null
+
     // step1: get candidates for all surface forms
     var allCandidateResources = Set[DBpediaResource]()
+    var rejected = Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]()
     val occs = occurrences.foldLeft(
       Map[SurfaceFormOccurrence, List[Candidate]]())(
       (acc, sfOcc) => {
 
         SpotlightLog.debug(this.getClass, "Searching...")
 
-        val candidateRes = {
-          val sf = try {
-            surfaceFormStore.getSurfaceForm(sfOcc.surfaceForm.name)
-          } catch {
-            case e: SurfaceFormNotFoundException => sfOcc.surfaceForm
-          }
-
-          val cands = candidateSearcher.getCandidates(sf)
-          SpotlightLog.debug(this.getClass, "# candidates for: %s = %s.", sf, cands.size)
-
-          if (cands.size > MAX_CANDIDATES) {
-            SpotlightLog.debug(this.getClass, "Reducing number of candidates to %d.", MAX_CANDIDATES)
-            cands.toList.sortBy( _.prior ).reverse.take(MAX_CANDIDATES).toSet
-          } else {
-            cands
-          }
-        }
+        val candidateRes = lookupCandidates(sfOcc, cache, searchFilter)
 
+        if (filter != null && !candidateRes.exists{ c: Candidate => filter.accept(c.resource.id) }) {
+          if (searchFilter == null)
+            allCandidateResources ++= candidateRes.map(_.resource)
 
-        allCandidateResources ++= candidateRes.map(_.resource)
+          rejected += (sfOcc -> List[DBpediaResourceOccurrence]())
+          acc
+        } else {
+          allCandidateResources ++= candidateRes.map(_.resource)
 
-        acc + (sfOcc -> candidateRes.toList)
+          acc + (sfOcc -> candidateRes.toList)
+        }
       })
 
+    //An occurrence whose best candidate is rejected by the filter has no candidates:
+    def accepted(best: List[DBpediaResourceOccurrence]): List[DBpediaResourceOccurrence] =
+      if (filter == null || best.isEmpty || filter.accept(best.head.resource.id)) best else List[DBpediaResourceOccurrence]()
+
+    if (deadline != null && deadline.isClose) {
+      SpotlightLog.info(this.getClass, "%s is close, disambiguating %d occurrences by prior.", deadline, occs.size)
+      return rejected ++ occs.map{ case (sfOcc, cands) => sfOcc -> accepted(priorOnlyCandidates(sfOcc, cands.toArray, k)) }
+    }
 
     // step2: query once for the paragraph context, get scores for each candidate resource
-    val contextScores = if (contextStore != null)
-      getContextSimilarityScores(tokens, allCandidateResources)
+
+    //When pruning, only the contexts of candidates that may be among the best k are scored (see topCandidates):
+    val scorer = if (pruneCandidates && mixture.isMonotoneInContext)
+      contextScorer
     else
+      null
+
+    val contextScores = if (contextStore != null && scorer == null) {
+      scoredCandidates.addAndGet(allCandidateResources.size)
+      getContextSimilarityScores(query, allCandidateResources, cache)
+    } else {
       mutable.Map[DBpediaResource, Double]()
+    }
+
+    //The NIL context score only depends on the context window:
+    val nilContextScore = if (contextStore != null)
+      contextSimilarity.nilScore(query)
+    else
+      0.0
 
     // pick the best k for each surface form
-    occs.keys.foldLeft(Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]())( (acc, aSfOcc) => {
-
-      //Get the NIL entity:
-      val eNIL = new DBpediaResourceOccurrence(
-        new DBpediaResource("--nil--"),
-        aSfOcc.surfaceForm,
-        paragraph.text,
-        -1
-      )
+    occs.keys.foldLeft(rejected)( (acc, aSfOcc) => {
+
+      if (deadline != null && deadline.isClose)
+        acc + (aSfOcc -> accepted(priorOnlyCandidates(aSfOcc, occs(aSfOcc).toArray, k)))
+      else {
+
+        //Get the NIL entity:
+        val eNIL = new DBpediaResourceOccurrence(
+          new DBpediaResource("--nil--"),
+          aSfOcc.surfaceForm,
+          paragraph.text,
+          -1
+        )
+
+        aSfOcc.featureValue[Array[TokenType]]("token_types") match {
+          case Some(t) => eNIL.setScore(FeatureKey.P_SE, contextSimilarity.nilScore(TokenCounts.fromTokenTypes(t)))
+          case _ =>
+        }
+
+        eNIL.setScore(FeatureKey.P_CE, nilContextScore)
+        eNIL.setScore(FeatureKey.P_E,  breeze.numerics.log( 1 / surfaceFormStore.getTotalAnnotatedCount.toDouble ) ) //surfaceFormStore.getTotalAnnotatedCount = total number of entity mentions
+        val nilEntityScore = mixture.getScore(eNIL)
+
+        //Get all other entities:
+        val cands = occs.getOrElse(aSfOcc, List[Candidate]()).toArray
+        val candOccs = topCandidates(aSfOcc, cands, k, nilEntityScore, nilContextScore, scorer, contextScores, cache, filter)
 
-      aSfOcc.featureValue[Array[TokenType]]("token_types") match {
-        case Some(t) => eNIL.setFeature(new Score("P(s|e)", contextSimilarity.nilScore(getQuery(t))))
-        case _ =>
+        acc + (aSfOcc -> accepted(candOccs))
       }
+    })
 
-      val nilContextScore = if (contextStore != null)
-        contextSimilarity.nilScore(getQuery(tokens))
-      else
-        0.0
 
-      eNIL.setFeature(new Score("P(c|e)", nilContextScore))
-      eNIL.setFeature(new Score("P(e)",   breeze.numerics.log( 1 / surfaceFormStore.getTotalAnnotatedCount.toDouble ) )) //surfaceFormStore.getTotalAnnotatedCount = total number of entity mentions
-      val nilEntityScore = mixture.getScore(eNIL)
-
-      //Get all other entities:
-      val candOccs = occs.getOrElse(aSfOcc, List[Candidate]())
-        .map{ cand: Candidate => {
-        val resOcc = new DBpediaResourceOccurrence(
-          "",
-          cand.resource,
-          cand.surfaceForm,
-          aSfOcc.context,
-          aSfOcc.textOffset,
-          Provenance.Undefined,
-          0.0,
-          0.0,
-          contextScores.getOrElse(cand.resource, 0.0)
-        )
+  }
+
+
+  /**
+   * Creates the DBpedia resource occurrence for a candidate with the scores P(e), P(s|e) and P(c|e) as features.
+   */
+  private def candidateOccurrence(sfOcc: SurfaceFormOccurrence, cand: Candidate, pE: Double, pSE: Double, pCE: Double, score: Double): DBpediaResourceOccurrence = {
+    val resOcc = new DBpediaResourceOccurrence(
+      "",
+      cand.resource,
+      cand.surfaceForm,
+      sfOcc.context,
+      sfOcc.textOffset,
+      Provenance.Undefined,
+      score,
+      0.0,
+      pCE
+    )
+
+    resOcc.setScore(FeatureKey.P_SE, pSE)
+    resOcc.setScore(FeatureKey.P_CE, pCE)
+    resOcc.setScore(FeatureKey.P_E,  pE)
+
+    resOcc
+  }
 
-        //Set the scores as features for the resource occurrence:
+  /**
+   * Returns the best k candidates by their prior P(e|s) without scoring their context, which is used once the
+   * deadline of a request is close. The candidates are not compared to the NIL entity. Their similarity score is
+   * the prior and they are marked with the feature "fallback".
+   */
+  private def priorOnlyCandidates(sfOcc: SurfaceFormOccurrence, cands: Array[Candidate], k: Int): List[DBpediaResourceOccurrence] = {
+    fallbackOccurrences.incrementAndGet()
+
+    //The candidates are sorted by their count (hence by prior) in the candidate map:
+    val best = cands.take(k)
+
+    best.zipWithIndex.map{ case (cand: Candidate, rank: Int) =>
+      val resOcc = new DBpediaResourceOccurrence(
+        "",
+        cand.resource,
+        cand.surfaceForm,
+        sfOcc.context,
+        sfOcc.textOffset,
+        Provenance.Undefined,
+        cand.prior,
+        0.0,
+        0.0
+      )
 
-        //Note that this is not mathematically correct, since the candidate prior is P(e|s),
-        //the correct P(s|e) should be breeze.numerics.log( cand.support / cand.resource.support.toDouble )
-        resOcc.setFeature(new Score("P(s|e)", breeze.numerics.log( cand.prior )))
-        resOcc.setFeature(new Score("P(c|e)", resOcc.contextualScore))
-        resOcc.setFeature(new Score("P(e)",   breeze.numerics.log( cand.resource.prior )))
+      if (rank + 1 < best.length)
+        resOcc.setPercentageOfSecondRank(best(rank + 1).prior / cand.prior)
 
-        //Use the mixture to combine the scores
-        resOcc.setSimilarityScore(mixture.getScore(resOcc))
+      resOcc.setScore(FeatureKey.P_SE, breeze.numerics.log( cand.prior ))
+      resOcc.setScore(FeatureKey.P_E,  breeze.numerics.log( cand.resource.prior ))
+      resOcc.setFeature(new Nominal(FeatureKey.FALLBACK.name, "prior"))
+      resOcc
+    }.toList
+  }
 
-        resOcc
-      }
+  /**
+   * Scores the candidates from until until with the mixture. Columnar mixtures score the candidates
+   * directly from the feature columns, for all other mixtures a resource occurrence is created.
+   */
+  private def scoreCandidates(sfOcc: SurfaceFormOccurrence, cands: Array[Candidate], pE: Array[Double], pSE: Array[Double], pCE: Array[Double], from: Int, until: Int, scores: Array[Double]) {
+    if (mixture.isColumnar && from == 0) {
+      mixture.getScores(pE, pSE, pCE, until, scores)
+    } else {
+      var i = from
+      while (i < until) {
+        scores(i) = if (mixture.isColumnar)
+          mixture.getScore(pE(i), pSE(i), pCE(i))
+        else
+          mixture.getScore(candidateOccurrence(sfOcc, cands(i), pE(i), pSE(i), pCE(i), 0.0))
+        i += 1
       }
-        .filter{ o => !java.lang.Double.isNaN(o.similarityScore) && o.similarityScore > nilEntityScore }
-        .sortBy( o => o.similarityScore )
-        .reverse
+    }
+  }
+
+  /**
+   * Returns the best k candidates scoring higher than the NIL entity, sorted by decreasing score. The
+   * final scores of the candidates are normalized with a softmax function over the best k and the NIL entity.
+   *
+   * The candidates are scored as a block from the columns of their features P(e), P(s|e) and P(c|e),
+   * resource occurrences are only created for the best k.
+   *
+   * If a context scorer is given, before the context of a candidate is scored, its score is calculated with
+   * the upper bound of its context score. If this bound is not higher than the score of the NIL entity or
+   * lower than the score of the k-th best candidate so far, the candidate is skipped. The result is the
+   * same as when scoring all candidates.
+   *
+   * If a filter is given, a candidate rejected by the filter whose bound is lower than the score of the best
+   * accepted candidate so far can not be the best candidate. It is put aside and only scored (or skipped as
+   * above) if the best candidate turns out to be accepted, otherwise the occurrence has no candidates anyway.
+   *
+   * Context scores are cached in contextScores for other occurrences in the same context window.
+   */
+  private def topCandidates(sfOcc: SurfaceFormOccurrence, cands: Array[Candidate], k: Int, nilEntityScore: Double, nilContextScore: Double, scorer: ContextScorer, contextScores: mutable.Map[DBpediaResource, Double], cache: DBTwoStepDisambiguator.BatchCache, filter: CompiledCandidateFilter): List[DBpediaResourceOccurrence] = {
+
+    val n = cands.length
+    if (k <= 0 || n == 0)
+      return List[DBpediaResourceOccurrence]()
+
+    val pE     = new Array[Double](n)
+    val pSE    = new Array[Double](n)
+    val pCE    = new Array[Double](n)
+    val scores = new Array[Double](n)
+
+    var i = 0
+    while (i < n) {
+      val res = cands(i).resource
+
+      //Note that this is not mathematically correct, since the candidate prior is P(e|s),
+      //the correct P(s|e) should be breeze.numerics.log( cand.support / cand.resource.support.toDouble )
+      pSE(i) = breeze.numerics.log( cands(i).prior )
+      pE(i)  = breeze.numerics.log( res.prior )
+
+      //When pruning, the context score of a candidate that was not scored yet is its upper bound:
+      pCE(i) = if (scorer == null)
+        contextScores.getOrElse(res, 0.0)
+      else
+        contextScores.getOrElse(res, scorer.upperBound(contextStore.getTotalTokenCount(res)))
+
+      i += 1
+    }
+
+    scoreCandidates(sfOcc, cands, pE, pSE, pCE, 0, n, scores)
+
+    val selected: List[Int] = if (scorer == null) {
+      (0 until n).filter{ i: Int => !java.lang.Double.isNaN(scores(i)) && scores(i) > nilEntityScore }
+        .sortBy{ i: Int => (-scores(i), -i) }
         .take(k)
+        .toList
+    } else {
+
+      //The best k candidates so far, lowest score first. For equal scores, the later candidate ranks higher
+      //(as in the reversed stable sort of the exhaustive scoring), hence it is removed last:
+      val ranking = new java.util.Comparator[Int] {
+        def compare(a: Int, b: Int): Int = {
+          val c = java.lang.Double.compare(scores(a), scores(b))
+          if (c != 0) c else a.compareTo(b)
+        }
+      }
+      val best = new java.util.PriorityQueue[Int](k, ranking)
+
+      //Scores the candidate unless its upper bound shows that it can not be among the best k:
+      def offer(i: Int) {
+        val res = cands(i).resource
+        val cached = contextScores.contains(res)
+
+        //Score with the upper bound of the context score:
+        val skip = !cached && (scores(i) <= nilEntityScore || (best.size() == k && scores(i) < scores(best.peek())))
+
+        if (skip) {
+          skippedCandidates.incrementAndGet()
+        } else {
+          if (!cached) {
+            scoredCandidates.incrementAndGet()
+            pCE(i) = scorer.score(contextTokenCounts(res, cache), contextStore.getTotalTokenCount(res))
+            contextScores.put(res, pCE(i))
+            scoreCandidates(sfOcc, cands, pE, pSE, pCE, i, i + 1, scores)
+          }
 
-      (1 to candOccs.size-1).foreach{ i: Int =>
-        val top = candOccs(i-1)
-        val bottom = candOccs(i)
-        top.setPercentageOfSecondRank(breeze.numerics.exp(bottom.similarityScore - top.similarityScore))
+          if (!java.lang.Double.isNaN(scores(i)) && scores(i) > nilEntityScore) {
+            if (best.size() < k) {
+              best.add(i)
+            } else if (ranking.compare(i, best.peek()) > 0) {
+              best.poll()
+              best.add(i)
+            }
+          }
+        }
       }
 
-      //Compute the final score as a softmax function, get the total score first:
-      val similaritySoftMaxTotal = linalg.softmax(candOccs.map(_.similarityScore) :+ nilEntityScore)
-      val contextSoftMaxTotal    = linalg.softmax(candOccs.map(_.contextualScore) :+ nilContextScore )
+      //Rejected candidates that can not beat the best accepted candidate so far are put aside:
+      val acceptedCands = if (filter == null) null else cands.map{ c: Candidate => filter.accept(c.resource.id) }
+      val putAside = ArrayBuffer[Int]()
+      var bestAccepted = -1
+
+      i = 0
+      while (i < n) {
+        val cached = contextScores.contains(cands(i).resource)
+
+        if (acceptedCands != null && !acceptedCands(i) && !cached && bestAccepted >= 0 && scores(i) < scores(bestAccepted)) {
+          putAside += i
+        } else {
+          offer(i)
 
-      candOccs.foreach{ o: DBpediaResourceOccurrence =>
-        o.setSimilarityScore( breeze.numerics.exp(o.similarityScore - similaritySoftMaxTotal) ) // e^xi / \sum e^xi
-        o.setContextualScore( breeze.numerics.exp(o.contextualScore - contextSoftMaxTotal) )    // e^xi / \sum e^xi
+          //Only exact scores count, skipped candidates only have the score of their upper bound:
+          if (acceptedCands != null && acceptedCands(i) && contextScores.contains(cands(i).resource) &&
+            !java.lang.Double.isNaN(scores(i)) && (bestAccepted < 0 || scores(i) >= scores(bestAccepted)))
+            bestAccepted = i
+        }
+        i += 1
       }
 
-      acc + (aSfOcc -> candOccs)
-    })
+      //The candidates put aside can only change the result if the best candidate is accepted:
+      if (putAside.nonEmpty) {
+        if (best.isEmpty || !acceptedCands(java.util.Collections.max[Int](best, ranking)))
+          skippedCandidates.addAndGet(putAside.size)
+        else
+          putAside.foreach(offer)
+      }
+
+      best.asScala.toList.sortBy{ i: Int => (-scores(i), -i) }
+    }
+
+    //Compute the final score as a softmax function, get the total score first:
+    val m = selected.size
+    val selectedScores  = selected.map(scores(_)).toArray
+    val selectedContext = selected.map(pCE(_)).toArray
+    val similaritySoftMaxTotal = Mixture.logSumExp(selectedScores, m, nilEntityScore)
+    val contextSoftMaxTotal    = Mixture.logSumExp(selectedContext, m, nilContextScore)
+
+    selected.zipWithIndex.map{ case (i: Int, rank: Int) =>
+      val o = candidateOccurrence(sfOcc, cands(i), pE(i), pSE(i), pCE(i), scores(i))
 
+      if (rank + 1 < m)
+        o.setPercentageOfSecondRank(breeze.numerics.exp(selectedScores(rank + 1) - scores(i)))
 
+      o.setSimilarityScore( breeze.numerics.exp(scores(i) - similaritySoftMaxTotal) ) // e^xi / \sum e^xi
+      o.setContextualScore( breeze.numerics.exp(pCE(i) - contextSoftMaxTotal) )      // e^xi / \sum e^xi
+      o
+    }
   }
 
 
   @throws(classOf[InputException])
   def disambiguate(paragraph: Paragraph): List[DBpediaResourceOccurrence] = {
+    best(bestK(paragraph, MAX_CANDIDATES))
+  }
+
+  @throws(classOf[InputException])
+  override def disambiguate(paragraph: Paragraph, filter: CandidateFilter): List[DBpediaResourceOccurrence] = {
+    best(bestK(paragraph, MAX_CANDIDATES, filter))
+  }
+
+  @throws(classOf[InputException])
+  override def disambiguateBatch(paragraphs: List[Paragraph]): List[List[DBpediaResourceOccurrence]] = {
+    bestKBatch(paragraphs, MAX_CANDIDATES).map(best(_))
+  }
+
+  @throws(classOf[InputException])
+  override def disambiguateBatch(paragraphs: List[Paragraph], filter: CandidateFilter): List[List[DBpediaResourceOccurrence]] = {
+    bestKBatch(paragraphs, MAX_CANDIDATES, filter).map(best(_))
+  }
+
+  private def best(candidates: Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]): List[DBpediaResourceOccurrence] = {
     // return first from each candidate set
-    bestK(paragraph, MAX_CANDIDATES)
+    candidates
       .filter(kv =>
       kv._2.nonEmpty)
       .map( kv =>
@@ -259,3 +608,68 @@ class DBTwoStepDisambiguator(
   def name = "Database-backed 2 Step disambiguator (%s, %s)".format(contextSimilarity.getClass.getSimpleName, mixture.toString)
 
 }
+
+object DBTwoStepDisambiguator {
+
+  val DEFAULT_PARALLEL_WINDOWS = math.min(4, Runtime.getRuntime.availableProcessors())
+
+  /**
+   * Pool shared by all requests for disambiguating the context windows of long paragraphs.
+   * Since each paragraph uses at most maxParallelWindows threads of the pool, concurrent
+   * requests share the pool fairly.
+   */
+  lazy val windowPool = new ForkJoinPool(Runtime.getRuntime.availableProcessors())
+
+  val DEFAULT_PARALLEL_PARAGRAPHS = Runtime.getRuntime.availableProcessors()
+
+  /**
+   * Candidates of surface forms (by name) and contexts of resources (by ID) shared by the
+   * paragraphs of a batch.
+   */
+  class BatchCache {
+    val candidates = new ConcurrentHashMap[String, Seq[Candidate]]()
+    val contexts = new ConcurrentHashMap[Int, TokenCounts]()
+  }
+
+  /**
+   * Applies f to all items on the window pool, at most parallelism items are processed at the same
+   * time. The calling thread processes items as well. The results are in the order of the items.
+   */
+  def parallelMap[A, B: ClassManifest](items: IndexedSeq[A], parallelism: Int)(f: A => B): Array[B] = {
+
+    val results = new Array[B](items.size)
+    val nextItem = new AtomicInteger(0)
+    val finished = new CountDownLatch(items.size)
+    val error = new AtomicReference[Throwable](null)
+
+    def work() {
+      var i = nextItem.getAndIncrement()
+      while (i < items.size) {
+        try {
+          if (error.get() == null)
+            results(i) = f(items(i))
+        } catch {
+          case e: Throwable => error.compareAndSet(null, e)
+        } finally {
+          finished.countDown()
+        }
+        i = nextItem.getAndIncrement()
+      }
+    }
+
+    //Helpers that start after all items have been taken return immediately:
+    (1 until math.min(parallelism, items.size)).foreach { _ =>
+      windowPool.execute(new Runnable {
+        def run() { work() }
+      })
+    }
+    work()
+    finished.await()
+
+    if (error.get() != null)
+      throw error.get()
+
+    results
+  }
+
+}
@@ -0,0 +1,159 @@
+package org.dbpedia.spotlight.db
+
+import memory.MemoryStore
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The surface form dictionary of the [[org.dbpedia.spotlight.db.FSASpotter]] as a double-array trie.
+ *
+ * Every state is a position in the two arrays base and check. The transition from state s with token t
+ * leads to position p = base(s) + t if the transition exists, which is the case if check(p) is s.
+ * The lowest bit of check(p) marks whether the token sequence up to p is a surface form.
+ *
+ * A transition is returned as a single Int: the next state in the upper 31 bits and the accepting
+ * flag in the lowest bit, or REJECT if there is no transition. Hence, a transition takes constant time
+ * and does not create any objects.
+ *
+ * @author Joachim Daiber
+ */
+
+@SerialVersionUID(2001002)
+class DoubleArrayFSA extends MemoryStore {
+
+  var base: Array[Int] = null
+  var check: Array[Int] = null
+
+  /**
+   * Returns the transition from the state with the token, which is REJECT if there is no
+   * such transition. See isAccepting and state for reading the transition.
+   *
+   * @param state
+   * @param token
+   * @return
+   */
+  def next(state: Int, token: Int): Int = {
+    val p = base(state) + token
+    if (p > 0 && p < check.length && (check(p) >>> 1) == state)
+      (p << 1) | (check(p) & 1)
+    else
+      DoubleArrayFSA.REJECT
+  }
+
+  def size = check.length
+
+}
+
+object DoubleArrayFSA {
+
+  val INITIAL_STATE = 0
+
+  //Transition value for a missing transition:
+  val REJECT = -1
+
+  //Marks unused positions in check, must not be a state after shifting:
+  private val UNUSED = -1
+
+  @inline def isAccepting(transition: Int): Boolean = (transition & 1) == 1
+
+  @inline def state(transition: Int): Int = transition >>> 1
+
+  /**
+   * Compiles the FSA dictionary to a double-array trie. Since the dictionary is a trie, every
+   * state except the initial state has a single incoming transition.
+   *
+   * The states are placed in breadth-first order, the base of each state is the first position
+   * at which all of its transitions fit into unused positions.
+   */
+  def fromDictionary(dict: FSADictionary): DoubleArrayFSA = {
+
+    var base  = new Array[Int](math.max(1024, dict.size * 2))
+    var check = Array.fill[Int](base.length)(UNUSED)
+    val used = new java.util.BitSet()
+    used.set(0)
+
+    def ensureCapacity(n: Int) {
+      if (n > base.length) {
+        val size = math.max(n, base.length + (base.length >> 1))
+        base  = java.util.Arrays.copyOf(base, size)
+        val newCheck = java.util.Arrays.copyOf(check, size)
+        java.util.Arrays.fill(newCheck, check.length, size, UNUSED)
+        check = newCheck
+      }
+    }
+
+    //Pairs of (state in the dictionary, position in the double array):
+    var queue = ArrayBuffer[(Int, Int)]((FSASpotter.INITIAL_STATE, 0))
+    var firstFree = 1
+    var maxPosition = 0
+
+    while (queue.nonEmpty) {
+      val nextQueue = ArrayBuffer[(Int, Int)]()
+
+      queue.foreach { case (state: Int, position: Int) =>
+        val tokens = dict.transitionsTokens(state)
+        val states = dict.transitionsStates(state)
+
+        //Distinct tokens of the transitions, the accepting transition of a token is sorted first:
+        val children = tokens.distinct
+
+        if (children.isEmpty) {
+          base(position) = 0
+        } else {
+          firstFree = used.nextClearBit(firstFree)
+
+          //First unused position for the smallest token at which all transitions fit (the base may be negative):
+          var p = firstFree
+          while (children.exists(t => used.get(p - children(0) + t)))
+            p = used.nextClearBit(p + 1)
+
+          val b = p - children(0)
+          base(position) = b
+          ensureCapacity(b + children.last + 1)
+
+          children.foreach { t: Int =>
+            used.set(b + t)
+            maxPosition = math.max(maxPosition, b + t)
+            check(b + t) = position << 1
+          }
+
+          //Set the accepting flags and queue the next states:
+          var i = 0
+          while (i < tokens.length) {
+            if (states(i) == FSASpotter.ACCEPTING_STATE)
+              check(b + tokens(i)) |= 1
+            else
+              nextQueue += ((states(i), b + tokens(i)))
+            i += 1
+          }
+        }
+      }
+      queue = nextQueue
+    }
+
+    val fsa = new DoubleArrayFSA()
+    fsa.base  = java.util.Arrays.copyOf(base, maxPosition + 1)
+    fsa.check = java.util.Arrays.copyOf(check, maxPosition + 1)
+
+    SpotlightLog.info(this.getClass, "Compiled %d FSA states to a double array of size %d.", dict.size, fsa.size)
+    fsa
+  }
+
+  /**
+   * Converts the FSA dictionary of a model (fsa_dict.mem) to a double-array trie (fsa_da.mem).
+   * If a model contains a double-array trie, it is used instead of the FSA dictionary.
+   *
+   * Usage:
+   *
+   * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.DoubleArrayFSA -Dexec.args="/data/spotlight/en"
+   */
+  def main(args: Array[String]) {
+    //The spotter dictionary is next to model.properties, where SpotlightModel.fromFolder reads it:
+    val modelFolder = new File(args(0))
+
+    val dict = MemoryStore.loadFSADictionary(new FileInputStream(new File(modelFolder, "fsa_dict.mem")))
+    MemoryStore.dump(fromDictionary(dict), new File(modelFolder, "fsa_da.mem"))
+  }
+
+}
@@ -0,0 +1,229 @@
+package org.dbpedia.spotlight.db
+
+import java.io._
+import scala.collection.mutable.ArrayBuffer
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * Builds the [[org.dbpedia.spotlight.db.FSADictionary]] of the FSASpotter incrementally from the token
+ * sequences of the surface forms, which must be added in sorted order (see FSADictionaryBuilder.compare).
+ *
+ * As in the construction of minimal acyclic automata from sorted input, only the states on the path of the
+ * last added sequence can still receive transitions. All other states are finished: their transitions are
+ * converted to arrays immediately, so that the builder never holds more than the finished dictionary and
+ * the current path. Unlike a minimal automaton, states are not merged, the result is the same trie as
+ * the one built from unsorted input.
+ *
+ * The transitions of each state are sorted by (token, state), hence an accepting transition of a token
+ * precedes the transition to the next state.
+ *
+ * @author Joachim Daiber
+ */
+class FSADictionaryBuilder {
+
+  //Transitions of all states by their ID, set once the state is finished:
+  private val tokensForState = ArrayBuffer[Array[Int]]()
+  private val statesForState = ArrayBuffer[Array[Int]]()
+
+  //States on the path of the last sequence and their transitions so far:
+  private val path = ArrayBuffer[Int]()
+  private val pathTokens = ArrayBuffer[ArrayBuffer[Int]]()
+  private val pathStates = ArrayBuffer[ArrayBuffer[Int]]()
+
+  private var previous: Array[Int] = null
+
+  newState()
+
+  private def newState(): Int = {
+    val state = tokensForState.size
+    tokensForState += null
+    statesForState += null
+
+    path += state
+    pathTokens += ArrayBuffer[Int]()
+    pathStates += ArrayBuffer[Int]()
+    state
+  }
+
+  private def addTransition(depth: Int, token: Int, state: Int) {
+    pathTokens(depth) += token
+    pathStates(depth) += state
+  }
+
+  //Finishes all states on the path deeper than depth:
+  private def finish(depth: Int) {
+    while (path.size > depth + 1) {
+      val i = path.size - 1
+      tokensForState(path(i)) = pathTokens(i).toArray
+      statesForState(path(i)) = pathStates(i).toArray
+
+      path.remove(i)
+      pathTokens.remove(i)
+      pathStates.remove(i)
+    }
+  }
+
+  /**
+   * Adds the token sequence of a surface form. Sequences must be added in sorted order,
+   * a sequence that is equal to the previous one is ignored.
+   *
+   * @param tokens the token IDs of the surface form
+   */
+  def add(tokens: Array[Int]) {
+    if (tokens.length == 0)
+      return
+
+    var prefix = 0
+    if (previous != null) {
+      val c = FSADictionaryBuilder.compare(previous, tokens)
+      if (c == 0)
+        return
+      if (c > 0)
+        throw new IllegalArgumentException("Token sequences must be added in sorted order.")
+
+      while (prefix < previous.length && previous(prefix) == tokens(prefix))
+        prefix += 1
+    }
+
+    //Keep the states on the common prefix, all deeper states are finished:
+    val depth = math.min(prefix, path.size - 1)
+    finish(depth)
+
+    var d = depth
+    while (d < tokens.length - 1) {
+      val state = newState()
+      addTransition(d, tokens(d), state)
+      d += 1
+    }
+    addTransition(tokens.length - 1, tokens.last, FSASpotter.ACCEPTING_STATE)
+
+    previous = tokens
+  }
+
+  /**
+   * Finishes all states and returns the dictionary. No sequences may be added afterwards.
+   */
+  def result(): FSADictionary = {
+    finish(-1)
+
+    val d = new FSADictionary()
+    d.transitionsTokens = tokensForState.toArray
+    d.transitionsStates = statesForState.toArray
+    d
+  }
+
+}
+
+
+/**
+ * Sorts token sequences with bounded memory. Sequences are collected in chunks of at most chunkSize
+ * sequences, each chunk is sorted and written to a temporary file. The sorted sequences are read by merging
+ * the chunks.
+ *
+ * @author Joachim Daiber
+ */
+class TokenSequenceSorter(val chunkSize: Int) {
+
+  private val chunk = ArrayBuffer[Array[Int]]()
+  private val files = ArrayBuffer[File]()
+
+  def add(tokens: Array[Int]) {
+    chunk += tokens
+    if (chunk.size >= chunkSize)
+      spill()
+  }
+
+  private def spill() {
+    val file = File.createTempFile("spotlight-fsa-", ".tmp")
+    file.deleteOnExit()
+
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))
+    chunk.sortWith(FSADictionaryBuilder.compare(_, _) < 0).foreach { tokens: Array[Int] =>
+      out.writeInt(tokens.length)
+      tokens.foreach(out.writeInt(_))
+    }
+    out.close()
+
+    SpotlightLog.info(this.getClass, "Sorted chunk %d with %d token sequences.", files.size + 1, chunk.size)
+    files += file
+    chunk.clear()
+  }
+
+  private class ChunkReader(file: File) {
+    private val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))
+    var head: Array[Int] = null
+
+    def advance() {
+      head = try {
+        val tokens = new Array[Int](in.readInt())
+        var i = 0
+        while (i < tokens.length) {
+          tokens(i) = in.readInt()
+          i += 1
+        }
+        tokens
+      } catch {
+        case e: EOFException => in.close(); null
+      }
+    }
+
+    advance()
+  }
+
+  /**
+   * Returns all added sequences in sorted order. Must only be called once.
+   */
+  def sorted: Iterator[Array[Int]] = {
+    if (chunk.nonEmpty)
+      spill()
+
+    val queue = new java.util.PriorityQueue[ChunkReader](math.max(1, files.size), new java.util.Comparator[ChunkReader] {
+      def compare(a: ChunkReader, b: ChunkReader) = FSADictionaryBuilder.compare(a.head, b.head)
+    })
+    files.foreach { f: File =>
+      val reader = new ChunkReader(f)
+      if (reader.head != null)
+        queue.add(reader)
+    }
+
+    new Iterator[Array[Int]] {
+      def hasNext = !queue.isEmpty
+
+      def next(): Array[Int] = {
+        val reader = queue.poll()
+        val tokens = reader.head
+        reader.advance()
+        if (reader.head != null)
+          queue.add(reader)
+        tokens
+      }
+    }
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  def close() {
+    files.foreach(_.delete())
+    files.clear()
+  }
+
+}
+
+
+object FSADictionaryBuilder {
+
+  /**
+   * Lexicographic order of token sequences, a sequence precedes all sequences it is a prefix of.
+   */
+  def compare(a: Array[Int], b: Array[Int]): Int = {
+    var i = 0
+    while (i < a.length && i < b.length) {
+      if (a(i) != b(i))
+        return if (a(i) < b(i)) -1 else 1
+      i += 1
+    }
+    a.length - b.length
+  }
+
+}
@@ -4,8 +4,6 @@ import memory.MemoryStore
 import org.dbpedia.spotlight.model._
 import model.{TextTokenizer, StringTokenizer, SurfaceFormStore}
 import opennlp.tools.util.Span
-import collection.mutable.ArrayBuffer
-import collection.mutable.Map
 import tokenize.LanguageIndependentTokenizer
 
 
@@ -14,36 +12,42 @@ import tokenize.LanguageIndependentTokenizer
  */
 
 class FSASpotter(
-  fsaDictionary: FSADictionary,
+  fsa: DoubleArrayFSA,
   surfaceFormStore: SurfaceFormStore,
   spotFeatureWeights: Option[Seq[Double]],
   stopwords: Set[String]
 ) extends DBSpotter(surfaceFormStore, spotFeatureWeights, stopwords) {
 
+  def this(fsaDictionary: FSADictionary, surfaceFormStore: SurfaceFormStore, spotFeatureWeights: Option[Seq[Double]], stopwords: Set[String]) {
+    this(DoubleArrayFSA.fromDictionary(fsaDictionary), surfaceFormStore, spotFeatureWeights, stopwords)
+  }
+
   def generateCandidates(sentence: List[Token]): Seq[Span] = {
 
     var spans = findUppercaseSequences(sentence.map(_.token).toArray)
 
-    val ids = sentence.map(_.tokenType.id)
+    val ids = sentence.map(_.tokenType.id).toArray
 
-    sentence.zipWithIndex.foreach {
-      case (t: Token, i: Int) => {
-        var currentState = FSASpotter.INITIAL_STATE
-        var j = i
+    var i = 0
+    while (i < ids.length) {
+      var currentState = DoubleArrayFSA.INITIAL_STATE
+      var transition = DoubleArrayFSA.REJECT
+      var j = i
 
-        do {
-          //Get the transition for the next token:
-          val (endState, nextState) = fsaDictionary.next(currentState, ids(j))
+      do {
+        //Get the transition for the next token:
+        transition = fsa.next(currentState, ids(j))
 
-          //Add a span if this is a possible spot:
-          if (endState == FSASpotter.ACCEPTING_STATE)
-            spans :+= new Span(i, j+1, "m")
+        //Add a span if this is a possible spot:
+        if (transition != DoubleArrayFSA.REJECT && DoubleArrayFSA.isAccepting(transition))
+          spans :+= new Span(i, j+1, "m")
 
-          //Keep traversing the FSA until a rejecting state or the end of the sentence:
-          currentState = nextState
-          j += 1
-        } while ( currentState != FSASpotter.REJECTING_STATE && j < sentence.length )
-      }
+        //Keep traversing the FSA until a rejecting state or the end of the sentence:
+        currentState = DoubleArrayFSA.state(transition)
+        j += 1
+      } while ( transition != DoubleArrayFSA.REJECT && j < ids.length )
+
+      i += 1
     }
 
     spans
@@ -70,77 +74,42 @@ object FSASpotter {
   //State ID for None
   val REJECTING_STATE = -2
 
-  def buildDictionary(sfStore: SurfaceFormStore, tokenizer: TextTokenizer): FSADictionary = {
-
-    //Temporary FSA DSs:
-    val transitions: ArrayBuffer[Map[Int, Int]] = ArrayBuffer[Map[Int, Int]]()
-    val transitionsToX: ArrayBuffer[Set[Int]] = ArrayBuffer[Set[Int]]()
-    transitions.append( Map[Int, Int]() )
-    transitionsToX.append(Set[Int]())
-
-    //Get the next state given token during training:
-    def nextTrain(state: Int, token: Int): Option[Int] = transitions(state).get(token)
-
-    //Add transition to nextState
-    def addTransition(state: Int, token: Int, nextState: Int) {
-      if (nextState == ACCEPTING_STATE)
-        transitionsToX(state) += token
-      else
-        transitions(state).put(token, nextState)
-    }
+  //Number of surface forms that are tokenized at once and number of token sequences per sorted chunk:
+  val TOKENIZE_CHUNK_SIZE = 100000
+  val SORT_CHUNK_SIZE = 2000000
 
-    //Add transition to a new state
-    def addNewTransition(state: Int, token: Int): Int = {
-      if (nextTrain(state, token).isDefined) {
-        nextTrain(state, token).get
-      } else {
-        transitions.append( Map[Int, Int]() )
-        transitionsToX.append(Set[Int]())
-
-        addTransition(state, token, transitions.size-1)
-        transitions.size-1
-      }
-    }
+  /**
+   * Builds the FSA dictionary from all surface forms with an annotation probability >= 0.1.
+   *
+   * The surface forms are tokenized in chunks, the token sequences are sorted with bounded memory
+   * (see TokenSequenceSorter) and the dictionary is built incrementally from the sorted sequences
+   * (see FSADictionaryBuilder), hence the memory used is bounded by the size of the dictionary and the
+   * sort chunks.
+   */
+  def buildDictionary(sfStore: SurfaceFormStore, tokenizer: TextTokenizer): FSADictionary = {
 
+    val sorter = new TokenSequenceSorter(SORT_CHUNK_SIZE)
     var z = 0
 
     System.err.println("Tokenizing SFs...")
-    sfStore.iterateSurfaceForms.filter(_.annotationProbability >= 0.1).grouped(100000).toList.par.flatMap(_.map{
-      sf: SurfaceForm =>
-        //Tokenize all SFs first
-        ( sf, tokenizer.tokenize(new Text(sf.name)) )
-    }).seq.foreach{
-      case (sf: SurfaceForm, tokens: Seq[Token]) if tokens.size > 0 => {
-
-        z+=1
-        if ((z % 10000) == 0)
-          System.err.println("Processed %d SFs.".format(z))
-
-        val ids = tokens.map(_.tokenType.id).toArray
-
-        //For each token in the SF, add the transitions to the FSA:
-        var currentState = INITIAL_STATE
-        if (ids.size > 1)
-          (0 until ids.size-1).foreach { j: Int =>
-            currentState = addNewTransition(currentState, ids(j))
-          }
-
-        addTransition(currentState, ids.last, ACCEPTING_STATE)
+    sfStore.iterateSurfaceForms.iterator.filter(_.annotationProbability >= 0.1).grouped(TOKENIZE_CHUNK_SIZE).foreach { sfs: Seq[SurfaceForm] =>
+      sfs.par.map{ sf: SurfaceForm =>
+        tokenizer.tokenize(new Text(sf.name)).map(_.tokenType.id).toArray
+      }.seq.foreach{ ids: Array[Int] =>
+        if (ids.length > 0)
+          sorter.add(ids)
       }
-      case _ =>
-    }
-
-    val d = new FSADictionary()
 
-    //Convert the temporary transition storage to arrays:
-    val pairs = transitions.zip(transitionsToX).map{ case (ts: Map[Int, Int], es: Set[Int]) =>
-      (ts.iterator ++ es.map{ t: Int => (t, ACCEPTING_STATE) }).toList.sortBy(p => (p._1, p._2))
+      z += sfs.size
+      System.err.println("Processed %d SFs.".format(z))
     }
 
-    d.transitionsTokens = pairs.map(_.map(_._1).toArray).toArray
-    d.transitionsStates = pairs.map(_.map(_._2).toArray).toArray
+    System.err.println("Building FSA...")
+    val builder = new FSADictionaryBuilder()
+    sorter.sorted.foreach(builder.add(_))
+    sorter.close()
 
-    d
+    builder.result()
   }
 
 }
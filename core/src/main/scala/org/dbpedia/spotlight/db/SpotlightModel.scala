@@ -1,7 +1,8 @@
 package org.dbpedia.spotlight.db
 
-import concurrent.{TokenizerWrapper, SpotterWrapper}
-import memory.MemoryStore
+import concurrent.{StoreLoader, TokenizerWrapper, SpotterWrapper}
+import memory.{MemoryContextStore, MemoryCompressedContextStore, StringIDIndex, MemoryStore}
+import mmap.MMapStore
 import model._
 import opennlp.tools.tokenize.{TokenizerModel, TokenizerME}
 import opennlp.tools.sentdetect.{SentenceModel, SentenceDetectorME}
@@ -24,16 +25,93 @@ import tokenize.{OpenNLPTokenizer, LanguageIndependentTokenizer}
 class SpotlightModel(val tokenizer: TextTokenizer,
                      val spotters: java.util.Map[SpotterPolicy, Spotter],
                      val disambiguators: java.util.Map[DisambiguationPolicy, ParagraphDisambiguatorJ],
-                     val properties: Properties)
+                     val properties: Properties) {
+
+  /**
+   * Statistics of the disambiguators of the model (e.g. the hit rate of the candidate cache), one line per disambiguator.
+   */
+  def statistics: String = disambiguators.asScala.map {
+    case (policy, d) => d.disambiguator match {
+      case db: DBTwoStepDisambiguator => "%s: %s".format(policy, db.statistics)
+      case _ => "%s: no statistics".format(policy)
+    }
+  }.mkString("\n")
+
+  /**
+   * Releases the pooled tokenizer and spotter instances. The stores are released
+   * by the garbage collector once the model is no longer referenced.
+   */
+  def close() {
+    tokenizer match {
+      case t: TokenizerWrapper => t.close()
+      case _ =>
+    }
+    spotters.values().asScala.foreach {
+      case s: SpotterWrapper => s.close()
+      case _ =>
+    }
+  }
+
+}
 
 object SpotlightModel {
 
   def loadStopwords(modelFolder: File): Set[String] = scala.io.Source.fromFile(new File(modelFolder, "stopwords.list")).getLines().map(_.trim()).toSet
   def loadSpotterThresholds(file: File): Seq[Double] = scala.io.Source.fromFile(file).getLines().next().split(" ").map(_.toDouble)
 
+  /**
+   * Rough estimate of the heap required to load the model in the folder: the size of the
+   * serialized stores, reverse lookups and spotter dictionary that are loaded into memory.
+   * Only the files fromFolder actually reads are counted, memory-mapped stores are not counted
+   * since they are not loaded into the heap.
+   */
+  def estimateHeapSize(modelFolder: File): Long = {
+    val modelDataFolder = new File(modelFolder, "model")
+
+    val stores = if (!modelDataFolder.isDirectory || new File(modelDataFolder, "tokens.mmap").exists())
+      List[File]()
+    else {
+      val reverseLookup = reverseLookupType(modelFolder)
+      val context = if (new File(modelDataFolder, "context.cmem").exists()) "context.cmem" else "context.mem"
+
+      List("tokens.mem", "sf.mem", "res.mem", "candmap.mem", context).map(new File(modelDataFolder, _)) ++
+        List("tokens", "sf", "res").map(store => new File(modelDataFolder, StringIDIndex.fileName(store, reverseLookup)))
+    }
+
+    //The double-array trie is loaded if the model contains one, it is compiled from the FSA dictionary otherwise:
+    val spotter = if (hasOpenNLPSpotter(modelFolder))
+      List[File]()
+    else if (new File(modelFolder, "fsa_da.mem").exists())
+      List(new File(modelFolder, "fsa_da.mem"))
+    else
+      List(new File(modelFolder, "fsa_dict.mem"))
+
+    (stores ++ spotter).filter(_.exists()).map(_.length()).sum
+  }
+
+  /**
+   * Type of the persisted reverse lookups of the model (see [[org.dbpedia.spotlight.db.memory.StringIDIndex]]).
+   */
+  def reverseLookupType(modelFolder: File): String = {
+    val properties = new Properties()
+    if (new File(modelFolder, "model.properties").exists())
+      properties.load(new FileInputStream(new File(modelFolder, "model.properties")))
+    properties.getProperty(StringIDIndex.PROPERTY, StringIDIndex.HASH_TABLE)
+  }
+
+  /**
+   * If there is at least one NE model or a chunker, the OpenNLP spotter is used instead of the FSA spotter.
+   */
+  def hasOpenNLPSpotter(modelFolder: File): Boolean =
+    new File(modelFolder, "opennlp").exists() && new File(modelFolder, "opennlp").list().exists(f => f.startsWith("ner-") || f.startsWith("chunker"))
+
   def storesFromFolder(modelFolder: File): (TokenTypeStore, SurfaceFormStore, ResourceStore, CandidateMapStore, ContextStore) = {
     val modelDataFolder = new File(modelFolder, "model")
 
+    //Prefer the memory-mapped stores if the model has been converted:
+    if (new File(modelDataFolder, "tokens.mmap").exists())
+      return mmapStoresFromFolder(modelDataFolder)
+
     List(
       new File(modelDataFolder, "tokens.mem"),
       new File(modelDataFolder, "sf.mem"),
@@ -45,12 +123,81 @@ object SpotlightModel {
           throw new IOException("Invalid Spotlight model folder: Could not read required file %s in %s.".format(modelFile.getName, modelFile.getPath))
     }
 
-    val tokenTypeStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
-    val sfStore = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")))
-    val resStore = MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")))
-    val candMapStore = MemoryStore.loadCandidateMapStore(new FileInputStream(new File(modelDataFolder, "candmap.mem")), resStore)
-    val contextStore = if (new File(modelDataFolder, "context.mem").exists())
-      MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenTypeStore)
+    //Deserialize all stores concurrently, the candidate map and context store only need the
+    //pointers to the resource and token store, which are set after they have been deserialized:
+    val loader = new StoreLoader(math.min(5, Runtime.getRuntime.availableProcessors()))
+
+    //Persisted reverse lookups (created by the indexer) are used if they exist, the type
+    //of the reverse lookup (hash table or minimal perfect hash) can be chosen per model:
+    val reverseLookup = reverseLookupType(modelFolder)
+
+    def index(store: String) = {
+      val f = new File(modelDataFolder, StringIDIndex.fileName(store, reverseLookup))
+      if (f.exists()) new FileInputStream(f) else null
+    }
+
+    try {
+      val tokenTypeStore = loader.submit("tokens.mem") {
+        MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")), index("tokens"))
+      }
+      val sfStore = loader.submit("sf.mem") {
+        MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")), index("sf"))
+      }
+      val resStore = loader.submit("res.mem") {
+        MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")), index("res"))
+      }
+      val candMapStore = loader.submit("candmap.mem") {
+        MemoryStore.loadCandidateMapStore(new FileInputStream(new File(modelDataFolder, "candmap.mem")), null)
+      }
+      //The compressed context store is used if the model contains one:
+      val contextStore: Option[java.util.concurrent.Future[_ <: ContextStore]] = if (new File(modelDataFolder, "context.cmem").exists())
+        Some(loader.submit("context.cmem") {
+          MemoryStore.loadCompressedContextStore(new FileInputStream(new File(modelDataFolder, "context.cmem")), null)
+        })
+      else if (new File(modelDataFolder, "context.mem").exists())
+        Some(loader.submit("context.mem") {
+          MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), null)
+        })
+      else
+        None
+
+      loader.get(candMapStore).resourceStore = loader.get(resStore)
+      contextStore.foreach { s => loader.get(s) match {
+        case c: MemoryCompressedContextStore => c.tokenStore = loader.get(tokenTypeStore)
+        case c: MemoryContextStore => c.tokenStore = loader.get(tokenTypeStore)
+      }}
+
+      (
+        loader.get(tokenTypeStore),
+        loader.get(sfStore),
+        loader.get(resStore),
+        loader.get(candMapStore),
+        contextStore.map(loader.get(_)).getOrElse(null)
+      )
+    } finally {
+      loader.shutdown()
+    }
+  }
+
+  def mmapStoresFromFolder(modelDataFolder: File): (TokenTypeStore, SurfaceFormStore, ResourceStore, CandidateMapStore, ContextStore) = {
+
+    List(
+      new File(modelDataFolder, "tokens.mmap"),
+      new File(modelDataFolder, "sf.mmap"),
+      new File(modelDataFolder, "res.mmap"),
+      new File(modelDataFolder, "candmap.mmap")
+    ).foreach {
+      modelFile: File =>
+        if (!modelFile.exists())
+          throw new IOException("Invalid Spotlight model folder: Could not read required file %s in %s.".format(modelFile.getName, modelFile.getPath))
+    }
+
+    val tokenTypeStore = MMapStore.loadTokenTypeStore(new File(modelDataFolder, "tokens.mmap"))
+    val sfStore = MMapStore.loadSurfaceFormStore(new File(modelDataFolder, "sf.mmap"))
+    val resStore = MMapStore.loadResourceStore(new File(modelDataFolder, "res.mmap"))
+    val candMapStore = MMapStore.loadCandidateMapStore(new File(modelDataFolder, "candmap.mmap"), resStore)
+    val contextStore = if (new File(modelDataFolder, "context.mmap").exists())
+      MMapStore.loadContextStore(new File(modelDataFolder, "context.mmap"), tokenTypeStore)
     else
       null
 
@@ -72,13 +219,15 @@ object SpotlightModel {
       case s: String => new SnowballStemmer(s)
     }
 
-    val c = properties.getProperty("opennlp_parallel", Runtime.getRuntime.availableProcessors().toString).toInt
-    val cores = (1 to c)
+    //OpenNLP tokenizers and spotters are not thread-safe, each request thread borrows an instance from a pool,
+    //which is created with opennlp_parallel instances and grows with the number of concurrent requests:
+    val initialInstances = math.max(1, properties.getProperty("opennlp_parallel", "1").toInt)
 
     val tokenizer: TextTokenizer = if(new File(modelFolder, "opennlp").exists()) {
 
       //Create the tokenizer:
       val posTagger = new File(modelFolder, "opennlp/pos-maxent.bin")
+      val posModel = if (posTagger.exists()) new POSModel(new FileInputStream(posTagger)) else null
       val tokenizerModel = new TokenizerModel(new FileInputStream(new File(modelFolder, "opennlp/token.bin")))
       val sentenceModel = new SentenceModel(new FileInputStream(new File(modelFolder, "opennlp/sent.bin")))
 
@@ -87,14 +236,11 @@ object SpotlightModel {
         stopwords,
         stemmer(),
         new SentenceDetectorME(sentenceModel),
-        if (posTagger.exists()) new POSTaggerME(new POSModel(new FileInputStream(posTagger))) else null,
+        if (posModel != null) new POSTaggerME(posModel) else null,
         tokenTypeStore
       ).asInstanceOf[TextTokenizer]
 
-      if(cores.size == 1)
-        createTokenizer()
-      else
-        new TokenizerWrapper(cores.map(_ => createTokenizer())).asInstanceOf[TextTokenizer]
+      new TokenizerWrapper(createTokenizer(), initialInstances).asInstanceOf[TextTokenizer]
 
     } else {
       val locale = properties.getProperty("locale").split("_")
@@ -102,7 +248,12 @@ object SpotlightModel {
     }
 
     val searcher      = new DBCandidateSearcher(resStore, sfStore, candMapStore)
-    val disambiguator = new ParagraphDisambiguatorJ(new DBTwoStepDisambiguator(
+
+    //Number of surface forms whose candidates are cached, 0 disables the cache:
+    if (properties.getProperty("candidate_cache_size") != null)
+      searcher.cacheSize = properties.getProperty("candidate_cache_size").toInt
+
+    val dbDisambiguator = new DBTwoStepDisambiguator(
       tokenTypeStore,
       sfStore,
       resStore,
@@ -110,10 +261,16 @@ object SpotlightModel {
       contextStore,
       new UnweightedMixture(Set("P(e)", "P(c|e)", "P(s|e)")),
       new GenerativeContextSimilarity(tokenTypeStore)
-    ))
+    )
+
+    //Number of context windows of a long paragraph that are disambiguated in parallel:
+    if (properties.getProperty("parallel_windows") != null)
+      dbDisambiguator.maxParallelWindows = math.max(1, properties.getProperty("parallel_windows").toInt)
+
+    val disambiguator = new ParagraphDisambiguatorJ(dbDisambiguator)
 
     //If there is at least one NE model or a chunker, use the OpenNLP spotter:
-    val spotter = if( new File(modelFolder, "opennlp").exists() && new File(modelFolder, "opennlp").list().exists(f => f.startsWith("ner-") || f.startsWith("chunker")) ) {
+    val spotter = if (hasOpenNLPSpotter(modelFolder)) {
       val nerModels = new File(modelFolder, "opennlp").list().filter(_.startsWith("ner-")).map { f: String =>
         new TokenNameFinderModel(new FileInputStream(new File(new File(modelFolder, "opennlp"), f)))
       }.toList
@@ -124,26 +281,28 @@ object SpotlightModel {
       else
         None
 
+      val spotterThresholds = loadSpotterThresholds(new File(modelFolder, "spotter_thresholds.txt"))
+
       def createSpotter() = new OpenNLPSpotter(
         chunkerModel,
         nerModels,
         sfStore,
         stopwords,
-        Some(loadSpotterThresholds(new File(modelFolder, "spotter_thresholds.txt")))
+        Some(spotterThresholds)
       ).asInstanceOf[Spotter]
 
-      if(cores.size == 1)
-        createSpotter()
-      else
-        new SpotterWrapper(
-          cores.map(_ => createSpotter())
-        ).asInstanceOf[Spotter]
+      new SpotterWrapper(createSpotter(), initialInstances).asInstanceOf[Spotter]
 
     } else {
-      val dict = MemoryStore.loadFSADictionary(new FileInputStream(new File(modelFolder, "fsa_dict.mem")))
+      //Use the double-array trie if the model contains one, the FSA dictionary is compiled otherwise:
+      val fsaFile = new File(modelFolder, "fsa_da.mem")
+      val fsa = if (fsaFile.exists())
+        MemoryStore.loadDoubleArrayFSA(new FileInputStream(fsaFile))
+      else
+        DoubleArrayFSA.fromDictionary(MemoryStore.loadFSADictionary(new FileInputStream(new File(modelFolder, "fsa_dict.mem"))))
 
       new FSASpotter(
-        dict,
+        fsa,
         sfStore,
         Some(loadSpotterThresholds(new File(modelFolder, "spotter_thresholds.txt"))),
         stopwords
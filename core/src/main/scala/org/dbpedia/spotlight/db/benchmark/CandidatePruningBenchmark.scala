@@ -0,0 +1,72 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.File
+import org.dbpedia.spotlight.db.{DBTwoStepDisambiguator, SpotlightModel}
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy
+import org.dbpedia.spotlight.model.{Paragraph, Factory, Text}
+
+/**
+ * Compares exhaustive candidate scoring with pruned top-k scoring in the
+ * [[org.dbpedia.spotlight.db.DBTwoStepDisambiguator]]. For each k, the benchmark
+ * reports the time per paragraph, the number of candidates whose context was scored and
+ * the number of candidates that were skipped, and checks that both modes produce the same results.
+ *
+ * The paragraphs are read from a text file with one paragraph per line.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.CandidatePruningBenchmark -Dexec.args="/data/spotlight/en paragraphs.txt"
+ *
+ * @author Joachim Daiber
+ */
+
+object CandidatePruningBenchmark {
+
+  def main(args: Array[String]) {
+    val model = SpotlightModel.fromFolder(new File(args(0)))
+
+    val disambiguator = model.disambiguators.get(DisambiguationPolicy.Default).disambiguator.asInstanceOf[DBTwoStepDisambiguator]
+    val spotter = model.spotters.get(SpotterPolicy.Default)
+
+    val paragraphs = scala.io.Source.fromFile(args(1)).getLines().filter(_.trim.nonEmpty).map { line: String =>
+      val text = new Text(line)
+      model.tokenizer.tokenizeMaybe(text)
+      Factory.paragraph().fromJ(spotter.extract(text))
+    }.toList
+
+    SpotlightLog.info(this.getClass, "Read %d paragraphs.", paragraphs.size)
+
+    def run(k: Int, prune: Boolean) = {
+      disambiguator.pruneCandidates = prune
+
+      //Warm-up:
+      paragraphs.foreach(disambiguator.bestK(_, k))
+
+      disambiguator.scoredCandidates.set(0)
+      disambiguator.skippedCandidates.set(0)
+
+      val start = System.nanoTime()
+      val results = paragraphs.map { p: Paragraph =>
+        disambiguator.bestK(p, k).toList.sortBy(_._1.textOffset).map { case (sfOcc, occs) =>
+          (sfOcc.textOffset, occs.map(o => (o.resource.uri, o.similarityScore)))
+        }
+      }
+      val t = (System.nanoTime() - start) / 1000000.0 / paragraphs.size
+
+      SpotlightLog.info(this.getClass, "k=%d, %s: %.3f ms per paragraph, %d candidates scored, %d candidates skipped",
+        k, if (prune) "pruned" else "exhaustive", t, disambiguator.scoredCandidates.get(), disambiguator.skippedCandidates.get())
+      results
+    }
+
+    List(1, disambiguator.MAX_CANDIDATES, 100).foreach { k: Int =>
+      val exhaustive = run(k, prune = false)
+      val pruned = run(k, prune = true)
+
+      if (exhaustive != pruned)
+        SpotlightLog.error(this.getClass, "k=%d: pruned scoring returned different results!", k)
+    }
+  }
+
+}
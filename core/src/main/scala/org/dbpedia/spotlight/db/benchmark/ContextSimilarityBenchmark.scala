@@ -0,0 +1,99 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.db.memory.MemoryStore
+import org.dbpedia.spotlight.db.model.TokenCounts
+import org.dbpedia.spotlight.db.similarity.GenerativeContextSimilarity
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
+import scala.util.Random
+
+/**
+ * Measures the time for scoring the context of a paragraph with the generative context similarity,
+ * once with the log probabilities computed for each token (the Map-based per-token computation
+ * using p and pLM) and once with the precomputed log probability tables on token counts.
+ *
+ * A simulated paragraph has a context of QUERY_TOKENS tokens, drawn from the contexts of its
+ * CANDIDATES_PER_PARAGRAPH candidates. The contexts are read before the time is measured, so only
+ * the scoring itself (including the NIL score) is compared.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.ContextSimilarityBenchmark -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object ContextSimilarityBenchmark {
+
+  val CANDIDATES_PER_PARAGRAPH = 400
+  val QUERY_TOKENS = 250
+  val PARAGRAPHS = 200
+
+  class Paragraph(val query: Seq[TokenType], val resources: Array[DBpediaResource])
+
+  def timePerParagraph(name: String, paragraphs: Seq[Paragraph])(score: Paragraph => Double): Double = {
+    var checksum = 0.0
+
+    //Warm-up:
+    paragraphs.foreach { p: Paragraph => checksum += score(p) }
+
+    val start = System.nanoTime()
+    paragraphs.foreach { p: Paragraph => checksum += score(p) }
+    val t = (System.nanoTime() - start) / 1000000.0 / paragraphs.size
+
+    SpotlightLog.info(this.getClass, "%s: %.3f ms per paragraph (checksum %.2f)", name, t, checksum)
+    t
+  }
+
+  def main(args: Array[String]) {
+    val modelDataFolder = new File(args(0), "model")
+
+    val tokenStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
+    val contextStore = MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenStore)
+
+    val start = System.nanoTime()
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+    SpotlightLog.info(this.getClass, "Precomputed LM tables for %d tokens in %d ms.", tokenStore.getVocabularySize, (System.nanoTime() - start) / 1000000)
+
+    val random = new Random(42)
+    val withContext = (0 until contextStore.size).filter(contextStore.tokens(_) != null).toArray
+
+    def resource(id: Int) = {
+      val res = new DBpediaResource("R" + id)
+      res.id = id
+      res
+    }
+
+    val paragraphs = (1 to PARAGRAPHS).map { _ =>
+      val resources = Array.fill(CANDIDATES_PER_PARAGRAPH)(resource(withContext(random.nextInt(withContext.length)))).distinct
+      val query = (1 to QUERY_TOKENS).map { _ =>
+        val context = contextStore.tokens(resources(random.nextInt(resources.length)).id)
+        tokenStore.getTokenTypeByID(context(random.nextInt(context.length)))
+      }
+      new Paragraph(query, resources)
+    }
+
+    //Per-token log probabilities on Maps:
+    val contextMaps = paragraphs.map(_.resources.map(contextStore.getContextCounts(_)))
+    val maps = paragraphs.zip(contextMaps).toMap
+    val perToken = timePerParagraph("Per-token log probabilities", paragraphs) { p: Paragraph =>
+      val query = p.query.groupBy(identity).mapValues(_.size)
+      val nil = query.map { case (t, c) => math.log(c) + math.log(1 - similarity.lambda) + similarity.pLM(t) }.sum
+
+      p.resources.zip(maps(p)).map { case (res, context) =>
+        query.map { case (t, c) => math.log(c) + similarity.p(t, res, context, contextStore.getTotalTokenCount(res)) }.sum
+      }.sum + nil
+    }
+
+    //Precomputed log probability tables on token counts:
+    val contextCounts = paragraphs.map { p: Paragraph => p -> p.resources.map(contextStore.getContextTokenCounts(_)) }.toMap
+    val precomputed = timePerParagraph("Precomputed log probabilities", paragraphs) { p: Paragraph =>
+      val query = TokenCounts.fromTokenTypes(p.query)
+      similarity.score(query, contextCounts(p), p.resources.map(contextStore.getTotalTokenCount(_))).sum + similarity.nilScore(query)
+    }
+
+    SpotlightLog.info(this.getClass, "Speedup: %.1fx", perToken / precomputed)
+  }
+
+}
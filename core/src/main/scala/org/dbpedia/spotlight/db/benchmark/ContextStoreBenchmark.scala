@@ -0,0 +1,101 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.db.memory.{MemoryCompressedContextStore, MemoryStore}
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.DBpediaResource
+import scala.util.Random
+
+/**
+ * Compares the memory consumption and the decoding cost of the uncompressed context
+ * store (context.mem) and the compressed context store.
+ *
+ * A simulated request reads the contexts of CANDIDATES_PER_REQUEST random resources, which
+ * is roughly the number of candidates of a paragraph with 20 surface forms. The benchmark reports
+ * the time per request for reading the raw tokens and counts (array store vs. cursor), for
+ * creating context maps and for creating the token counts used by the context similarity.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.ContextStoreBenchmark -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object ContextStoreBenchmark {
+
+  val CANDIDATES_PER_REQUEST = 400
+  val REQUESTS = 1000
+
+  def usedMemory(): Long = {
+    (1 to 3).foreach(_ => System.gc())
+    Runtime.getRuntime.totalMemory - Runtime.getRuntime.freeMemory
+  }
+
+  def timePerRequest(name: String, requests: Seq[Array[Int]])(read: Int => Long) {
+    var checksum = 0L
+
+    //Warm-up:
+    requests.foreach(_.foreach { id: Int => checksum += read(id) })
+
+    val start = System.nanoTime()
+    requests.foreach(_.foreach { id: Int => checksum += read(id) })
+    val t = System.nanoTime() - start
+
+    SpotlightLog.info(this.getClass, "%s: %.3f ms per request (checksum %d)", name, t / 1000000.0 / requests.size, checksum)
+  }
+
+  def main(args: Array[String]) {
+    val modelDataFolder = new File(args(0), "model")
+
+    val tokenStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
+
+    var before = usedMemory()
+    val contextStore = MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenStore)
+    SpotlightLog.info(this.getClass, "Context store: %d MB", (usedMemory() - before) / (1024 * 1024))
+
+    before = usedMemory()
+    val compressedStore = MemoryCompressedContextStore.fromContextStore(contextStore)
+    compressedStore.tokenStore = tokenStore
+    SpotlightLog.info(this.getClass, "Compressed context store: %d MB", (usedMemory() - before) / (1024 * 1024))
+
+    val random = new Random(42)
+    val withContext = (0 until contextStore.size).filter(contextStore.tokens(_) != null).toArray
+    val requests = (1 to REQUESTS).map { _ =>
+      Array.fill(CANDIDATES_PER_REQUEST)(withContext(random.nextInt(withContext.length)))
+    }
+
+    timePerRequest("Arrays", requests) { id: Int =>
+      val counts = contextStore.counts(id)
+      var sum = 0L
+      var j = 0
+      while (j < counts.length) {
+        sum += contextStore.tokens(id)(j) + counts(j)
+        j += 1
+      }
+      sum
+    }
+
+    val cursor = compressedStore.cursor()
+    timePerRequest("Compressed (cursor)", requests) { id: Int =>
+      var sum = 0L
+      cursor.reset(id)
+      while (cursor.next())
+        sum += cursor.token + cursor.count
+      sum
+    }
+
+    def resource(id: Int) = {
+      val res = new DBpediaResource("")
+      res.id = id
+      res
+    }
+
+    timePerRequest("Arrays (context map)", requests) { id: Int => contextStore.getContextCounts(resource(id)).size }
+    timePerRequest("Compressed (context map)", requests) { id: Int => compressedStore.getContextCounts(resource(id)).size }
+
+    timePerRequest("Arrays (token counts)", requests) { id: Int => contextStore.getContextTokenCounts(resource(id)).length }
+    timePerRequest("Compressed (token counts)", requests) { id: Int => compressedStore.getContextTokenCounts(resource(id)).length }
+  }
+
+}
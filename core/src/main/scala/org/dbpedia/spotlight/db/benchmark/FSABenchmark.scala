@@ -0,0 +1,119 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.db.{FSASpotter, DoubleArrayFSA, FSADictionary}
+import org.dbpedia.spotlight.db.memory.MemoryStore
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.util.Random
+
+/**
+ * Compares the number of tokens per second the FSA dictionary (binary search over the transitions
+ * of each state) and the double-array trie can process in the traversal of the FSASpotter.
+ *
+ * The simulated sentences consist of surface forms (random paths through the dictionary) and
+ * random tokens, so that the traversal both follows long paths and rejects early.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.FSABenchmark -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object FSABenchmark {
+
+  val SENTENCES = 100000
+  val SENTENCE_LENGTH = 25
+  val ITERATIONS = 5
+
+  //Random path through the dictionary from the initial state:
+  def randomSurfaceForm(dict: FSADictionary, random: Random): List[Int] = {
+    var state = FSASpotter.INITIAL_STATE
+    var tokens = List[Int]()
+    while (state >= 0 && dict.transitionsTokens(state).length > 0 && (tokens.isEmpty || random.nextBoolean())) {
+      val i = random.nextInt(dict.transitionsTokens(state).length)
+      tokens ::= dict.transitionsTokens(state)(i)
+      state = dict.transitionsStates(state)(i)
+    }
+    tokens.reverse
+  }
+
+  def spotsDictionary(dict: FSADictionary, ids: Array[Int]): Int = {
+    var spots = 0
+    var i = 0
+    while (i < ids.length) {
+      var currentState = FSASpotter.INITIAL_STATE
+      var j = i
+      do {
+        val (endState, nextState) = dict.next(currentState, ids(j))
+        if (endState == FSASpotter.ACCEPTING_STATE)
+          spots += 1
+        currentState = nextState
+        j += 1
+      } while (currentState != FSASpotter.REJECTING_STATE && j < ids.length)
+      i += 1
+    }
+    spots
+  }
+
+  def spotsDoubleArray(fsa: DoubleArrayFSA, ids: Array[Int]): Int = {
+    var spots = 0
+    var i = 0
+    while (i < ids.length) {
+      var currentState = DoubleArrayFSA.INITIAL_STATE
+      var transition = DoubleArrayFSA.REJECT
+      var j = i
+      do {
+        transition = fsa.next(currentState, ids(j))
+        if (transition != DoubleArrayFSA.REJECT && DoubleArrayFSA.isAccepting(transition))
+          spots += 1
+        currentState = DoubleArrayFSA.state(transition)
+        j += 1
+      } while (transition != DoubleArrayFSA.REJECT && j < ids.length)
+      i += 1
+    }
+    spots
+  }
+
+  def tokensPerSecond(name: String, sentences: Seq[Array[Int]])(spots: Array[Int] => Int) {
+    val tokens = sentences.map(_.length).sum.toLong
+    var found = 0L
+
+    //Warm-up:
+    sentences.foreach(s => found += spots(s))
+
+    val start = System.nanoTime()
+    (1 to ITERATIONS).foreach(_ => sentences.foreach(s => found += spots(s)))
+    val t = System.nanoTime() - start
+
+    SpotlightLog.info(this.getClass, "%s: %.0f tokens/s (%d spots)", name, tokens * ITERATIONS / (t / 1000000000.0), found / (ITERATIONS + 1))
+  }
+
+  def main(args: Array[String]) {
+    val modelFolder = new File(args(0))
+
+    val dict = MemoryStore.loadFSADictionary(new FileInputStream(new File(modelFolder, "fsa_dict.mem")))
+
+    val start = System.currentTimeMillis()
+    val fsa = DoubleArrayFSA.fromDictionary(dict)
+    SpotlightLog.info(this.getClass, "Compiled the double-array trie in %d ms.", System.currentTimeMillis() - start)
+
+    val random = new Random(42)
+    val maxToken = dict.transitionsTokens(FSASpotter.INITIAL_STATE).max + 1
+
+    val sentences = (1 to SENTENCES).map { _ =>
+      var sentence = List[Int]()
+      while (sentence.length < SENTENCE_LENGTH) {
+        if (random.nextInt(4) == 0)
+          sentence ++= randomSurfaceForm(dict, random)
+        else
+          sentence :+= random.nextInt(maxToken)
+      }
+      sentence.toArray
+    }
+
+    tokensPerSecond("FSA dictionary", sentences) { ids: Array[Int] => spotsDictionary(dict, ids) }
+    tokensPerSecond("Double-array trie", sentences) { ids: Array[Int] => spotsDoubleArray(fsa, ids) }
+  }
+
+}
@@ -0,0 +1,88 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.db.memory.MemoryStore
+import org.dbpedia.spotlight.db.memory.util.{StringPool, StringToIDMapFactory}
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.util.Random
+
+/**
+ * Compares the reverse lookups (String to ID) for the surface form and token type stores
+ * of a model: the fastutil map, the hash table over the string pool (.idx) and the
+ * minimal perfect hash function (.mph).
+ *
+ * For each lookup, the benchmark reports the resident size (heap growth after creating the
+ * lookup) and the average latency for known and for unknown keys.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.ReverseLookupBenchmark -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object ReverseLookupBenchmark {
+
+  val QUERIES = 1000000
+  val ROUNDS  = 5
+
+  def usedMemory(): Long = {
+    (1 to 3).foreach(_ => System.gc())
+    Runtime.getRuntime.totalMemory - Runtime.getRuntime.freeMemory
+  }
+
+  def benchmark(storeName: String, keys: StringPool) {
+
+    val random = new Random(42)
+    val known   = (1 to QUERIES).map(_ => keys(random.nextInt(keys.length))).filter(_ != null).toArray
+    val unknown = known.map(_ + "\u0000")
+
+    def run(lookupName: String, create: => java.util.Map[String, java.lang.Integer]) {
+      val before = usedMemory()
+      val sStart = System.currentTimeMillis()
+      val lookup = create
+      val buildTime = System.currentTimeMillis() - sStart
+      val size = usedMemory() - before
+
+      def latency(queries: Array[String]): Double = {
+        var found = 0
+        var best = Long.MaxValue
+        (1 to ROUNDS).foreach { _ =>
+          val start = System.nanoTime()
+          var i = 0
+          while (i < queries.length) {
+            if (lookup.get(queries(i)) != null)
+              found += 1
+            i += 1
+          }
+          best = math.min(best, System.nanoTime() - start)
+        }
+        best.toDouble / queries.length
+      }
+
+      SpotlightLog.info(this.getClass, "%s, %s: size %d MB, built in %d ms, %.1f ns/lookup (known), %.1f ns/lookup (unknown)",
+        storeName, lookupName, size / (1024 * 1024), buildTime, latency(known), latency(unknown))
+    }
+
+    run("fastutil", {
+      val m = StringToIDMapFactory.createFastUtil(keys.length)
+      var i = 0
+      while (i < keys.length) {
+        if (!keys.isNull(i))
+          m.put(keys(i), i)
+        i += 1
+      }
+      m
+    })
+    run("hash table", StringToIDMapFactory.createHashTable(keys))
+    run("perfect hash", StringToIDMapFactory.createPerfectHash(keys))
+  }
+
+  def main(args: Array[String]) {
+    val modelDataFolder = new File(args(0), "model")
+
+    benchmark("sf", MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem"))).stringForID)
+    benchmark("tokens", MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem"))).tokenForId)
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import org.dbpedia.spotlight.db.DBSpotter
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model._
+import opennlp.tools.util.Span
+import scala.util.Random
+
+/**
+ * Measures the time for resolving overlapping spots (DBSpotter.dropOverlappingSpots) in
+ * synthetic documents of DOCUMENT_TOKENS tokens. Every token starts SPOTS_PER_TOKEN spots of
+ * one to five tokens, hence most spots overlap with their neighbours.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.SpotOverlapBenchmark
+ *
+ * @author Joachim Daiber
+ */
+
+object SpotOverlapBenchmark {
+
+  val DOCUMENT_TOKENS = 10000
+  val SPOTS_PER_TOKEN = 2
+  val DOCUMENTS = 20
+
+  def document(random: Random): Seq[SurfaceFormOccurrence] = {
+    val tokens = (1 to DOCUMENT_TOKENS).map(_ => (1 to 2 + random.nextInt(8)).map(_ => ('a' + random.nextInt(26)).toChar).mkString)
+    val text = new Text(tokens.mkString(" "))
+
+    val offsets = tokens.scanLeft(0)(_ + _.length + 1)
+
+    (0 until DOCUMENT_TOKENS).flatMap { i: Int =>
+      (1 to SPOTS_PER_TOKEN).map { _ =>
+        val end = math.min(DOCUMENT_TOKENS, i + 1 + random.nextInt(5))
+        val spot = new SurfaceFormOccurrence(
+          new SurfaceForm(text.text.substring(offsets(i), offsets(end) - 1)),
+          text,
+          offsets(i),
+          Provenance.Annotation,
+          random.nextDouble()
+        )
+        spot.setFeature(new Nominal("spot_type", if (random.nextBoolean()) "Capital_Sequences" else "m"))
+        spot
+      }
+    }.toList
+  }
+
+  def main(args: Array[String]) {
+    val spotter = new DBSpotter(null, None, Set[String]()) {
+      def generateCandidates(sentence: List[Token]) = Seq[Span]()
+      def typeOrder = Array("Capital_Sequences", "m")
+      def getName = "SpotOverlapBenchmark"
+      def setName(name: String) {}
+    }
+
+    val random = new Random(42)
+    val documents = (1 to DOCUMENTS).map(_ => document(random))
+
+    //Warm-up:
+    documents.foreach(spotter.dropOverlappingSpots(_))
+
+    var kept = 0L
+    val start = System.nanoTime()
+    documents.foreach { spots: Seq[SurfaceFormOccurrence] => kept += spotter.dropOverlappingSpots(spots).size }
+    val t = System.nanoTime() - start
+
+    SpotlightLog.info(this.getClass, "%d spots per document, %.3f ms per document (%d spots kept)",
+      DOCUMENT_TOKENS * SPOTS_PER_TOKEN, t / 1000000.0 / DOCUMENTS, kept / DOCUMENTS)
+  }
+
+}
@@ -0,0 +1,95 @@
+package org.dbpedia.spotlight.db.benchmark
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.db.memory.MemoryStore
+import org.dbpedia.spotlight.db.model.TokenCounts
+import org.dbpedia.spotlight.db.similarity.TFICFSimilarity
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
+import scala.util.Random
+
+/**
+ * Measures the time for scoring the context of a paragraph with the TF-ICF similarity, once
+ * per token with tficf (which scans all candidate contexts for the ICF of each token and candidate)
+ * and once with the sparse scoring on token counts, for queries of 50, 200 and 1000 tokens.
+ *
+ * A simulated paragraph has CANDIDATES_PER_PARAGRAPH candidates, its query tokens are drawn from
+ * their contexts. The contexts are read before the time is measured.
+ *
+ * Usage:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.benchmark.TFICFSimilarityBenchmark -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object TFICFSimilarityBenchmark {
+
+  val CANDIDATES_PER_PARAGRAPH = 100
+  val QUERY_TOKENS = List(50, 200, 1000)
+  val PARAGRAPHS = 20
+
+  class Paragraph(val query: Seq[TokenType], val resources: Array[DBpediaResource])
+
+  def main(args: Array[String]) {
+    val modelDataFolder = new File(args(0), "model")
+
+    val tokenStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
+    val contextStore = MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenStore)
+
+    val similarity = new TFICFSimilarity()
+    val random = new Random(42)
+    val withContext = (0 until contextStore.size).filter(contextStore.tokens(_) != null).toArray
+
+    def resource(id: Int) = {
+      val res = new DBpediaResource("R" + id)
+      res.id = id
+      res
+    }
+
+    QUERY_TOKENS.foreach { queryTokens: Int =>
+
+      val paragraphs = (1 to PARAGRAPHS).map { _ =>
+        val resources = Array.fill(CANDIDATES_PER_PARAGRAPH)(resource(withContext(random.nextInt(withContext.length)))).distinct
+        val query = (1 to queryTokens).map { _ =>
+          val context = contextStore.tokens(resources(random.nextInt(resources.length)).id)
+          tokenStore.getTokenTypeByID(context(random.nextInt(context.length)))
+        }
+        new Paragraph(query, resources)
+      }
+
+      val contextMaps = paragraphs.map { p: Paragraph => p -> p.resources.map(contextStore.getContextCounts(_)) }.toMap
+      val contextCounts = paragraphs.map { p: Paragraph => p -> p.resources.map(contextStore.getContextTokenCounts(_)) }.toMap
+
+      def time(name: String)(score: Paragraph => Array[Double]): (Double, Seq[Array[Double]]) = {
+        //Warm-up:
+        paragraphs.foreach(score)
+
+        val start = System.nanoTime()
+        val scores = paragraphs.map(score)
+        val t = (System.nanoTime() - start) / 1000000.0 / paragraphs.size
+
+        SpotlightLog.info(this.getClass, "%d query tokens, %s: %.3f ms per paragraph", queryTokens, name, t)
+        (t, scores)
+      }
+
+      //Per-token TF-ICF on Maps:
+      val (perToken, expected) = time("per-token") { p: Paragraph =>
+        val queryTokenTypes = p.query.toSet
+        val allDocs = contextMaps(p).toIterable
+        contextMaps(p).map { context: java.util.Map[TokenType, Int] =>
+          queryTokenTypes.toList.map(similarity.tficf(_, context, allDocs)).sum / similarity.norm(context)
+        }
+      }
+
+      //Sparse scoring on token counts:
+      val (sparse, actual) = time("sparse") { p: Paragraph =>
+        similarity.score(TokenCounts.fromTokenTypes(p.query), contextCounts(p), Array.fill(p.resources.length)(0))
+      }
+
+      val maxError = expected.zip(actual).flatMap { case (e, a) => e.zip(a).map { case (x, y) => math.abs(x - y) } }.max
+      SpotlightLog.info(this.getClass, "%d query tokens: speedup %.1fx, maximum difference %.2e", queryTokens, perToken / sparse, maxError)
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+package org.dbpedia.spotlight.db.concurrent
+
+import java.io.IOException
+import java.util.concurrent.{CopyOnWriteArrayList, ConcurrentLinkedQueue}
+import scala.collection.JavaConverters._
+
+/**
+ * A pool of instances that are not thread-safe (e.g. OpenNLP tokenizers and spotters).
+ *
+ * An instance is borrowed by the calling thread for the duration of a single call and
+ * returned to the pool afterwards, hence every instance is only used by one thread at a time.
+ * If all instances are in use, a new instance is created, so the number of instances grows
+ * with the number of threads using the pool concurrently. Borrowing and returning an instance
+ * is lock-free, only the creation of new instances is synchronized.
+ *
+ * An instance that fails unexpectedly is not returned to the pool (see [[org.dbpedia.spotlight.db.concurrent.InstancePool.isFailure]]),
+ * an instance that rejects its input is.
+ *
+ * @author Joachim Daiber
+ */
+
+class InstancePool[T <: AnyRef](create: => T, initialSize: Int = 1) {
+
+  private val idle = new ConcurrentLinkedQueue[T]()
+  private val all = new CopyOnWriteArrayList[T]()
+  private var setups = List[T => Unit]()
+
+  (1 to initialSize).foreach(_ => idle.offer(newInstance()))
+
+  private def newInstance(): T = this.synchronized {
+    val instance = create
+    setups.foreach(_(instance))
+    all.add(instance)
+    instance
+  }
+
+  def borrow(): T = {
+    val instance = idle.poll()
+    if (instance != null) instance else newInstance()
+  }
+
+  def release(instance: T) {
+    idle.offer(instance)
+  }
+
+  /**
+   * Removes an instance that may be in an inconsistent state from the pool.
+   */
+  def discard(instance: T) {
+    all.remove(instance)
+  }
+
+  /**
+   * Runs f with an instance that is not used by any other thread.
+   */
+  def apply[R](f: T => R): R = {
+    val instance = borrow()
+    val result = try {
+      f(instance)
+    } catch {
+      case e: Throwable => {
+        if (InstancePool.isFailure(e))
+          discard(instance)
+        else
+          release(instance)
+        throw e
+      }
+    }
+    release(instance)
+    result
+  }
+
+  /**
+   * Applies f to all current instances and all instances that are created later.
+   */
+  def configure(f: T => Unit) {
+    this.synchronized {
+      setups :+= f
+      all.asScala.foreach(f)
+    }
+  }
+
+  /**
+   * All instances that have been created and not been discarded.
+   */
+  def instances: Seq[T] = all.asScala.toList
+
+  def size: Int = all.size
+
+  /**
+   * Removes all instances from the pool.
+   */
+  def clear() {
+    idle.clear()
+    all.clear()
+  }
+
+}
+
+object InstancePool {
+
+  /**
+   * Whether an instance that threw the exception may be broken. Unexpected runtime exceptions, errors and
+   * IOExceptions (the instances were restarted for these by the previous actor-based wrappers) are failures,
+   * checked exceptions and invalid arguments only concern the input.
+   */
+  def isFailure(e: Throwable): Boolean = e match {
+    case _: IllegalArgumentException => false
+    case _: RuntimeException => true
+    case _: Error => true
+    case _: IOException => true
+    case _ => false
+  }
+
+}
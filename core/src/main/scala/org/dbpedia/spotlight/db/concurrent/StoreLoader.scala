@@ -0,0 +1,64 @@
+package org.dbpedia.spotlight.db.concurrent
+
+import java.util.concurrent.{ExecutionException, Future, Callable, Executors}
+import org.dbpedia.spotlight.log.SpotlightLog
+import collection.mutable
+
+/**
+ * Loads model stores concurrently on a bounded thread pool.
+ *
+ * Each store is loaded (including its loaded() hook, e.g. building the reverse lookup)
+ * in its own task. Tasks are started in the order they were submitted, so a task may
+ * wait for a store that was submitted before it without blocking the pool.
+ *
+ * @author Joachim Daiber
+ */
+
+class StoreLoader(threads: Int) {
+
+  private val pool = Executors.newFixedThreadPool(threads)
+  private val timings = mutable.LinkedHashMap[String, Long]()
+  private val start = System.currentTimeMillis()
+
+  def submit[T](name: String)(load: => T): Future[T] = {
+    pool.submit(new Callable[T] {
+      def call(): T = {
+        val sStart = System.currentTimeMillis()
+        val s = load
+        val t = System.currentTimeMillis() - sStart
+
+        timings.synchronized { timings.put(name, t) }
+        SpotlightLog.info(StoreLoader.this.getClass, "Loaded %s (%d ms)", name, t)
+        s
+      }
+    })
+  }
+
+  /**
+   * Waits for the store to be loaded. Exceptions thrown while loading the store are re-thrown.
+   */
+  def get[T](store: Future[T]): T = {
+    try {
+      store.get()
+    } catch {
+      case e: ExecutionException => throw e.getCause
+    }
+  }
+
+  /**
+   * Shuts down the thread pool and reports the time it took to load each store.
+   */
+  def shutdown() {
+    pool.shutdownNow()
+
+    timings.synchronized {
+      SpotlightLog.info(this.getClass, "Loaded %d stores in %d ms (%s, sum: %d ms).",
+        timings.size,
+        System.currentTimeMillis() - start,
+        timings.map{ case (name, t) => "%s: %d ms".format(name, t) }.mkString(", "),
+        timings.values.sum
+      )
+    }
+  }
+
+}
@@ -1,48 +1,25 @@
 package org.dbpedia.spotlight.db.concurrent
 
-import java.io.IOException
 import org.dbpedia.spotlight.model.{Token, Text}
-import akka.actor.{OneForOneStrategy, Props, ActorSystem, Actor}
-import akka.routing.SmallestMailboxRouter
-import akka.actor.SupervisorStrategy.Restart
-import akka.dispatch.Await
-import akka.util
-import akka.util.duration._
-import akka.pattern.ask
-import org.apache.commons.lang.NotImplementedException
-import org.dbpedia.spotlight.db.tokenize.BaseTextTokenizer
 import org.dbpedia.spotlight.db.model.{StringTokenizer, TextTokenizer}
 
 /**
- * A Wrapper for Tokenizer workers.
+ * A Wrapper for Tokenizers that are not thread-safe. Each text is tokenized on the
+ * calling thread with a tokenizer from an [[org.dbpedia.spotlight.db.concurrent.InstancePool]].
  *
  * @author Joachim Daiber
  */
 
-class TokenizerWrapper(val tokenizers: Seq[TextTokenizer]) extends TextTokenizer {
+class TokenizerWrapper(createTokenizer: => TextTokenizer, initialSize: Int = 1) extends TextTokenizer {
 
-  var requestTimeout = 60
+  val pool = new InstancePool[TextTokenizer](createTokenizer, initialSize)
 
-  val system = ActorSystem()
-  val workers = tokenizers.map { case tokenizer: TextTokenizer =>
-    system.actorOf(Props(new TokenizerActor(tokenizer)))
-  }.seq
+  def tokenizers: Seq[TextTokenizer] = pool.instances
 
-  def size: Int = tokenizers.size
-
-  val router = system.actorOf(Props[TokenizerActor].withRouter(
-    SmallestMailboxRouter(routees = workers).withSupervisorStrategy(
-      OneForOneStrategy(maxNrOfRetries = 10) {
-        case _: IOException => Restart
-      })
-  )
-  )
-
-  implicit val timeout = util.Timeout(requestTimeout seconds)
+  def size: Int = pool.size
 
   override def tokenizeMaybe(text: Text) {
-    val futureResult = router ? TokenizerRequest(text)
-    Await.result(futureResult, timeout.duration)
+    pool(_.tokenizeMaybe(text))
   }
 
   override def tokenize(text: Text): List[Token] = {
@@ -50,32 +27,10 @@ class TokenizerWrapper(val tokenizers: Seq[TextTokenizer]) extends TextTokenizer
     text.featureValue[List[Token]]("tokens").get
   }
 
-  def tokenizeRaw(text: String): Seq[String] = {
-    throw new NotImplementedException()
-  }
-
   def close() {
-    system.shutdown()
+    pool.clear()
   }
 
-  def getStringTokenizer: StringTokenizer = tokenizers.head.getStringTokenizer
-
-}
-
-class TokenizerActor(val tokenizer: TextTokenizer) extends Actor {
-
-  def receive = {
-    case TokenizerRequest(text) => {
-      try {
-        sender ! tokenizer.tokenizeMaybe(text)
-
-      } catch {
-        case e: NullPointerException => throw new IOException("Could not tokenize.")
-      }
-    }
-  }
+  def getStringTokenizer: StringTokenizer = pool(_.getStringTokenizer)
 
 }
-
-
-case class TokenizerRequest(text: Text)
@@ -1,11 +1,17 @@
 package org.dbpedia.spotlight.db.memory
 
 import org.dbpedia.spotlight.model.{Candidate, SurfaceForm}
-import org.dbpedia.spotlight.db.model.{ResourceStore, CandidateMapStore}
+import org.dbpedia.spotlight.db.model.{CandidateSlice, ResourceStore, CandidateMapStore}
+import org.dbpedia.spotlight.log.SpotlightLog
 import scala.Array
 
 /**
+ * A memory-based candidate map store.
  *
+ * The candidates are stored in compressed sparse row layout: the candidates of the surface
+ * form with ID i are resourceIDs(offsets(i)) to resourceIDs(offsets(i+1)-1) with the counts
+ * at the same positions in counts. Within a surface form, the candidates are sorted
+ * by decreasing count at indexing time, hence the top n candidates are a slice of the arrays.
  *
  * @author Joachim Daiber
  */
@@ -15,22 +21,85 @@ class MemoryCandidateMapStore
   extends MemoryStore
   with CandidateMapStore {
 
-  var candidates      = Array[Array[Int]]()
-  var candidateCounts = Array[Array[Int]]()
+  var offsets: Array[Int]     = null
+  var resourceIDs: Array[Int] = null
+  var counts: Array[Int]      = null
 
-  def size = candidates.size
+  //Candidates of models created before the sparse row layout (one array per surface form),
+  //these are converted when the store is loaded:
+  var candidates: Array[Array[Int]]      = null
+  var candidateCounts: Array[Array[Int]] = null
+
+  def size = offsets.length - 1
 
   @transient
   var resourceStore: ResourceStore = null
 
+  override def loaded() {
+    if (offsets == null && candidates != null) {
+      SpotlightLog.info(this.getClass, "Converting candidates to sparse row layout...")
+      MemoryCandidateMapStore.pack(this, candidates, candidateCounts)
+      candidates = null
+      candidateCounts = null
+    }
+  }
+
+  def getTopCandidateIDs(surfaceformID: Int, n: Int): CandidateSlice = {
+    if (surfaceformID < 0 || surfaceformID >= size)
+      CandidateSlice.empty
+    else
+      new CandidateSlice(
+        resourceIDs,
+        counts,
+        offsets(surfaceformID),
+        math.min(n, offsets(surfaceformID+1) - offsets(surfaceformID))
+      )
+  }
+
   def getCandidates(surfaceform: SurfaceForm): Set[Candidate] = {
-    try {
-      candidates(surfaceform.id).zip(candidateCounts(surfaceform.id)).map {
-            case (resID, count) => new Candidate(surfaceform, resourceStore.getResource(resID), count)
-      }.toSet
-    } catch {
-      case e: NullPointerException => Set[Candidate]()
+    val slice = getTopCandidateIDs(surfaceform.id, Int.MaxValue)
+
+    (0 until slice.length).map { i: Int =>
+      new Candidate(surfaceform, resourceStore.getResource(slice.resourceID(i)), slice.count(i))
+    }.toSet
+  }
+
+}
+
+object MemoryCandidateMapStore {
+
+  /**
+   * Packs the candidates (one array of resource IDs and counts per surface form, may be null)
+   * into the sparse row layout of the store, sorted by decreasing count.
+   */
+  def pack(store: MemoryCandidateMapStore, candidates: Array[Array[Int]], counts: Array[Array[Int]]) {
+    val offsets = new Array[Int](candidates.length + 1)
+    var i = 0
+    while (i < candidates.length) {
+      offsets(i+1) = offsets(i) + (if (candidates(i) == null) 0 else candidates(i).length)
+      i += 1
     }
+
+    val resourceIDs   = new Array[Int](offsets.last)
+    val sortedCounts  = new Array[Int](offsets.last)
+
+    i = 0
+    while (i < candidates.length) {
+      if (candidates(i) != null) {
+        val row = candidates(i).zip(counts(i)).sortBy { case (id, count) => (-count, id) }
+        var j = 0
+        while (j < row.length) {
+          resourceIDs(offsets(i) + j)  = row(j)._1
+          sortedCounts(offsets(i) + j) = row(j)._2
+          j += 1
+        }
+      }
+      i += 1
+    }
+
+    store.offsets = offsets
+    store.resourceIDs = resourceIDs
+    store.counts = sortedCounts
   }
 
 }
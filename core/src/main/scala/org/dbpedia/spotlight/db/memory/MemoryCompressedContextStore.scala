@@ -0,0 +1,321 @@
+package org.dbpedia.spotlight.db.memory
+
+import java.io.{FileInputStream, File, ByteArrayOutputStream}
+import java.util.{Map, HashMap}
+import org.dbpedia.spotlight.db.model.{TokenCounts, TokenTypeStore, ContextStore}
+import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
+import org.dbpedia.spotlight.log.SpotlightLog
+import com.esotericsoftware.kryo.io.{Input, Output}
+import org.apache.commons.lang.NotImplementedException
+import com.esotericsoftware.kryo.{KryoException, Kryo, KryoSerializable}
+import collection.mutable.ArrayBuffer
+
+/**
+ * A compressed variant of the [[org.dbpedia.spotlight.db.memory.MemoryContextStore]].
+ *
+ * The context of a resource is stored as a sequence of bytes:
+ *
+ *  - the number of tokens n and the length of the token section in bytes (variable-byte encoded)
+ *  - the token IDs, sorted and delta-encoded (variable-byte encoded)
+ *  - the counts, 2 bits per count: the codes 0-2 are the counts 1-3, code 3 marks a larger count
+ *  - the larger counts - 4 (variable-byte encoded)
+ *
+ * The contexts of all resources are stored in a few large byte arrays (blocks), a resource
+ * never spans two blocks. A context is decoded with a [[org.dbpedia.spotlight.db.memory.ContextCursor]],
+ * which returns the tokens in the order of their IDs without creating any objects.
+ *
+ * @author Joachim Daiber
+ */
+
+@SerialVersionUID(1007002)
+class MemoryCompressedContextStore
+  extends MemoryStore
+  with ContextStore
+  with KryoSerializable {
+
+  @transient
+  var tokenStore: TokenTypeStore = null
+
+  var blocks: Array[Array[Byte]] = null
+  var offsets: Array[Long] = null
+  var totalTokenCounts: Array[Int] = null
+
+  def size = offsets.length
+
+  /**
+   * Returns a new cursor over the contexts of this store. Cursors are not thread-safe,
+   * but they can be reused for any number of resources.
+   */
+  def cursor(): ContextCursor = new ContextCursor(this)
+
+  def getContextCount(resource: DBpediaResource, token: TokenType): Int = {
+    throw new NotImplementedException()
+  }
+
+  def getTotalTokenCount(resource: DBpediaResource): Int = totalTokenCounts(resource.id)
+
+  def getContextCounts(resource: DBpediaResource): Map[TokenType, Int] = {
+    val contextCounts = new HashMap[TokenType, Int]()
+
+    val c = cursor()
+    c.reset(resource.id)
+    while (c.next())
+      contextCounts.put(tokenStore.getTokenTypeByID(c.token), c.count)
+
+    contextCounts
+  }
+
+  override def getContextTokenCounts(resource: DBpediaResource): TokenCounts = {
+    val c = cursor()
+    c.reset(resource.id)
+
+    val tokens = new Array[Int](c.length)
+    val counts = new Array[Int](c.length)
+    var i = 0
+    while (c.next()) {
+      tokens(i) = c.token
+      counts(i) = c.count
+      i += 1
+    }
+
+    new TokenCounts(tokens, counts)
+  }
+
+  def write(kryo: Kryo, output: Output) {
+    output.writeInt(blocks.length)
+    blocks.foreach { block: Array[Byte] =>
+      output.writeInt(block.length)
+      output.writeBytes(block)
+    }
+
+    output.writeInt(offsets.length)
+    offsets.foreach(output.writeLong(_))
+    totalTokenCounts.foreach(output.writeInt(_))
+
+    output.writeChar('#')
+  }
+
+  def read(kryo: Kryo, input: Input) {
+    blocks = new Array[Array[Byte]](input.readInt())
+    (0 until blocks.length).foreach { b: Int =>
+      blocks(b) = input.readBytes(input.readInt())
+    }
+
+    val size = input.readInt()
+    offsets = new Array[Long](size)
+    totalTokenCounts = new Array[Int](size)
+
+    var i = 0
+    while (i < size) {
+      offsets(i) = input.readLong()
+      i += 1
+    }
+
+    i = 0
+    while (i < size) {
+      totalTokenCounts(i) = input.readInt()
+      i += 1
+    }
+
+    if(input.readChar() != '#')
+      throw new KryoException("Error in deserializing context store...")
+  }
+
+}
+
+
+/**
+ * Sequential decoder for the contexts of a [[org.dbpedia.spotlight.db.memory.MemoryCompressedContextStore]].
+ *
+ * Usage:
+ *
+ * cursor.reset(resourceID)
+ * while (cursor.next()) { ... cursor.token ... cursor.count ... }
+ */
+class ContextCursor(store: MemoryCompressedContextStore) {
+
+  var token = 0
+  var count = 0
+
+  private var block: Array[Byte] = null
+  private var tokenPos = 0
+  private var countPos = 0
+  private var largeCountPos = 0
+  private var i = 0
+  private var n = 0
+
+  /**
+   * Number of tokens in the context of the current resource.
+   */
+  def length: Int = n
+
+  private def readVarInt(start: Int): Long = {
+    var pos = start
+    var b = block(pos)
+    var v = b & 0x7f
+    var shift = 7
+    while (b < 0) {
+      pos += 1
+      b = block(pos)
+      v |= (b & 0x7f) << shift
+      shift += 7
+    }
+    //Value in the lower, new position in the upper 32 bits:
+    (v & 0xffffffffL) | ((pos + 1).toLong << 32)
+  }
+
+  def reset(resourceID: Int) {
+    token = 0
+    count = 0
+    i = 0
+
+    if (resourceID < 0 || resourceID >= store.offsets.length) {
+      n = 0
+      return
+    }
+
+    val offset = store.offsets(resourceID)
+    block = store.blocks((offset >>> MemoryCompressedContextStore.BLOCK_BITS).toInt)
+
+    var r = readVarInt((offset & MemoryCompressedContextStore.BLOCK_MASK).toInt)
+    n = r.toInt
+    r = readVarInt((r >>> 32).toInt)
+    tokenPos = (r >>> 32).toInt
+    countPos = tokenPos + r.toInt
+    largeCountPos = countPos + (n + 3) / 4
+  }
+
+  /**
+   * Moves the cursor to the next token of the context.
+   *
+   * @return false if there are no more tokens
+   */
+  def next(): Boolean = {
+    if (i >= n)
+      return false
+
+    val t = readVarInt(tokenPos)
+    token += t.toInt
+    tokenPos = (t >>> 32).toInt
+
+    val code = (block(countPos + (i >> 2)) >>> ((i & 3) << 1)) & 3
+    if (code == 3) {
+      val c = readVarInt(largeCountPos)
+      count = c.toInt + 4
+      largeCountPos = (c >>> 32).toInt
+    } else {
+      count = code + 1
+    }
+
+    i += 1
+    true
+  }
+
+}
+
+
+object MemoryCompressedContextStore {
+
+  val BLOCK_BITS = 30
+  val BLOCK_SIZE = 1L << BLOCK_BITS
+  val BLOCK_MASK = BLOCK_SIZE - 1
+
+  private def writeVarInt(out: ByteArrayOutputStream, value: Int) {
+    var v = value
+    while ((v & ~0x7f) != 0) {
+      out.write((v & 0x7f) | 0x80)
+      v >>>= 7
+    }
+    out.write(v)
+  }
+
+  /**
+   * Encodes the context of a single resource. The counts are stored as count - 1, hence they must be positive.
+   */
+  def encode(tokens: Array[Int], counts: Array[Int]): Array[Byte] = {
+    val n = if (tokens == null) 0 else tokens.length
+    val order = (0 until n).sortBy(tokens(_))
+
+    order.foreach { j: Int =>
+      require(counts(j) > 0, "Invalid count %d for token %d, context counts must be positive.".format(counts(j), tokens(j)))
+    }
+
+    val tokenBytes = new ByteArrayOutputStream()
+    var last = 0
+    order.foreach { j: Int =>
+      writeVarInt(tokenBytes, tokens(j) - last)
+      last = tokens(j)
+    }
+
+    val packedCounts = new Array[Byte]((n + 3) / 4)
+    val largeCounts = new ByteArrayOutputStream()
+    order.zipWithIndex.foreach { case (j: Int, i: Int) =>
+      val code = if (counts(j) >= 4) 3 else counts(j) - 1
+      packedCounts(i >> 2) = (packedCounts(i >> 2) | (code << ((i & 3) << 1))).toByte
+      if (code == 3)
+        writeVarInt(largeCounts, counts(j) - 4)
+    }
+
+    val out = new ByteArrayOutputStream()
+    writeVarInt(out, n)
+    writeVarInt(out, tokenBytes.size())
+    tokenBytes.writeTo(out)
+    out.write(packedCounts)
+    largeCounts.writeTo(out)
+    out.toByteArray
+  }
+
+  /**
+   * Creates a compressed context store with the same content as the context store.
+   */
+  def fromContextStore(store: MemoryContextStore): MemoryCompressedContextStore = {
+    val compressed = new MemoryCompressedContextStore()
+    compressed.offsets = new Array[Long](store.size)
+    compressed.totalTokenCounts = new Array[Int](store.size)
+
+    val blocks = ArrayBuffer[Array[Byte]]()
+    var block = new ByteArrayOutputStream()
+    var pairs = 0L
+
+    (0 until store.size).foreach { i: Int =>
+      val encoded = encode(store.tokens(i), store.counts(i))
+
+      if (block.size() + encoded.length > BLOCK_SIZE) {
+        blocks += block.toByteArray
+        block = new ByteArrayOutputStream()
+      }
+
+      compressed.offsets(i) = (blocks.size.toLong << BLOCK_BITS) | block.size()
+      block.write(encoded)
+
+      if (store.counts(i) != null) {
+        compressed.totalTokenCounts(i) = store.counts(i).sum
+        pairs += store.counts(i).length
+      }
+    }
+    blocks += block.toByteArray
+    compressed.blocks = blocks.toArray
+
+    val bytes = compressed.blocks.map(_.length.toLong).sum
+    SpotlightLog.info(this.getClass, "Compressed %d context entries to %d MB (%.2f bytes per entry).",
+      pairs, bytes / (1024 * 1024), bytes.toDouble / math.max(1, pairs))
+
+    compressed
+  }
+
+  /**
+   * Converts the context store of a model (context.mem) to a compressed context store (context.cmem).
+   * If a model contains a compressed context store, it is used instead of the uncompressed one.
+   *
+   * Usage:
+   *
+   * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.memory.MemoryCompressedContextStore -Dexec.args="/data/spotlight/en"
+   */
+  def main(args: Array[String]) {
+    val modelDataFolder = new File(args(0), "model")
+
+    val store = MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), null)
+    MemoryStore.dump(fromContextStore(store), new File(modelDataFolder, "context.cmem"))
+  }
+
+}
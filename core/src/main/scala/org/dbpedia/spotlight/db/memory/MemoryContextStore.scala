@@ -2,7 +2,7 @@ package org.dbpedia.spotlight.db.memory
 
 import java.util.{Map, HashMap}
 import scala.collection.JavaConversions._
-import org.dbpedia.spotlight.db.model.{TokenTypeStore, ContextStore}
+import org.dbpedia.spotlight.db.model.{TokenCounts, TokenTypeStore, ContextStore}
 import com.esotericsoftware.kryo.io.{Input, Output}
 import org.apache.commons.lang.{SerializationException, NotImplementedException}
 import com.esotericsoftware.kryo.{KryoException, Kryo, KryoSerializable}
@@ -56,6 +56,14 @@ class MemoryContextStore
     contextCounts
   }
 
+  override def getContextTokenCounts(resource: DBpediaResource): TokenCounts = {
+    val i = resource.id
+    if (tokens(i) == null)
+      TokenCounts.empty
+    else
+      new TokenCounts(tokens(i), counts(i))
+  }
+
   def write(kryo: Kryo, output: Output) {
     output.writeInt(tokens.length)
 
@@ -105,6 +113,9 @@ class MemoryContextStore
           totalTokenCounts(i) += counts(i)(j)
           j += 1
         }
+
+        //The token counts are used sorted by token ID:
+        TokenCounts.sort(tokens(i), counts(i))
      }
 
      i += 1
@@ -0,0 +1,67 @@
+package org.dbpedia.spotlight.db.memory
+
+import util.{PerfectHashStringToIDMap, PerfectHash, StringPool}
+
+/**
+ * A persisted reverse lookup (String to ID) for the keys of a memory store, based on
+ * a minimal perfect hash function with fingerprints.
+ *
+ * In contrast to [[org.dbpedia.spotlight.db.memory.MemoryStringIndex]], a lookup
+ * does not compare the key with the keys of the store, hence the index can also be
+ * queried for any CharSequence (see getID).
+ *
+ * @author Joachim Daiber
+ */
+
+@SerialVersionUID(1009001)
+class MemoryPerfectHashIndex
+  extends MemoryStore
+  with StringIDIndex {
+
+  var seed: Int = 0
+  var displacements: Array[Int] = null
+  var fingerprints: Array[Int] = null
+  var ids: Array[Int] = null
+
+  def size = ids.length
+
+  /**
+   * Returns the ID of the key or -1 if the key is unknown.
+   *
+   * @param key the queried String
+   * @return
+   */
+  def getID(key: CharSequence): Int = PerfectHash.get(key, seed, displacements, fingerprints, ids)
+
+  def toMap(keys: StringPool): java.util.Map[String, java.lang.Integer] =
+    new PerfectHashStringToIDMap(seed, displacements, fingerprints, ids)
+
+}
+
+object MemoryPerfectHashIndex {
+
+  def build(keys: StringPool, extraKeys: StringPool = StringPool.empty, extraIDs: Array[Int] = Array[Int]()): MemoryPerfectHashIndex = {
+    val table = PerfectHash.build(
+      keys.length + extraKeys.length,
+      { i: Int => if (i < keys.length) keys(i) else extraKeys(i - keys.length) },
+      { i: Int => if (i < keys.length) i else extraIDs(i - keys.length) }
+    )
+
+    val index = new MemoryPerfectHashIndex()
+    index.seed = table.seed
+    index.displacements = table.displacements
+    index.fingerprints = table.fingerprints
+    index.ids = table.ids
+    index
+  }
+
+  def forTokenTypeStore(store: MemoryTokenTypeStore): MemoryPerfectHashIndex = build(store.tokenForId)
+
+  def forResourceStore(store: MemoryResourceStore): MemoryPerfectHashIndex = build(store.uriForID)
+
+  def forSurfaceFormStore(store: MemorySurfaceFormStore): MemoryPerfectHashIndex = {
+    val (normalizedStrings, idForNormalized) = MemorySurfaceFormStore.normalizedSurfaceForms(store.stringForID, store.annotatedCountForID)
+    build(store.stringForID, StringPool.fromArray(normalizedStrings), idForNormalized)
+  }
+
+}
@@ -1,16 +1,25 @@
 package org.dbpedia.spotlight.db.memory
 
 import org.dbpedia.spotlight.log.SpotlightLog
-import org.dbpedia.spotlight.model.DBpediaResource
+import org.dbpedia.spotlight.model.{OntologyType, DBpediaResource}
+import java.util.concurrent.atomic.AtomicReferenceArray
 import java.lang.{Short, String}
 import scala.collection.JavaConversions._
 import scala.{throws, transient}
 import org.dbpedia.spotlight.exceptions.DBpediaResourceNotFoundException
 import org.dbpedia.spotlight.db.model.{OntologyTypeStore, ResourceStore}
 import java.lang.Integer
-import util.StringToIDMapFactory
+import util.StringPool
+import collection.mutable.ArrayBuffer
 
 /**
+ * A memory-based resource store.
+ *
+ * Everything a DBpedia resource consists of is prepared when the store is loaded: the priors
+ * are precomputed and resources with the same types share a single type list. The resources
+ * themselves are kept in a fixed-size cache indexed by their ID, so a frequently requested
+ * resource is created only once. Resources returned by the store are shared and must not be modified.
+ *
  * @author Joachim Daiber
  */
 
@@ -22,60 +31,106 @@ class MemoryResourceStore
   var ontologyTypeStore: OntologyTypeStore = null
 
   var supportForID: Array[Int] = null
-  var uriForID: Array[String] = null
+  var uriForID: StringPool = null
   var typesForID: Array[Array[Short]] = null
 
   @transient
   var idFromURI: java.util.Map[String, Integer] = null
 
+  @transient
+  var reverseLookupIndex: StringIDIndex = null
+
   @transient
   var totalSupport = 0.0
 
+  @transient
+  var priorForID: Array[Double] = null
+
+  //The distinct type lists and the index of the type list of each resource:
+  @transient
+  var typeLists: Array[List[OntologyType]] = null
+
+  @transient
+  var typeListForID: Array[Int] = null
+
+  @transient
+  var resourceCache: AtomicReferenceArray[DBpediaResource] = null
+
   override def loaded() {
     createReverseLookup()
     SpotlightLog.info(this.getClass, "Counting total support...")
     totalSupport = supportForID.sum.toDouble
     SpotlightLog.info(this.getClass, "Done.")
+
+    priorForID = supportForID.map(_ / totalSupport)
+    createTypeLists()
+    resourceCache = new AtomicReferenceArray[DBpediaResource](MemoryResourceStore.CACHE_SIZE)
+  }
+
+  /**
+   * Creates one type list per distinct array of type IDs. Resources with the same types
+   * also share their array of type IDs afterwards.
+   */
+  def createTypeLists() {
+    val typeListIndex = new java.util.HashMap[List[Short], Integer]()
+    val distinctTypeIDs = ArrayBuffer[Array[Short]]()
+    typeListForID = new Array[Int](typesForID.length)
+
+    var id = 0
+    while (id < typesForID.length) {
+      val typeIDs = if (typesForID(id) == null) Array[Short]() else typesForID(id)
+      val key = typeIDs.toList
+
+      typeListIndex.get(key) match {
+        case i: Integer => {
+          typeListForID(id) = i
+          typesForID(id) = distinctTypeIDs(i)
+        }
+        case _ => {
+          typeListIndex.put(key, distinctTypeIDs.size)
+          typeListForID(id) = distinctTypeIDs.size
+          distinctTypeIDs += typeIDs
+        }
+      }
+      id += 1
+    }
+
+    typeLists = distinctTypeIDs.map { typeIDs: Array[Short] =>
+      (typeIDs map { typeID: Short => ontologyTypeStore.getOntologyType(typeID) }).toList
+    }.toArray
+    SpotlightLog.info(this.getClass, "Created %d distinct type lists.", typeLists.length)
   }
 
   def size = uriForID.size
 
   def createReverseLookup() {
-    if (uriForID != null) {
+    if (uriForID != null && reverseLookupIndex != null) {
+      SpotlightLog.info(this.getClass, "Using persisted reverse-lookup for DBpedia resources.")
+      idFromURI = reverseLookupIndex.toMap(uriForID)
+    } else if (uriForID != null) {
       SpotlightLog.info(this.getClass, "Creating reverse-lookup for DBpedia resources.")
-      idFromURI = StringToIDMapFactory.createDefault(uriForID.size)
-
-      var i = 0
-      uriForID foreach { uri => {
-        idFromURI.put(uri, i)
-        i += 1
-      }
-      }
+      reverseLookupIndex = MemoryStringIndex.forResourceStore(this)
+      idFromURI = reverseLookupIndex.toMap(uriForID)
     }
   }
 
   @throws(classOf[DBpediaResourceNotFoundException])
   def getResource(id: Int): DBpediaResource = {
 
-    val uri = try {
-        uriForID(id)
-    } catch {
-      case e: java.lang.ArrayIndexOutOfBoundsException => null
-    }
-
-    if (uri == null)
-      throw new DBpediaResourceNotFoundException("DBpediaResource %s not found.".format(uri))
+    if (id < 0 || id >= uriForID.length || uriForID.isNull(id))
+      throw new DBpediaResourceNotFoundException("DBpediaResource with ID %d not found.".format(id))
 
-    val support = supportForID(id)
-    val typeIDs = typesForID(id)
+    val slot = id & MemoryResourceStore.CACHE_MASK
+    val cached = resourceCache.get(slot)
 
-    val res = new DBpediaResource(uri, support)
-    res.id = id
-    res.setTypes((typeIDs map { typeID: Short => ontologyTypeStore.getOntologyType(typeID) }).toList)
-
-    res.setPrior(res.support / totalSupport)
-
-    res
+    if (cached != null && cached.id == id) {
+      cached
+    } else {
+      val res = new DBpediaResource(uriForID(id), supportForID(id), priorForID(id), typeLists(typeListForID(id)))
+      res.id = id
+      resourceCache.set(slot, res)
+      res
+    }
   }
 
   @throws(classOf[DBpediaResourceNotFoundException])
@@ -89,3 +144,11 @@ class MemoryResourceStore
 
 
 }
+
+object MemoryResourceStore {
+
+  //Number of cached resources (must be a power of two):
+  val CACHE_SIZE = 1 << 16
+  val CACHE_MASK = CACHE_SIZE - 1
+
+}
@@ -12,7 +12,8 @@ import org.dbpedia.spotlight.log.SpotlightLog
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.KryoSerializableSerializer
 import com.esotericsoftware.kryo.Kryo
 import org.dbpedia.spotlight.db.model.{TokenTypeStore, ResourceStore}
-import org.dbpedia.spotlight.db.FSADictionary
+import org.dbpedia.spotlight.db.{DoubleArrayFSA, FSADictionary}
+import util.StringPool
 
 
 /**
@@ -58,6 +59,7 @@ object MemoryStore {
 
     kryo.register(classOf[MemoryResourceStore])
     kryo.register(classOf[MemoryOntologyTypeStore], new JavaSerializer())
+    kryo.register(classOf[StringPool], new StringPool.KryoSerializer())
 
     kryo
   }
@@ -71,6 +73,7 @@ object MemoryStore {
     kryo.register(classOf[Array[Int]],    new DefaultArraySerializers.IntArraySerializer())
     kryo.register(classOf[Array[String]], new DefaultArraySerializers.StringArraySerializer())
     kryo.register(classOf[MemorySurfaceFormStore])
+    kryo.register(classOf[StringPool], new StringPool.KryoSerializer())
 
     kryo
   }
@@ -87,6 +90,17 @@ object MemoryStore {
   }
   )
 
+  kryos.put(classOf[MemoryCompressedContextStore].getSimpleName,
+  {
+    val kryo = new Kryo()
+    kryo.setRegistrationRequired(true)
+
+    kryo.register(classOf[MemoryCompressedContextStore], new KryoSerializableSerializer())
+
+    kryo
+  }
+  )
+
   kryos.put(classOf[MemoryCandidateMapStore].getSimpleName,
   {
     val kryo = new Kryo()
@@ -107,6 +121,7 @@ object MemoryStore {
     kryo.register(classOf[Array[Int]],    new DefaultArraySerializers.IntArraySerializer())
     kryo.register(classOf[Array[String]], new DefaultArraySerializers.StringArraySerializer())
     kryo.register(classOf[MemoryTokenTypeStore])
+    kryo.register(classOf[StringPool], new StringPool.KryoSerializer())
 
     kryo
   }
@@ -123,7 +138,43 @@ object MemoryStore {
   }
   )
 
-  def load[T](in: InputStream, simpleName: String): T = {
+  kryos.put(classOf[DoubleArrayFSA].getSimpleName,
+  {
+    val kryo = new Kryo()
+    kryo.setRegistrationRequired(true)
+
+    kryo.register(classOf[Array[Int]], new DefaultArraySerializers.IntArraySerializer())
+    kryo.register(classOf[DoubleArrayFSA])
+
+    kryo
+  }
+  )
+
+  kryos.put(classOf[MemoryStringIndex].getSimpleName,
+  {
+    val kryo = new Kryo()
+    kryo.setRegistrationRequired(true)
+
+    kryo.register(classOf[Array[Int]],    new DefaultArraySerializers.IntArraySerializer())
+    kryo.register(classOf[Array[String]], new DefaultArraySerializers.StringArraySerializer())
+    kryo.register(classOf[MemoryStringIndex])
+    kryo.register(classOf[StringPool], new StringPool.KryoSerializer())
+    kryo.register(classOf[MemoryPerfectHashIndex])
+
+    kryo
+  }
+  )
+
+  //Both types of reverse lookups are read with the same Kryo instance:
+  kryos.put(classOf[MemoryPerfectHashIndex].getSimpleName, kryos(classOf[MemoryStringIndex].getSimpleName))
+
+  def load[T](in: InputStream, simpleName: String): T = load[T](in, simpleName, { s: T => })
+
+  /**
+   * Loads a store. The prepare function is called after the store has been deserialized
+   * and before the loaded() hook, e.g. in order to provide a persisted reverse lookup.
+   */
+  def load[T](in: InputStream, simpleName: String, prepare: T => Unit): T = {
 
     val kryo: Kryo = kryos.get(simpleName).get
 
@@ -131,24 +182,36 @@ object MemoryStore {
     val sStart = System.currentTimeMillis()
     val input = new Input(in)
 
-    val s = kryo.readClassAndObject(input).asInstanceOf[T]
+    //Kryo instances are not thread-safe, stores of the same type may be loaded concurrently:
+    val s = kryo.synchronized { kryo.readClassAndObject(input).asInstanceOf[T] }
+    prepare(s)
     s.asInstanceOf[MemoryStore].loaded()
 
     input.close()
-    SpotlightLog.info(this.getClass, "Done (%d ms)", System.currentTimeMillis() - sStart)
+    SpotlightLog.info(this.getClass, "Done loading %s (%d ms)", simpleName, System.currentTimeMillis() - sStart)
     s
   }
 
-  def loadTokenTypeStore(in: InputStream): MemoryTokenTypeStore = {
-    load[MemoryTokenTypeStore](in, classOf[MemoryTokenTypeStore].getSimpleName)
+  def loadStringIndex(in: InputStream): StringIDIndex = {
+    load[StringIDIndex](in, classOf[MemoryStringIndex].getSimpleName)
   }
 
-  def loadSurfaceFormStore(in: InputStream): MemorySurfaceFormStore = {
-    load[MemorySurfaceFormStore](in, classOf[MemorySurfaceFormStore].getSimpleName)
+  def loadTokenTypeStore(in: InputStream, index: InputStream = null): MemoryTokenTypeStore = {
+    load[MemoryTokenTypeStore](in, classOf[MemoryTokenTypeStore].getSimpleName, { s: MemoryTokenTypeStore =>
+      if (index != null) s.reverseLookupIndex = loadStringIndex(index)
+    })
   }
 
-  def loadResourceStore(in: InputStream): MemoryResourceStore = {
-    load[MemoryResourceStore](in, classOf[MemoryResourceStore].getSimpleName)
+  def loadSurfaceFormStore(in: InputStream, index: InputStream = null): MemorySurfaceFormStore = {
+    load[MemorySurfaceFormStore](in, classOf[MemorySurfaceFormStore].getSimpleName, { s: MemorySurfaceFormStore =>
+      if (index != null) s.reverseLookupIndex = loadStringIndex(index)
+    })
+  }
+
+  def loadResourceStore(in: InputStream, index: InputStream = null): MemoryResourceStore = {
+    load[MemoryResourceStore](in, classOf[MemoryResourceStore].getSimpleName, { s: MemoryResourceStore =>
+      if (index != null) s.reverseLookupIndex = loadStringIndex(index)
+    })
   }
 
   def loadCandidateMapStore(in: InputStream, resourceStore: ResourceStore): MemoryCandidateMapStore = {
@@ -163,10 +226,20 @@ object MemoryStore {
     s
   }
 
+  def loadCompressedContextStore(in: InputStream, tokenStore: TokenTypeStore): MemoryCompressedContextStore = {
+    val s = load[MemoryCompressedContextStore](in, classOf[MemoryCompressedContextStore].getSimpleName)
+    s.tokenStore = tokenStore
+    s
+  }
+
   def loadFSADictionary(in: InputStream): FSADictionary = {
     load[FSADictionary](in, classOf[FSADictionary].getSimpleName)
   }
 
+  def loadDoubleArrayFSA(in: InputStream): DoubleArrayFSA = {
+    load[DoubleArrayFSA](in, classOf[DoubleArrayFSA].getSimpleName)
+  }
+
   def dump(store: MemoryStore, out: File) {
     val kryo = kryos.get(store.getClass.getSimpleName).get
 
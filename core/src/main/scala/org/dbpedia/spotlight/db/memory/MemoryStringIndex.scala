@@ -0,0 +1,55 @@
+package org.dbpedia.spotlight.db.memory
+
+import util.{StringPool, IndexedStringToIDMap, StringHashTable}
+
+/**
+ * A persisted reverse lookup (String to ID) for the keys of a memory store, based on
+ * a hash table over the keys of the store.
+ *
+ * The index is created once by the indexer and stored next to the store, so that
+ * the reverse lookup does not have to be rebuilt (and, for surface forms, the normalization
+ * does not have to be rerun) every time the store is loaded.
+ *
+ * @author Joachim Daiber
+ */
+
+@SerialVersionUID(1008001)
+class MemoryStringIndex
+  extends MemoryStore
+  with StringIDIndex {
+
+  var slots: Array[Int] = null
+
+  var extraKeys: StringPool = StringPool.empty
+  var extraIDs: Array[Int] = Array[Int]()
+
+  def size = slots.length
+
+  def toMap(keys: StringPool): java.util.Map[String, java.lang.Integer] =
+    new IndexedStringToIDMap(keys, extraKeys, extraIDs, slots)
+
+}
+
+object MemoryStringIndex {
+
+  def build(keys: StringPool, extraKeys: StringPool = StringPool.empty, extraIDs: Array[Int] = Array[Int]()): MemoryStringIndex = {
+    val index = new MemoryStringIndex()
+    index.slots = StringHashTable.build(
+      keys.length + extraKeys.length,
+      { i: Int => if (i < keys.length) keys(i) else extraKeys(i - keys.length) }
+    )
+    index.extraKeys = extraKeys
+    index.extraIDs = extraIDs
+    index
+  }
+
+  def forTokenTypeStore(store: MemoryTokenTypeStore): MemoryStringIndex = build(store.tokenForId)
+
+  def forResourceStore(store: MemoryResourceStore): MemoryStringIndex = build(store.uriForID)
+
+  def forSurfaceFormStore(store: MemorySurfaceFormStore): MemoryStringIndex = {
+    val (normalizedStrings, idForNormalized) = MemorySurfaceFormStore.normalizedSurfaceForms(store.stringForID, store.annotatedCountForID)
+    build(store.stringForID, StringPool.fromArray(normalizedStrings), idForNormalized)
+  }
+
+}
@@ -6,7 +6,7 @@ import org.dbpedia.spotlight.db.model.SurfaceFormStore
 import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
 import scala.Array
 import java.lang.Integer
-import util.StringToIDMapFactory
+import util.StringPool
 
 /**
  * @author Joachim Daiber
@@ -23,10 +23,13 @@ class MemorySurfaceFormStore
   @transient
   var idForString: java.util.Map[String, Integer] = null
 
-  var stringForID: Array[String]      = null
+  var stringForID: StringPool        = null
   var annotatedCountForID: Array[Int] = null
   var totalCountForID: Array[Int]     = null
 
+  @transient
+  var reverseLookupIndex: StringIDIndex = null
+
   @transient
   var totalAnnotatedCount = 0
 
@@ -35,10 +38,9 @@ class MemorySurfaceFormStore
 
 
   @transient
-  var stopWords: Set[String] = Set("the", "an", "a")
+  var stopWords: Set[String] = MemorySurfaceFormStore.STOPWORDS
 
-  def normalize(sf: String): String =
-    "/" + sf.replaceAll("[\\p{Punct}]+", " ").toLowerCase.split(" ").filter({lcSF: String => !stopWords.contains(lcSF)}).mkString(" ")
+  def normalize(sf: String): String = MemorySurfaceFormStore.normalize(sf, stopWords)
 
   override def loaded() {
     createReverseLookup()
@@ -65,22 +67,13 @@ class MemorySurfaceFormStore
     totalOccurrenceCount = totalCountForID.sum
 
 
-    if (stringForID != null) {
+    if (stringForID != null && reverseLookupIndex != null) {
+      SpotlightLog.info(this.getClass, "Using persisted reverse-lookup for surface forms.")
+      idForString = reverseLookupIndex.toMap(stringForID)
+    } else if (stringForID != null) {
       SpotlightLog.info(this.getClass, "Creating reverse-lookup for surface forms, adding normalized surface forms.")
-      idForString = StringToIDMapFactory.createDefault(stringForID.size * 2)
-
-      var i = 0
-      stringForID foreach { sf => {
-        if (sf != null) {
-          idForString.put(sf, i)
-
-          val n = normalize(sf)
-          if (idForString.get(n) == null || annotatedCountForID(idForString.get(n)) < annotatedCountForID(i))
-            idForString.put(n, i)
-        }
-        i += 1
-      }
-      }
+      reverseLookupIndex = MemoryStringIndex.forSurfaceFormStore(this)
+      idForString = reverseLookupIndex.toMap(stringForID)
     }
   }
 
@@ -116,3 +109,48 @@ class MemorySurfaceFormStore
   }
 
 }
+
+object MemorySurfaceFormStore {
+
+  val STOPWORDS = Set("the", "an", "a")
+
+  def normalize(sf: String, stopWords: Set[String] = STOPWORDS): String =
+    "/" + sf.replaceAll("[\\p{Punct}]+", " ").toLowerCase.split(" ").filter({lcSF: String => !stopWords.contains(lcSF)}).mkString(" ")
+
+  /**
+   * Returns all normalized surface forms together with the ID of the most annotated
+   * surface form they were created from.
+   *
+   * @param stringForID all surface forms
+   * @param annotatedCountForID annotated counts of all surface forms
+   * @return
+   */
+  def normalizedSurfaceForms(stringForID: StringPool, annotatedCountForID: Array[Int]): (Array[String], Array[Int]) = {
+    val normalized = new java.util.LinkedHashMap[String, Int]()
+
+    var i = 0
+    while (i < stringForID.length) {
+      if (!stringForID.isNull(i)) {
+        val n = normalize(stringForID(i))
+        if (!normalized.containsKey(n) || annotatedCountForID(normalized.get(n)) < annotatedCountForID(i))
+          normalized.put(n, i)
+      }
+      i += 1
+    }
+
+    val normalizedStrings = new Array[String](normalized.size)
+    val idForNormalized   = new Array[Int](normalized.size)
+
+    i = 0
+    val it = normalized.entrySet().iterator()
+    while (it.hasNext) {
+      val e = it.next()
+      normalizedStrings(i) = e.getKey
+      idForNormalized(i) = e.getValue
+      i += 1
+    }
+
+    (normalizedStrings, idForNormalized)
+  }
+
+}
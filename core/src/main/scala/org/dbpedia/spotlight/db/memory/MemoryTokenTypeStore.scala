@@ -5,7 +5,7 @@ import org.dbpedia.spotlight.db.model.TokenTypeStore
 import java.lang.String
 import org.dbpedia.spotlight.model.TokenType
 import scala.transient
-import util.StringToIDMapFactory
+import util.StringPool
 
 /**
  * A memory-based store for
@@ -19,12 +19,15 @@ class MemoryTokenTypeStore
   with TokenTypeStore
 {
 
-  var tokenForId: Array[String] = null
+  var tokenForId: StringPool = null
   var counts: Array[Int] = null
 
   @transient
   var idFromToken: java.util.Map[String, java.lang.Integer] = null
 
+  @transient
+  var reverseLookupIndex: StringIDIndex = null
+
   @transient
   var totalTokenCount: Int = 0
 
@@ -41,16 +44,13 @@ class MemoryTokenTypeStore
   def size = tokenForId.size
 
   def createReverseLookup() {
-    if (tokenForId != null) {
+    if (tokenForId != null && reverseLookupIndex != null) {
+      SpotlightLog.info(this.getClass, "Using persisted reverse-lookup for Tokens.")
+      idFromToken = reverseLookupIndex.toMap(tokenForId)
+    } else if (tokenForId != null) {
       SpotlightLog.info(this.getClass, "Creating reverse-lookup for Tokens.")
-      idFromToken = StringToIDMapFactory.createDefault(tokenForId.size)
-
-      var id = 0
-      tokenForId foreach { token => {
-        idFromToken.put(token, id)
-        id += 1
-       }
-      }
+      reverseLookupIndex = MemoryStringIndex.forTokenTypeStore(this)
+      idFromToken = reverseLookupIndex.toMap(tokenForId)
     }
   }
 
@@ -70,6 +70,8 @@ class MemoryTokenTypeStore
     new TokenType(id, token, count)
   }
 
+  def getTokenCountByID(id: Int): Int = counts(id)
+
   def getTotalTokenCount: Int = totalTokenCount
 
   def getVocabularySize: Int = vocabularySize
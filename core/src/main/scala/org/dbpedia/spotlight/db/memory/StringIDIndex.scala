@@ -0,0 +1,50 @@
+package org.dbpedia.spotlight.db.memory
+
+import util.StringPool
+
+/**
+ * A persisted reverse lookup (String to ID) for the keys of a memory store.
+ *
+ * There are two implementations, which can be selected per model with the
+ * property "reverse_lookup" in model.properties:
+ *
+ *  - hash: [[org.dbpedia.spotlight.db.memory.MemoryStringIndex]], a hash table over the keys of the store (default)
+ *  - mph:  [[org.dbpedia.spotlight.db.memory.MemoryPerfectHashIndex]], a minimal perfect hash with fingerprints,
+ *          which does not need the keys for a lookup
+ *
+ * @author Joachim Daiber
+ */
+
+trait StringIDIndex {
+
+  /**
+   * Returns the reverse lookup for the keys of the store this index was built for.
+   *
+   * @param keys the keys of the store
+   * @return
+   */
+  def toMap(keys: StringPool): java.util.Map[String, java.lang.Integer]
+
+}
+
+object StringIDIndex {
+
+  val PROPERTY     = "reverse_lookup"
+
+  val HASH_TABLE   = "hash"
+  val PERFECT_HASH = "mph"
+
+  /**
+   * Returns the name of the index file for a store, e.g. sf.idx or sf.mph.
+   *
+   * @param store name of the store (sf, res, tokens)
+   * @param backend type of the index (hash or mph)
+   * @return
+   */
+  def fileName(store: String, backend: String): String = backend match {
+    case PERFECT_HASH => store + ".mph"
+    case HASH_TABLE   => store + ".idx"
+    case _ => throw new IllegalArgumentException("Unknown reverse lookup type %s, must be %s or %s.".format(backend, HASH_TABLE, PERFECT_HASH))
+  }
+
+}
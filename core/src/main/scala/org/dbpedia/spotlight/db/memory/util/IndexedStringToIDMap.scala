@@ -0,0 +1,64 @@
+package org.dbpedia.spotlight.db.memory.util
+
+import java.lang.Integer
+import java.util.{AbstractMap, LinkedHashSet, Map}
+
+/**
+ * A read-only Map for the lookup of an ID given a String, backed by the key pool of a
+ * store and a [[org.dbpedia.spotlight.db.memory.util.StringHashTable]] built at indexing time.
+ * Keys are compared on their UTF-8 bytes, so the keys of the store are never decoded and the
+ * key that is looked up is never encoded for a lookup.
+ *
+ * Keys that are not part of the store's key pool (e.g. normalized surface forms) can be
+ * added as extra keys, an extra key at position i maps to the ID extraIDs(i). In the hash table,
+ * extra keys are positioned after the keys of the store.
+ *
+ * @author Joachim Daiber
+ */
+
+class IndexedStringToIDMap(keys: StringPool, extraKeys: StringPool, extraIDs: Array[Int], slots: Array[Int])
+  extends AbstractMap[String, Integer] {
+
+  private val mask = slots.length - 1
+
+  private def keyAt(i: Int): String = if (i < keys.length) keys(i) else extraKeys(i - keys.length)
+  private def equalsAt(i: Int, key: String): Boolean =
+    if (i < keys.length) keys.equalsAt(i, key) else extraKeys.equalsAt(i - keys.length, key)
+
+  private def idAt(i: Int): Int = if (i < keys.length) i else extraIDs(i - keys.length)
+
+  private def position(key: Any): Int = key match {
+    case k: String => {
+      var slot = StringHashTable.hash(k) & mask
+      var v = slots(slot)
+
+      while (v != 0 && !equalsAt(v-1, k)) {
+        slot = (slot + 1) & mask
+        v = slots(slot)
+      }
+      v - 1
+    }
+    case _ => -1
+  }
+
+  override def get(key: Any): Integer = position(key) match {
+    case -1 => null
+    case i: Int => Integer.valueOf(idAt(i))
+  }
+
+  override def containsKey(key: Any): Boolean = position(key) != -1
+
+  private lazy val count = slots.count(_ != 0)
+
+  override def size(): Int = count
+
+  def entrySet(): java.util.Set[Map.Entry[String, Integer]] = {
+    val entries = new LinkedHashSet[Map.Entry[String, Integer]]()
+    slots.foreach { v: Int =>
+      if (v != 0)
+        entries.add(new AbstractMap.SimpleImmutableEntry[String, Integer](keyAt(v-1), Integer.valueOf(idAt(v-1))))
+    }
+    entries
+  }
+
+}
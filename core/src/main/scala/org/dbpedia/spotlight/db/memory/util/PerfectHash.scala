@@ -0,0 +1,209 @@
+package org.dbpedia.spotlight.db.memory.util
+
+/**
+ * Minimal perfect hash function (hash and displace) for a set of String keys.
+ *
+ * The keys are distributed into buckets of on average BUCKET_SIZE keys. Starting with
+ * the largest bucket, a displacement is searched for each bucket that maps all of its
+ * keys to free slots, buckets with a single key are put into the next free slot directly.
+ * Every slot contains a 32bit fingerprint of the key it belongs to and the ID of the key.
+ *
+ * Since the table does not contain the keys, a lookup needs a single pass over the characters
+ * of the key (no String has to be created for a CharSequence) and a key is never compared
+ * to the stored keys. A key that is not in the table is detected by its fingerprint, the
+ * probability that an unknown key is mapped to an ID is 2^-32.
+ *
+ * @author Joachim Daiber
+ */
+
+object PerfectHash {
+
+  val BUCKET_SIZE      = 3
+  val MAX_DISPLACEMENT = 1 << 20
+  val MAX_SEEDS        = 16
+
+  class Table(val seed: Int, val displacements: Array[Int], val fingerprints: Array[Int], val ids: Array[Int])
+
+  /**
+   * 64bit hash of a key (FNV-1a over the UTF-16 characters, finished with the MurmurHash3 finalizer).
+   */
+  def hash(key: CharSequence, seed: Int): Long = {
+    var h = 0xcbf29ce484222325L ^ seed
+    var i = 0
+    while (i < key.length) {
+      h ^= key.charAt(i)
+      h *= 0x100000001b3L
+      i += 1
+    }
+    fmix(h ^ key.length)
+  }
+
+  private def fmix(k: Long): Long = {
+    var h = k
+    h ^= h >>> 33
+    h *= 0xff51afd7ed558ccdL
+    h ^= h >>> 33
+    h *= 0xc4ceb9fe1a85ec53L
+    h ^= h >>> 33
+    h
+  }
+
+  private def bucket(h: Long, buckets: Int): Int = ((h >>> 33) % buckets).toInt
+  private def slot(h: Long, displacement: Int, n: Int): Int = ((fmix(h + displacement * 0x9e3779b97f4a7c15L) >>> 33) % n).toInt
+  private def fingerprint(h: Long): Int = h.toInt
+
+  /**
+   * Returns the ID of the key or -1 if the key is not in the table.
+   */
+  def get(key: CharSequence, seed: Int, displacements: Array[Int], fingerprints: Array[Int], ids: Array[Int]): Int = {
+    if (displacements.length == 0)
+      return -1
+
+    val h = hash(key, seed)
+    val d = displacements(bucket(h, displacements.length))
+
+    val s = if (d == 0)
+      return -1
+    else if (d < 0)
+      -d - 1
+    else
+      slot(h, d, fingerprints.length)
+
+    if (fingerprints(s) == fingerprint(h))
+      ids(s)
+    else
+      -1
+  }
+
+  /**
+   * Builds the table for the keys. If a key occurs more than once,
+   * the last occurrence wins (like in a java.util.Map).
+   *
+   * @param n number of keys
+   * @param key function returning the key at a position (may be null)
+   * @param id function returning the ID for the key at a position
+   * @return
+   */
+  def build(n: Int, key: Int => String, id: Int => Int): Table = {
+    var seed = 0
+    while (seed < MAX_SEEDS) {
+      build(n, key, id, seed) match {
+        case Some(table) => return table
+        case None => seed += 1
+      }
+    }
+    throw new IllegalStateException("Could not build a perfect hash function for %d keys.".format(n))
+  }
+
+  private def build(n: Int, key: Int => String, id: Int => Int, seed: Int): Option[Table] = {
+
+    val hashes = new Array[Long](n)
+    var count = 0
+    var i = 0
+    while (i < n) {
+      if (key(i) != null) {
+        hashes(i) = hash(key(i), seed)
+        count += 1
+      }
+      i += 1
+    }
+
+    //Group the keys by bucket:
+    val buckets = math.max(1, count / BUCKET_SIZE)
+    val bucketStart = new Array[Int](buckets + 1)
+    i = 0
+    while (i < n) {
+      if (key(i) != null)
+        bucketStart(bucket(hashes(i), buckets) + 1) += 1
+      i += 1
+    }
+    (1 to buckets).foreach { b: Int => bucketStart(b) += bucketStart(b-1) }
+
+    val members = new Array[Int](count)
+    val fill = bucketStart.clone()
+    i = 0
+    while (i < n) {
+      if (key(i) != null) {
+        val bi = bucket(hashes(i), buckets)
+        members(fill(bi)) = i
+        fill(bi) += 1
+      }
+      i += 1
+    }
+
+    //Remove duplicate keys (the later position wins). Two different keys
+    //with the same 64bit hash require a different seed:
+    val removed = new Array[Boolean](n)
+    var size = count
+    var b = 0
+    while (b < buckets) {
+      var x = bucketStart(b)
+      while (x < bucketStart(b+1)) {
+        var y = x + 1
+        while (y < bucketStart(b+1)) {
+          if (hashes(members(x)) == hashes(members(y)) && !removed(members(x)) && !removed(members(y))) {
+            if (!key(members(x)).equals(key(members(y))))
+              return None
+            removed(math.min(members(x), members(y))) = true
+            size -= 1
+          }
+          y += 1
+        }
+        x += 1
+      }
+      b += 1
+    }
+
+    //Process the buckets in the order of decreasing size:
+    val bucketSize = (0 until buckets).map { b: Int => (bucketStart(b) until bucketStart(b+1)).count(x => !removed(members(x))) }.toArray
+    val order = (0 until buckets).toArray.sortBy(b => -bucketSize(b))
+
+    val displacements = new Array[Int](buckets)
+    val fingerprints  = new Array[Int](size)
+    val ids           = new Array[Int](size)
+    val occupied      = new Array[Boolean](size)
+    var nextFree      = 0
+
+    val slots = new Array[Int](bucketSize(order.headOption.getOrElse(0)))
+
+    order.foreach { b: Int =>
+      val keys = (bucketStart(b) until bucketStart(b+1)).map(members(_)).filter(!removed(_)).toArray
+
+      if (keys.length == 1) {
+        while (occupied(nextFree))
+          nextFree += 1
+        slots(0) = nextFree
+        displacements(b) = -nextFree - 1
+      } else if (keys.length > 1) {
+        var d = 1
+        var placed = false
+        while (!placed && d < MAX_DISPLACEMENT) {
+          placed = true
+          var k = 0
+          while (placed && k < keys.length) {
+            slots(k) = slot(hashes(keys(k)), d, size)
+            placed = !occupied(slots(k)) && !(0 until k).exists(slots(_) == slots(k))
+            k += 1
+          }
+          if (!placed)
+            d += 1
+        }
+
+        if (!placed)
+          return None
+        displacements(b) = d
+      }
+
+      var k = 0
+      while (k < keys.length) {
+        occupied(slots(k)) = true
+        fingerprints(slots(k)) = fingerprint(hashes(keys(k)))
+        ids(slots(k)) = id(keys(k))
+        k += 1
+      }
+    }
+
+    Some(new Table(seed, displacements, fingerprints, ids))
+  }
+
+}
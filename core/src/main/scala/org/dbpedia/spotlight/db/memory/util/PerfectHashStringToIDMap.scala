@@ -0,0 +1,35 @@
+package org.dbpedia.spotlight.db.memory.util
+
+import java.lang.Integer
+import java.util.{AbstractMap, Map}
+
+/**
+ * A read-only Map for the lookup of an ID given a String (or any other CharSequence),
+ * backed by a [[org.dbpedia.spotlight.db.memory.util.PerfectHash]] built at indexing time.
+ *
+ * The Map does not contain its keys, hence it can not be iterated.
+ *
+ * @author Joachim Daiber
+ */
+
+class PerfectHashStringToIDMap(seed: Int, displacements: Array[Int], fingerprints: Array[Int], ids: Array[Int])
+  extends AbstractMap[String, Integer] {
+
+  private def position(key: Any): Int = key match {
+    case k: CharSequence => PerfectHash.get(k, seed, displacements, fingerprints, ids)
+    case _ => -1
+  }
+
+  override def get(key: Any): Integer = position(key) match {
+    case -1 => null
+    case id: Int => Integer.valueOf(id)
+  }
+
+  override def containsKey(key: Any): Boolean = position(key) != -1
+
+  override def size(): Int = ids.length
+
+  def entrySet(): java.util.Set[Map.Entry[String, Integer]] =
+    throw new UnsupportedOperationException("The keys of a perfect hash map are not stored.")
+
+}
@@ -0,0 +1,65 @@
+package org.dbpedia.spotlight.db.memory.util
+
+/**
+ * Open-addressing hash table (linear probing) over an array of String keys.
+ *
+ * The table only consists of an Int array of slots, a slot contains the position of
+ * the key in the key array + 1, 0 marks an empty slot. Since the table does not contain
+ * the keys, it can be built once at indexing time and stored next to the key array.
+ *
+ * @author Joachim Daiber
+ */
+
+object StringHashTable {
+
+  /**
+   * String.hashCode is specified by the JLS, hence it is stable between the JVM that
+   * built the table and the JVM that reads it. The bits are mixed (MurmurHash3 finalizer)
+   * since the table size is a power of two.
+   */
+  def hash(key: String): Int = {
+    var h = key.hashCode
+    h ^= h >>> 16
+    h *= 0x85ebca6b
+    h ^= h >>> 13
+    h *= 0xc2b2ae35
+    h ^= h >>> 16
+    h
+  }
+
+  /**
+   * Builds the slots for the keys. If a key occurs more than once,
+   * the last occurrence wins (like in a java.util.Map).
+   *
+   * @param n number of keys
+   * @param key function returning the key at a position (may be null)
+   * @return
+   */
+  def build(n: Int, key: Int => String): Array[Int] = {
+    var capacity = 2
+    while (capacity < n * 2)
+      capacity <<= 1
+
+    val slots = new Array[Int](capacity)
+    val mask = capacity - 1
+
+    var i = 0
+    while (i < n) {
+      val k = key(i)
+      if (k != null) {
+        var slot = hash(k) & mask
+        while (slots(slot) != 0 && !key(slots(slot)-1).equals(k))
+          slot = (slot + 1) & mask
+        slots(slot) = i+1
+      }
+      i += 1
+    }
+
+    slots
+  }
+
+  def build(keys: Array[String]): Array[Int] = build(keys.length, keys(_))
+
+  def build(keys: StringPool): Array[Int] = build(keys.length, keys(_))
+
+}
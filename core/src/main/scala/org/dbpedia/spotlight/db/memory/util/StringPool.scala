@@ -0,0 +1,214 @@
+package org.dbpedia.spotlight.db.memory.util
+
+import java.nio.charset.Charset
+import com.esotericsoftware.kryo.{Kryo, Serializer}
+import com.esotericsoftware.kryo.io.{Input, Output}
+
+/**
+ * A compact, read-only array of Strings.
+ *
+ * All Strings are stored UTF-8 encoded in a single byte array, offsets(i) is the position
+ * of the first byte of String i. Instead of one String object (header, char array) per
+ * entry, the pool consists of only two arrays, which also makes it cheap to scan for the GC.
+ * Strings are only decoded when they are requested, comparisons with a key can be done on the
+ * raw bytes.
+ *
+ * A null String is stored as an empty String whose offset is encoded as -(offset + 1).
+ * Since the offsets are Ints, the encoded Strings of a pool must not exceed 2GB.
+ *
+ * @author Joachim Daiber
+ */
+
+final class StringPool(val bytes: Array[Byte], val offsets: Array[Int]) {
+
+  val length: Int = offsets.length - 1
+
+  def size: Int = length
+
+  private def start(i: Int): Int = StringPool.decodeOffset(offsets(i))
+
+  def isNull(i: Int): Boolean = offsets(i) < 0
+
+  def byteLength(i: Int): Int = start(i+1) - start(i)
+
+  def apply(i: Int): String = {
+    if (isNull(i))
+      null
+    else
+      new String(bytes, start(i), byteLength(i), StringPool.UTF8)
+  }
+
+  /**
+   * Compares the String at position i with the UTF-8 encoded key without decoding it.
+   */
+  def equalsAt(i: Int, key: Array[Byte]): Boolean = {
+    if (isNull(i) || byteLength(i) != key.length)
+      return false
+
+    val s = start(i)
+    var j = 0
+    while (j < key.length) {
+      if (bytes(s + j) != key(j))
+        return false
+      j += 1
+    }
+    true
+  }
+
+  /**
+   * Compares the String at position i with the key without decoding it or encoding the key: the chars of the
+   * key are encoded to UTF-8 one at a time and compared with the bytes of the pool. Unpaired surrogates
+   * are compared as '?', which is how String.getBytes encodes them.
+   */
+  def equalsAt(i: Int, key: String): Boolean = {
+    if (isNull(i))
+      return false
+
+    val end = start(i+1)
+    var p = start(i)
+    var j = 0
+    while (j < key.length) {
+      val c = key.charAt(j)
+      if (c < 0x80) {
+        if (!byteEquals(p, end, c))
+          return false
+        p += 1
+      } else if (c < 0x800) {
+        if (!byteEquals(p, end, 0xC0 | (c >> 6)) || !byteEquals(p+1, end, 0x80 | (c & 0x3F)))
+          return false
+        p += 2
+      } else if (Character.isHighSurrogate(c) && j + 1 < key.length && Character.isLowSurrogate(key.charAt(j+1))) {
+        val codePoint = Character.toCodePoint(c, key.charAt(j+1))
+        if (!byteEquals(p, end, 0xF0 | (codePoint >> 18)) || !byteEquals(p+1, end, 0x80 | ((codePoint >> 12) & 0x3F)) ||
+          !byteEquals(p+2, end, 0x80 | ((codePoint >> 6) & 0x3F)) || !byteEquals(p+3, end, 0x80 | (codePoint & 0x3F)))
+          return false
+        p += 4
+        j += 1
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        if (!byteEquals(p, end, '?'))
+          return false
+        p += 1
+      } else {
+        if (!byteEquals(p, end, 0xE0 | (c >> 12)) || !byteEquals(p+1, end, 0x80 | ((c >> 6) & 0x3F)) || !byteEquals(p+2, end, 0x80 | (c & 0x3F)))
+          return false
+        p += 3
+      }
+      j += 1
+    }
+    p == end
+  }
+
+  private def byteEquals(p: Int, end: Int, b: Int): Boolean = p < end && bytes(p) == b.toByte
+
+  /**
+   * Decodes all Strings of the pool. This is only meant for tools that work on the
+   * complete key set (e.g. conversion to other store formats).
+   */
+  def toArray: Array[String] = {
+    val a = new Array[String](length)
+    var i = 0
+    while (i < length) {
+      a(i) = apply(i)
+      i += 1
+    }
+    a
+  }
+
+}
+
+object StringPool {
+
+  val UTF8 = Charset.forName("UTF-8")
+
+  def encodeNullOffset(offset: Int): Int = -offset - 1
+  def decodeOffset(offset: Int): Int = if (offset < 0) -offset - 1 else offset
+
+  def empty: StringPool = new StringPool(Array[Byte](), Array[Int](0))
+
+  def fromArray(strings: Array[String]): StringPool = {
+    val builder = new Builder(strings.length)
+    strings.foreach(builder.add(_))
+    builder.result()
+  }
+
+  /**
+   * Builds a pool by appending Strings one at a time.
+   *
+   * @param n the number of Strings in the pool
+   */
+  class Builder(n: Int) {
+
+    private val offsets = new Array[Int](n + 1)
+    private var bytes = new Array[Byte](math.max(16, n * 8))
+    private var i = 0
+    private var position = 0
+
+    def add(s: String) {
+      if (s == null) {
+        offsets(i) = encodeNullOffset(position)
+      } else {
+        val b = s.getBytes(UTF8)
+        if (position + b.length > bytes.length) {
+          val grown = new Array[Byte](math.max(bytes.length * 2, position + b.length))
+          System.arraycopy(bytes, 0, grown, 0, position)
+          bytes = grown
+        }
+        System.arraycopy(b, 0, bytes, position, b.length)
+        offsets(i) = position
+        position += b.length
+      }
+      i += 1
+    }
+
+    def result(): StringPool = {
+      offsets(i) = position
+      val trimmed = new Array[Byte](position)
+      System.arraycopy(bytes, 0, trimmed, 0, position)
+      new StringPool(trimmed, offsets)
+    }
+
+  }
+
+  /**
+   * Kryo serializer for String pools.
+   *
+   * The pool is written in the same format as Kryo's StringArraySerializer, hence a
+   * field of type Array[String] in a store serialized by an earlier version of Spotlight
+   * can be read into a StringPool (and vice versa) without changing the model.
+   * The Strings are added to the pool as they are read, the complete array of
+   * Strings is never created.
+   */
+  class KryoSerializer extends Serializer[StringPool] {
+
+    setAcceptsNull(true)
+
+    def write(kryo: Kryo, output: Output, pool: StringPool) {
+      if (pool == null) {
+        output.writeByte(0)
+      } else {
+        output.writeInt(pool.length + 1, true)
+        var i = 0
+        while (i < pool.length) {
+          output.writeString(pool(i))
+          i += 1
+        }
+      }
+    }
+
+    def read(kryo: Kryo, input: Input, t: Class[StringPool]): StringPool = {
+      val length = input.readInt(true)
+      if (length == 0)
+        return null
+
+      val builder = new Builder(length - 1)
+      var i = 0
+      while (i < length - 1) {
+        builder.add(input.readString())
+        i += 1
+      }
+      builder.result()
+    }
+
+  }
+
+}
@@ -6,6 +6,10 @@ import java.lang.Integer
 /**
  * Factory for a Map for efficient lookup of an ID given a String.
  *
+ * For a fixed set of keys, there are two backends that do not store the keys as Strings:
+ * a hash table over a [[org.dbpedia.spotlight.db.memory.util.StringPool]] and a minimal
+ * perfect hash function, which does not store the keys at all.
+ *
  * @author Joachim Daiber
  */
 
@@ -14,4 +18,12 @@ object StringToIDMapFactory {
   def createFastUtil(expectedSize: Int): java.util.Map[String, Integer] = new Object2IntOpenHashMap[String](expectedSize)
   def createDefault(expectedSize: Int): java.util.Map[String, Integer]  = createFastUtil(expectedSize)
 
+  def createHashTable(keys: StringPool): java.util.Map[String, Integer] =
+    new IndexedStringToIDMap(keys, StringPool.empty, Array[Int](), StringHashTable.build(keys))
+
+  def createPerfectHash(keys: StringPool): java.util.Map[String, Integer] = {
+    val table = PerfectHash.build(keys.length, keys(_), { i: Int => i })
+    new PerfectHashStringToIDMap(table.seed, table.displacements, table.fingerprints, table.ids)
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.File
+import org.dbpedia.spotlight.db.model.{CandidateSlice, ResourceStore, CandidateMapStore}
+import org.dbpedia.spotlight.db.memory.MemoryCandidateMapStore
+import org.dbpedia.spotlight.model.{Candidate, SurfaceForm}
+
+/**
+ * A candidate map store reading its data directly from a memory-mapped file.
+ * As in the memory store, the candidates of a surface form are sorted by decreasing count.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapCandidateMapStore(reader: MMapReader) extends CandidateMapStore {
+
+  val candidates      = reader.readJaggedArray()
+  val candidateCounts = reader.readJaggedArray()
+
+  var resourceStore: ResourceStore = null
+
+  def size = candidates.length
+
+  def getTopCandidateIDs(surfaceformID: Int, n: Int): CandidateSlice = {
+    if (surfaceformID < 0 || surfaceformID >= candidates.length)
+      CandidateSlice.empty
+    else {
+      val ids = candidates.intArray(surfaceformID, n)
+      new CandidateSlice(ids, candidateCounts.intArray(surfaceformID, n), 0, ids.length)
+    }
+  }
+
+  def getCandidates(surfaceform: SurfaceForm): Set[Candidate] = {
+    val i = surfaceform.id
+
+    if (i < 0 || i >= candidates.length)
+      Set[Candidate]()
+    else
+      (0 until candidates.size(i)).map { j: Int =>
+        new Candidate(surfaceform, resourceStore.getResource(candidates.getInt(i, j)), candidateCounts.getInt(i, j))
+      }.toSet
+  }
+
+}
+
+object MMapCandidateMapStore {
+
+  def write(store: MemoryCandidateMapStore, file: File) {
+    val writer = new MMapWriter(file, MMapFile.CANDIDATE_MAP_STORE)
+
+    writer.writeSparseRowIntArray(store.offsets, store.resourceIDs)
+    writer.writeSparseRowIntArray(store.offsets, store.counts)
+
+    writer.close()
+  }
+
+}
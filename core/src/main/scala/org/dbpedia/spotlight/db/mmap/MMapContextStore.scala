@@ -0,0 +1,81 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.File
+import java.util.{Map, HashMap}
+import org.apache.commons.lang.NotImplementedException
+import org.dbpedia.spotlight.db.model.{TokenCounts, TokenTypeStore, ContextStore}
+import org.dbpedia.spotlight.db.memory.MemoryContextStore
+import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
+
+/**
+ * A context store reading its data directly from a memory-mapped file.
+ *
+ * The total token counts are computed during the conversion, so loading
+ * the store does not require a pass over the data.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapContextStore(reader: MMapReader) extends ContextStore {
+
+  val tokens           = reader.readJaggedArray()
+  val counts           = reader.readJaggedArray()
+  val totalTokenCounts = reader.readIntArray()
+
+  var tokenStore: TokenTypeStore = null
+
+  def size = tokens.length
+
+  def getContextCount(resource: DBpediaResource, token: TokenType): Int = {
+    throw new NotImplementedException()
+  }
+
+  def getTotalTokenCount(resource: DBpediaResource): Int = totalTokenCounts(resource.id)
+
+  def getContextCounts(resource: DBpediaResource): Map[TokenType, Int] = {
+
+    val contextCounts = new HashMap[TokenType, Int]()
+    val i = resource.id
+
+    var j = 0
+    while (j < tokens.size(i)) {
+      contextCounts.put(tokenStore.getTokenTypeByID(tokens.getInt(i, j)), counts.getInt(i, j))
+      j += 1
+    }
+
+    contextCounts
+  }
+
+  override def getContextTokenCounts(resource: DBpediaResource): TokenCounts = {
+    val i = resource.id
+    val n = tokens.size(i)
+    val t = new Array[Int](n)
+    val c = new Array[Int](n)
+
+    var j = 0
+    while (j < n) {
+      t(j) = tokens.getInt(i, j)
+      c(j) = counts.getInt(i, j)
+      j += 1
+    }
+
+    //Stores converted from a model without sorted contexts:
+    TokenCounts.sort(t, c)
+    new TokenCounts(t, c)
+  }
+
+}
+
+object MMapContextStore {
+
+  def write(store: MemoryContextStore, file: File) {
+    val writer = new MMapWriter(file, MMapFile.CONTEXT_STORE)
+
+    writer.writeJaggedIntArray(store.tokens)
+    writer.writeJaggedIntArray(store.counts)
+    writer.writeIntArray(store.totalTokenCounts)
+
+    writer.close()
+  }
+
+}
@@ -0,0 +1,212 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io._
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Writer for the mmap store format.
+ *
+ * An mmap file starts with a header (magic number, format version and store type) followed
+ * by a sequence of sections. Each section is a Long containing its length in bytes, followed
+ * by the data, padded to 8 bytes. Sections are read back in the order they were written.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapWriter(file: File, storeType: Long) {
+
+  private val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20))
+  private var position = 0L
+
+  writeLong(MMapFile.MAGIC)
+  writeLong(MMapFile.VERSION)
+  writeLong(storeType)
+
+  def writeLong(v: Long) {
+    out.writeLong(v)
+    position += 8
+  }
+
+  def writeDouble(v: Double) {
+    writeLong(java.lang.Double.doubleToLongBits(v))
+  }
+
+  private def pad() {
+    while (position % 8 != 0) {
+      out.writeByte(0)
+      position += 1
+    }
+  }
+
+  def writeIntArray(a: Array[Int]) {
+    writeLong(a.length * 4L)
+    a.foreach(out.writeInt(_))
+    position += a.length * 4L
+    pad()
+  }
+
+  def writeLongArray(a: Array[Long]) {
+    writeLong(a.length * 8L)
+    a.foreach(out.writeLong(_))
+    position += a.length * 8L
+  }
+
+  def writeBytes(a: Array[Byte]) {
+    writeLong(a.length)
+    out.write(a)
+    position += a.length
+    pad()
+  }
+
+  private def jaggedOffsets(sizes: Iterator[Int], n: Int): Array[Long] = {
+    val offsets = new Array[Long](n + 1)
+    var i = 0
+    sizes.foreach { s: Int =>
+      offsets(i+1) = offsets(i) + s
+      i += 1
+    }
+    offsets
+  }
+
+  def writeJaggedIntArray(a: Array[Array[Int]]) {
+    val offsets = jaggedOffsets(a.iterator.map(sub => if (sub == null) 0 else sub.length), a.length)
+    writeLongArray(offsets)
+
+    writeLong(offsets.last * 4L)
+    a.foreach { sub: Array[Int] =>
+      if (sub != null)
+        sub.foreach(out.writeInt(_))
+    }
+    position += offsets.last * 4L
+    pad()
+  }
+
+  def writeJaggedShortArray(a: Array[Array[Short]]) {
+    val offsets = jaggedOffsets(a.iterator.map(sub => if (sub == null) 0 else sub.length), a.length)
+    writeLongArray(offsets)
+
+    writeLong(offsets.last * 2L)
+    a.foreach { sub: Array[Short] =>
+      if (sub != null)
+        sub.foreach(out.writeShort(_))
+    }
+    position += offsets.last * 2L
+    pad()
+  }
+
+  /**
+   * Writes an array of Int arrays that is already in sparse row layout (the same format
+   * as writeJaggedIntArray), offsets(i) is the position of the first element of row i in data.
+   */
+  def writeSparseRowIntArray(offsets: Array[Int], data: Array[Int]) {
+    writeLongArray(offsets.map(_.toLong))
+    writeIntArray(data)
+  }
+
+  def writeStringArray(a: Array[String]) {
+    val encoded = a.map { s: String => if (s == null) null else s.getBytes(MMapStringArray.UTF8) }
+
+    val offsets = new Array[Long](a.length + 1)
+    var i = 0
+    while (i < a.length) {
+      val start = MMapStringArray.decodeOffset(offsets(i))
+      if (encoded(i) == null)
+        offsets(i) = MMapStringArray.encodeNullOffset(start)
+      offsets(i+1) = start + (if (encoded(i) == null) 0 else encoded(i).length)
+      i += 1
+    }
+    writeLongArray(offsets)
+
+    writeLong(offsets.last)
+    encoded.foreach { b: Array[Byte] =>
+      if (b != null)
+        out.write(b)
+    }
+    position += offsets.last
+    pad()
+  }
+
+  def close() {
+    out.close()
+  }
+
+}
+
+
+/**
+ * Reader for the mmap store format. Sections are mapped into memory, not copied.
+ * The mappings stay valid after the reader has been closed.
+ */
+class MMapReader(file: File, storeType: Long) {
+
+  private val channel: FileChannel = new RandomAccessFile(file, "r").getChannel
+  private var position = 0L
+
+  if (readLong() != MMapFile.MAGIC)
+    throw new IOException("%s is not a Spotlight mmap store.".format(file.getPath))
+
+  if (readLong() != MMapFile.VERSION)
+    throw new IOException("%s has an unsupported mmap store version.".format(file.getPath))
+
+  if (readLong() != storeType)
+    throw new IOException("%s does not contain the requested type of store.".format(file.getPath))
+
+  def readLong(): Long = {
+    val b = ByteBuffer.allocate(8)
+    while (b.hasRemaining)
+      if (channel.read(b, position + b.position()) < 0)
+        throw new EOFException("Unexpected end of mmap store %s.".format(file.getPath))
+    b.flip()
+    position += 8
+    b.getLong
+  }
+
+  def readDouble(): Double = java.lang.Double.longBitsToDouble(readLong())
+
+  def readRegion(): MMapRegion = {
+    val length = readLong()
+    val region = new MMapRegion(channel, position, length)
+    position += length
+    position += (8 - position % 8) % 8
+    region
+  }
+
+  def readIntArray(): MMapIntArray = new MMapIntArray(readRegion())
+
+  def readLongArray(): MMapLongArray = new MMapLongArray(readRegion())
+
+  def readJaggedArray(): MMapJaggedArray = new MMapJaggedArray(readLongArray(), readRegion())
+
+  def readStringArray(): MMapStringArray = new MMapStringArray(readLongArray(), readRegion())
+
+  def readBytes(): Array[Byte] = {
+    val region = readRegion()
+    val bytes = new Array[Byte](region.byteLength.toInt)
+    var i = 0
+    while (i < bytes.length) {
+      bytes(i) = region.getByte(i)
+      i += 1
+    }
+    bytes
+  }
+
+  def close() {
+    channel.close()
+  }
+
+}
+
+object MMapFile {
+
+  val MAGIC   = 0x53504f544d4d4150L //SPOTMMAP
+  val VERSION = 2L //2: candidates sorted by count
+
+  //Store types:
+  val TOKEN_TYPE_STORE    = 1L
+  val SURFACE_FORM_STORE  = 2L
+  val RESOURCE_STORE      = 3L
+  val CANDIDATE_MAP_STORE = 4L
+  val CONTEXT_STORE       = 5L
+
+}
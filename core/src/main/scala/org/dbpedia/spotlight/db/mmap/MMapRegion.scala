@@ -0,0 +1,161 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+
+/**
+ * A read-only region of a memory-mapped file.
+ *
+ * A single [[java.nio.MappedByteBuffer]] can only address 2GB, so the region is mapped in
+ * chunks of CHUNK_SIZE bytes. Since CHUNK_SIZE is a multiple of 8 and all sections in an mmap
+ * file are 8-byte aligned, a primitive value never spans two chunks. All accessors use absolute
+ * positions, hence a region can be read by any number of threads at the same time.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapRegion(channel: FileChannel, val offset: Long, val byteLength: Long) {
+
+  private val chunks: Array[MappedByteBuffer] = {
+    val n = ((byteLength + MMapRegion.CHUNK_SIZE - 1) / MMapRegion.CHUNK_SIZE).toInt
+    (0 until n).map { c: Int =>
+      val start = c * MMapRegion.CHUNK_SIZE
+      channel.map(FileChannel.MapMode.READ_ONLY, offset + start, math.min(MMapRegion.CHUNK_SIZE, byteLength - start))
+    }.toArray
+  }
+
+  private def chunk(pos: Long): MappedByteBuffer = chunks((pos >>> MMapRegion.CHUNK_BITS).toInt)
+  private def inChunk(pos: Long): Int = (pos & MMapRegion.CHUNK_MASK).toInt
+
+  def getByte(pos: Long): Byte   = chunk(pos).get(inChunk(pos))
+  def getShort(pos: Long): Short = chunk(pos).getShort(inChunk(pos))
+  def getInt(pos: Long): Int     = chunk(pos).getInt(inChunk(pos))
+  def getLong(pos: Long): Long   = chunk(pos).getLong(inChunk(pos))
+
+}
+
+object MMapRegion {
+  val CHUNK_BITS = 30
+  val CHUNK_SIZE = 1L << CHUNK_BITS
+  val CHUNK_MASK = CHUNK_SIZE - 1
+}
+
+
+/**
+ * An Int array stored in a memory-mapped region.
+ */
+class MMapIntArray(region: MMapRegion) {
+  val length: Int = (region.byteLength / 4).toInt
+  def apply(i: Int): Int = region.getInt(i.toLong << 2)
+}
+
+
+/**
+ * A Long array stored in a memory-mapped region.
+ */
+class MMapLongArray(region: MMapRegion) {
+  val length: Int = (region.byteLength / 8).toInt
+  def apply(i: Int): Long = region.getLong(i.toLong << 3)
+}
+
+
+/**
+ * An array of Int or Short arrays stored in a memory-mapped region. The sub-arrays are stored
+ * in a single flat region, offsets(i) is the index of the first element of sub-array i.
+ * Missing (null) sub-arrays are stored as empty arrays.
+ */
+class MMapJaggedArray(offsets: MMapLongArray, data: MMapRegion) {
+
+  val length: Int = offsets.length - 1
+
+  def size(i: Int): Int = (offsets(i+1) - offsets(i)).toInt
+
+  def getInt(i: Int, j: Int): Int     = data.getInt((offsets(i) + j) << 2)
+  def getShort(i: Int, j: Int): Short = data.getShort((offsets(i) + j) << 1)
+
+  def intArray(i: Int): Array[Int] = intArray(i, size(i))
+
+  /**
+   * Returns the first n elements of sub-array i (or all elements if it has less than n).
+   */
+  def intArray(i: Int, n: Int): Array[Int] = {
+    val start = offsets(i)
+    val a = new Array[Int](math.min(n, size(i)))
+    var j = 0
+    while (j < a.length) {
+      a(j) = data.getInt((start + j) << 2)
+      j += 1
+    }
+    a
+  }
+
+  def shortArray(i: Int): Array[Short] = {
+    val start = offsets(i)
+    val a = new Array[Short](size(i))
+    var j = 0
+    while (j < a.length) {
+      a(j) = data.getShort((start + j) << 1)
+      j += 1
+    }
+    a
+  }
+
+}
+
+
+/**
+ * An array of Strings stored as UTF-8 in a memory-mapped region. Strings are only decoded when
+ * they are requested, comparisons with a key can be done on the raw bytes.
+ *
+ * A null String is stored as an empty String whose offset is encoded as -(offset + 1).
+ */
+class MMapStringArray(offsets: MMapLongArray, data: MMapRegion) {
+
+  val length: Int = offsets.length - 1
+
+  private def start(i: Int): Long = MMapStringArray.decodeOffset(offsets(i))
+
+  def isNull(i: Int): Boolean = offsets(i) < 0
+
+  def byteLength(i: Int): Int = (start(i+1) - start(i)).toInt
+
+  def apply(i: Int): String = {
+    if (isNull(i))
+      return null
+
+    val s = start(i)
+    val bytes = new Array[Byte](byteLength(i))
+    var j = 0
+    while (j < bytes.length) {
+      bytes(j) = data.getByte(s + j)
+      j += 1
+    }
+    new String(bytes, MMapStringArray.UTF8)
+  }
+
+  /**
+   * Compares the String at position i with the UTF-8 encoded key without decoding it.
+   */
+  def equalsAt(i: Int, key: Array[Byte]): Boolean = {
+    if (isNull(i) || byteLength(i) != key.length)
+      return false
+
+    val s = start(i)
+    var j = 0
+    while (j < key.length) {
+      if (data.getByte(s + j) != key(j))
+        return false
+      j += 1
+    }
+    true
+  }
+
+}
+
+object MMapStringArray {
+  val UTF8 = Charset.forName("UTF-8")
+
+  def encodeNullOffset(offset: Long): Long = -offset - 1
+  def decodeOffset(offset: Long): Long = if (offset < 0) -offset - 1 else offset
+}
@@ -0,0 +1,87 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io._
+import org.dbpedia.spotlight.db.memory.util.StringHashTable
+import org.dbpedia.spotlight.db.model.{OntologyTypeStore, ResourceStore}
+import org.dbpedia.spotlight.db.memory.{MemoryOntologyTypeStore, MemoryResourceStore}
+import org.dbpedia.spotlight.exceptions.DBpediaResourceNotFoundException
+import org.dbpedia.spotlight.model.DBpediaResource
+
+/**
+ * A resource store reading its data directly from a memory-mapped file.
+ *
+ * The (small) ontology type store is stored as a serialized Java object
+ * and kept on the heap.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapResourceStore(reader: MMapReader) extends ResourceStore {
+
+  val uriForID     = reader.readStringArray()
+  val supportForID = reader.readIntArray()
+  val typesForID   = reader.readJaggedArray()
+  val idFromURI    = new MMapStringIndex(uriForID, reader.readIntArray())
+
+  val totalSupport = reader.readDouble()
+
+  val ontologyTypeStore: OntologyTypeStore = {
+    val in = new ObjectInputStream(new ByteArrayInputStream(reader.readBytes()))
+    val s = in.readObject().asInstanceOf[MemoryOntologyTypeStore]
+    in.close()
+    s
+  }
+
+  def size = uriForID.length
+
+  @throws(classOf[DBpediaResourceNotFoundException])
+  def getResource(id: Int): DBpediaResource = {
+
+    val uri = if (id >= 0 && id < uriForID.length) uriForID(id) else null
+
+    if (uri == null)
+      throw new DBpediaResourceNotFoundException("DBpediaResource %s not found.".format(uri))
+
+    val res = new DBpediaResource(uri, supportForID(id))
+    res.id = id
+    res.setTypes((0 until typesForID.size(id)).map { j: Int =>
+      ontologyTypeStore.getOntologyType(typesForID.getShort(id, j))
+    }.toList)
+
+    res.setPrior(res.support / totalSupport)
+
+    res
+  }
+
+  @throws(classOf[DBpediaResourceNotFoundException])
+  def getResourceByName(name: String): DBpediaResource = {
+    idFromURI.get(name) match {
+      case id: Int if id > 0 => getResource(id)
+      case _ => throw new DBpediaResourceNotFoundException("Could not find %s".format(name))
+    }
+  }
+
+}
+
+object MMapResourceStore {
+
+  def write(store: MemoryResourceStore, file: File) {
+    val writer = new MMapWriter(file, MMapFile.RESOURCE_STORE)
+
+    writer.writeStringArray(store.uriForID.toArray)
+    writer.writeIntArray(store.supportForID)
+    writer.writeJaggedShortArray(store.typesForID.map { t => if (t == null) null else t.map(_.shortValue()) })
+    writer.writeIntArray(StringHashTable.build(store.uriForID))
+
+    writer.writeDouble(store.totalSupport)
+
+    val bytes = new ByteArrayOutputStream()
+    val out = new ObjectOutputStream(bytes)
+    out.writeObject(store.ontologyTypeStore)
+    out.close()
+    writer.writeBytes(bytes.toByteArray)
+
+    writer.close()
+  }
+
+}
@@ -0,0 +1,86 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.{FileInputStream, File}
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.db.model.{TokenTypeStore, ResourceStore}
+import org.dbpedia.spotlight.db.memory.MemoryStore
+
+/**
+ * Utility object for loading memory-mapped stores and for converting
+ * the Kryo-serialized memory stores (.mem) to the mmap format (.mmap).
+ *
+ * In contrast to the memory stores, mmap stores are not deserialized into the heap.
+ * Their data is read from the OS page cache, which makes loading almost instant and
+ * allows several Spotlight processes on the same machine to share a single copy of the model.
+ *
+ * Usage of the converter:
+ *
+ * mvn scala:run -DmainClass=org.dbpedia.spotlight.db.mmap.MMapStore -Dexec.args="/data/spotlight/en"
+ *
+ * @author Joachim Daiber
+ */
+
+object MMapStore {
+
+  def load[T](file: File, storeType: Long)(create: MMapReader => T): T = {
+    SpotlightLog.info(this.getClass, "Mapping %s...", file.getName)
+    val sStart = System.currentTimeMillis()
+
+    val reader = new MMapReader(file, storeType)
+    val s = create(reader)
+    reader.close()
+
+    SpotlightLog.info(this.getClass, "Done (%d ms)", System.currentTimeMillis() - sStart)
+    s
+  }
+
+  def loadTokenTypeStore(file: File): MMapTokenTypeStore =
+    load(file, MMapFile.TOKEN_TYPE_STORE)(new MMapTokenTypeStore(_))
+
+  def loadSurfaceFormStore(file: File): MMapSurfaceFormStore =
+    load(file, MMapFile.SURFACE_FORM_STORE)(new MMapSurfaceFormStore(_))
+
+  def loadResourceStore(file: File): MMapResourceStore =
+    load(file, MMapFile.RESOURCE_STORE)(new MMapResourceStore(_))
+
+  def loadCandidateMapStore(file: File, resourceStore: ResourceStore): MMapCandidateMapStore = {
+    val s = load(file, MMapFile.CANDIDATE_MAP_STORE)(new MMapCandidateMapStore(_))
+    s.resourceStore = resourceStore
+    s
+  }
+
+  def loadContextStore(file: File, tokenStore: TokenTypeStore): MMapContextStore = {
+    val s = load(file, MMapFile.CONTEXT_STORE)(new MMapContextStore(_))
+    s.tokenStore = tokenStore
+    s
+  }
+
+  /**
+   * Converts all .mem files in the model data folder to .mmap files. The stores are
+   * converted one at a time, so the conversion only needs as much memory as the largest store.
+   *
+   * @param modelDataFolder the folder containing the .mem files (the "model" folder of a Spotlight model)
+   */
+  def convert(modelDataFolder: File) {
+
+    def mem(name: String)  = new File(modelDataFolder, name + ".mem")
+    def mmap(name: String) = new File(modelDataFolder, name + ".mmap")
+
+    SpotlightLog.info(this.getClass, "Converting memory stores in %s to mmap stores...", modelDataFolder.getPath)
+
+    MMapTokenTypeStore.write(MemoryStore.loadTokenTypeStore(new FileInputStream(mem("tokens"))), mmap("tokens"))
+    MMapSurfaceFormStore.write(MemoryStore.loadSurfaceFormStore(new FileInputStream(mem("sf"))), mmap("sf"))
+    MMapResourceStore.write(MemoryStore.loadResourceStore(new FileInputStream(mem("res"))), mmap("res"))
+    MMapCandidateMapStore.write(MemoryStore.loadCandidateMapStore(new FileInputStream(mem("candmap")), null), mmap("candmap"))
+
+    if (mem("context").exists())
+      MMapContextStore.write(MemoryStore.loadContextStore(new FileInputStream(mem("context")), null), mmap("context"))
+
+    SpotlightLog.info(this.getClass, "Done.")
+  }
+
+  def main(args: Array[String]) {
+    convert(new File(args(0), "model"))
+  }
+
+}
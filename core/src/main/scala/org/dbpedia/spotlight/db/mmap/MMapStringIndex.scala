@@ -0,0 +1,44 @@
+package org.dbpedia.spotlight.db.mmap
+
+import org.dbpedia.spotlight.db.memory.util.StringHashTable
+
+/**
+ * A String to ID lookup over an [[org.dbpedia.spotlight.db.mmap.MMapStringArray]].
+ *
+ * The index is a [[org.dbpedia.spotlight.db.memory.util.StringHashTable]] that is built once during
+ * conversion and stored in the mmap file, so there is no need to create a reverse lookup
+ * when the store is loaded.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapStringIndex(keys: MMapStringArray, slots: MMapIntArray) {
+
+  private val mask = slots.length - 1
+
+  /**
+   * Returns the position of the key in the String array or -1 if the key is not known.
+   *
+   * @param key the queried String
+   * @return
+   */
+  def get(key: String): Int = {
+    if (slots.length == 0)
+      return -1
+
+    val bytes = key.getBytes(MMapStringArray.UTF8)
+    var slot = StringHashTable.hash(key) & mask
+    var v = slots(slot)
+
+    while (v != 0) {
+      if (keys.equalsAt(v-1, bytes))
+        return v-1
+
+      slot = (slot + 1) & mask
+      v = slots(slot)
+    }
+
+    -1
+  }
+
+}
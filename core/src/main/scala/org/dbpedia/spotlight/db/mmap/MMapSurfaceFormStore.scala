@@ -0,0 +1,101 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.File
+import org.dbpedia.spotlight.db.memory.util.StringHashTable
+import org.dbpedia.spotlight.db.model.SurfaceFormStore
+import org.dbpedia.spotlight.db.memory.MemorySurfaceFormStore
+import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
+import org.dbpedia.spotlight.model.SurfaceForm
+
+/**
+ * A surface form store reading its data directly from a memory-mapped file.
+ *
+ * Normalized surface forms are kept in a separate String array with their own index, each
+ * normalized surface form points to the ID of the most annotated surface form it was created from.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapSurfaceFormStore(reader: MMapReader) extends SurfaceFormStore {
+
+  val stringForID         = reader.readStringArray()
+  val annotatedCountForID = reader.readIntArray()
+  val totalCountForID     = reader.readIntArray()
+  val idForString         = new MMapStringIndex(stringForID, reader.readIntArray())
+
+  val normalizedStrings   = reader.readStringArray()
+  val idForNormalized     = reader.readIntArray()
+  val normalizedIndex     = new MMapStringIndex(normalizedStrings, reader.readIntArray())
+
+  val totalAnnotatedCount  = reader.readLong().toInt
+  val totalOccurrenceCount = reader.readLong().toInt
+
+  def size = stringForID.length
+
+  def getTotalAnnotatedCount: Int = totalAnnotatedCount
+  def getTotalOccurrenceCount: Int = totalOccurrenceCount
+
+  def iterateSurfaceForms: Seq[SurfaceForm] = {
+    (0 until annotatedCountForID.length).filter(annotatedCountForID(_) > 0).map(sfForID(_))
+  }
+
+  private def sfForID(id: Int) = new SurfaceForm(stringForID(id), id, annotatedCountForID(id), totalCountForID(id))
+
+  private def normalizedID(sf: String): Int = normalizedIndex.get(sf) match {
+    case -1 => -1
+    case i: Int => idForNormalized(i)
+  }
+
+  @throws(classOf[SurfaceFormNotFoundException])
+  def getSurfaceForm(surfaceform: String): SurfaceForm = {
+    val id = idForString.get(surfaceform) match {
+      case -1 => normalizedID(surfaceform)
+      case i: Int => i
+    }
+
+    if (id == -1)
+      throw new SurfaceFormNotFoundException("SurfaceForm %s not found.".format(surfaceform))
+
+    sfForID(id)
+  }
+
+  @throws(classOf[SurfaceFormNotFoundException])
+  def getSurfaceFormNormalized(surfaceform: String): SurfaceForm = {
+    val n = MemorySurfaceFormStore.normalize(surfaceform)
+    val id = normalizedID(n) match {
+      case -1 => idForString.get(n)
+      case i: Int => i
+    }
+
+    if (id == -1)
+      throw new SurfaceFormNotFoundException("SurfaceForm %s not found.".format(surfaceform))
+
+    new SurfaceForm(surfaceform, id, annotatedCountForID(id), totalCountForID(id))
+  }
+
+}
+
+object MMapSurfaceFormStore {
+
+  def write(store: MemorySurfaceFormStore, file: File) {
+
+    val (normalizedStrings, idForNormalized) = MemorySurfaceFormStore.normalizedSurfaceForms(store.stringForID, store.annotatedCountForID)
+
+    val writer = new MMapWriter(file, MMapFile.SURFACE_FORM_STORE)
+
+    writer.writeStringArray(store.stringForID.toArray)
+    writer.writeIntArray(store.annotatedCountForID)
+    writer.writeIntArray(store.totalCountForID)
+    writer.writeIntArray(StringHashTable.build(store.stringForID))
+
+    writer.writeStringArray(normalizedStrings)
+    writer.writeIntArray(idForNormalized)
+    writer.writeIntArray(StringHashTable.build(normalizedStrings))
+
+    writer.writeLong(store.getTotalAnnotatedCount)
+    writer.writeLong(store.getTotalOccurrenceCount)
+
+    writer.close()
+  }
+
+}
@@ -0,0 +1,57 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.File
+import org.dbpedia.spotlight.db.memory.util.StringHashTable
+import org.dbpedia.spotlight.db.model.TokenTypeStore
+import org.dbpedia.spotlight.db.memory.MemoryTokenTypeStore
+import org.dbpedia.spotlight.model.TokenType
+
+/**
+ * A token type store reading its data directly from a memory-mapped file.
+ *
+ * @author Joachim Daiber
+ */
+
+class MMapTokenTypeStore(reader: MMapReader) extends TokenTypeStore {
+
+  val tokenForId  = reader.readStringArray()
+  val counts      = reader.readIntArray()
+  val idFromToken = new MMapStringIndex(tokenForId, reader.readIntArray())
+
+  val totalTokenCount = reader.readLong().toInt
+
+  def size = tokenForId.length
+
+  def getTokenType(token: String): TokenType = {
+    val id = idFromToken.get(token)
+
+    if (id == -1)
+      TokenType.UNKNOWN
+    else
+      new TokenType(id, token, counts(id))
+  }
+
+  def getTokenTypeByID(id: Int): TokenType = new TokenType(id, tokenForId(id), counts(id))
+
+  def getTokenCountByID(id: Int): Int = counts(id)
+
+  def getTotalTokenCount: Int = totalTokenCount
+
+  def getVocabularySize: Int = counts.length
+
+}
+
+object MMapTokenTypeStore {
+
+  def write(store: MemoryTokenTypeStore, file: File) {
+    val writer = new MMapWriter(file, MMapFile.TOKEN_TYPE_STORE)
+
+    writer.writeStringArray(store.tokenForId.toArray)
+    writer.writeIntArray(store.counts)
+    writer.writeIntArray(StringHashTable.build(store.tokenForId))
+    writer.writeLong(store.getTotalTokenCount)
+
+    writer.close()
+  }
+
+}
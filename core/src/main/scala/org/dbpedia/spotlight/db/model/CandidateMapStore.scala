@@ -20,4 +20,30 @@ trait CandidateMapStore {
    */
   def getCandidates(surfaceform: SurfaceForm): Set[Candidate]
 
+  /**
+   * Returns the IDs and counts of the n candidates of a surface form with
+   * the highest co-occurrence counts, sorted by decreasing count.
+   *
+   * @param surfaceformID ID of the surface form
+   * @param n maximum number of candidates
+   * @return
+   */
+  def getTopCandidateIDs(surfaceformID: Int, n: Int): CandidateSlice
+
+}
+
+
+/**
+ * A view of the candidates of a surface form as a slice of the flat
+ * candidate ID and count arrays of a [[org.dbpedia.spotlight.db.model.CandidateMapStore]].
+ */
+class CandidateSlice(ids: Array[Int], counts: Array[Int], start: Int, val length: Int) {
+
+  def resourceID(i: Int): Int = ids(start + i)
+  def count(i: Int): Int      = counts(start + i)
+
+}
+
+object CandidateSlice {
+  val empty = new CandidateSlice(Array[Int](), Array[Int](), 0, 0)
 }
@@ -41,6 +41,124 @@ trait ContextStore {
   def getTotalTokenCount(resource: DBpediaResource): Int
 
 
+  /**
+   * Returns the token IDs and counts for a DBpedia resource, sorted by token ID.
+   * The arrays may be shared with the store and must not be modified.
+   *
+   * @param resource the resource object
+   * @return co-occurrence count for all tokens occurring with the DBpedia resource
+   */
+  def getContextTokenCounts(resource: DBpediaResource): TokenCounts = TokenCounts.fromMap(getContextCounts(resource))
+
+}
+
+
+/**
+ * Token IDs and their counts as parallel arrays sorted by token ID, used to represent
+ * the context of a DBpedia resource or a query without creating objects per token.
+ *
+ * Tokens that are not in the token store (unknown tokens and stopwords) have negative IDs,
+ * they are kept in queries but never occur in the context of a DBpedia resource.
+ */
+class TokenCounts(val tokens: Array[Int], val counts: Array[Int], val length: Int) {
+
+  def this(tokens: Array[Int], counts: Array[Int]) = this(tokens, counts, tokens.length)
+
+  def token(i: Int): Int = tokens(i)
+  def count(i: Int): Int = counts(i)
+
+}
+
+object TokenCounts {
+
+  val UNKNOWN_ID  = -2
+  val STOPWORD_ID = -1
+
+  val empty = new TokenCounts(Array[Int](), Array[Int](), 0)
+
+  /**
+   * ID of the token type within token counts. [[org.dbpedia.spotlight.model.TokenType.UNKNOWN]] and
+   * [[org.dbpedia.spotlight.model.TokenType.STOPWORD]] share the ID 0 with a real token,
+   * hence they get their own IDs.
+   */
+  def id(tokenType: TokenType): Int = {
+    if (tokenType.equals(TokenType.UNKNOWN))
+      UNKNOWN_ID
+    else if (tokenType.equals(TokenType.STOPWORD))
+      STOPWORD_ID
+    else
+      tokenType.id
+  }
+
+  /**
+   * Count of the token in the token store for a token ID within token counts.
+   */
+  def tokenCount(tokenID: Int, tokenStore: TokenTypeStore): Int = tokenID match {
+    case UNKNOWN_ID  => TokenType.UNKNOWN.count
+    case STOPWORD_ID => TokenType.STOPWORD.count
+    case _           => tokenStore.getTokenCountByID(tokenID)
+  }
+
+  /**
+   * Counts the token types in the sequence, e.g. the tokens of a text.
+   */
+  def fromTokenTypes(tokenTypes: Seq[TokenType]): TokenCounts = {
+    val ids = tokenTypes.map(id(_)).toArray
+    java.util.Arrays.sort(ids)
+
+    val tokens = new Array[Int](ids.length)
+    val counts = new Array[Int](ids.length)
+    var n = 0
+    var i = 0
+    while (i < ids.length) {
+      if (n > 0 && tokens(n-1) == ids(i)) {
+        counts(n-1) += 1
+      } else {
+        tokens(n) = ids(i)
+        counts(n) = 1
+        n += 1
+      }
+      i += 1
+    }
+
+    new TokenCounts(tokens, counts, n)
+  }
+
+  def fromMap(tokenCounts: Map[TokenType, Int]): TokenCounts = {
+    val tokens = new Array[Int](tokenCounts.size())
+    val counts = new Array[Int](tokenCounts.size())
+
+    var i = 0
+    val it = tokenCounts.entrySet().iterator()
+    while (it.hasNext) {
+      val e = it.next()
+      tokens(i) = id(e.getKey)
+      counts(i) = e.getValue
+      i += 1
+    }
+
+    sort(tokens, counts)
+    new TokenCounts(tokens, counts)
+  }
+
+  /**
+   * Sorts the parallel arrays of token IDs and counts by token ID (in place).
+   */
+  def sort(tokens: Array[Int], counts: Array[Int]) {
+    var sorted = true
+    var i = 1
+    while (sorted && i < tokens.length) {
+      sorted = tokens(i-1) <= tokens(i)
+      i += 1
+    }
 
+    if (!sorted) {
+      val order = (0 until tokens.length).sortBy(tokens(_)).toArray
+      val t = order.map(tokens(_))
+      val c = order.map(counts(_))
+      System.arraycopy(t, 0, tokens, 0, t.length)
+      System.arraycopy(c, 0, counts, 0, c.length)
+    }
+  }
 
 }
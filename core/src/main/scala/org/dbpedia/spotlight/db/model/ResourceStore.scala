@@ -15,6 +15,8 @@ trait ResourceStore {
 
   /**
    * Returns the DBpedia resource corresponding to the internal ID.
+   * Implementations may return the same (shared) object for every call, hence
+   * the resource must not be modified.
    *
    * @param id internal ID of the DBpedia resource
    * @throws org.dbpedia.spotlight.exceptions.DBpediaResourceNotFoundException
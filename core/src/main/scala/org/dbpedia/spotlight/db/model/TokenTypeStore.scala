@@ -29,6 +29,14 @@ trait TokenTypeStore {
    */
   def getTokenTypeByID(id: Int): TokenType
 
+  /**
+   * Returns the count for a token without creating a TokenType object.
+   *
+   * @param id internal ID of the TokenType object
+   * @return
+   */
+  def getTokenCountByID(id: Int): Int
+
   /**
    * Returns the total count of all tokens in the database.
    *
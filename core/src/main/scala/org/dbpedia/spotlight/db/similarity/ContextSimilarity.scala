@@ -2,11 +2,16 @@ package org.dbpedia.spotlight.db.similarity
 
 import collection.mutable
 import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
+import org.dbpedia.spotlight.db.model.TokenCounts
 
 
 /**
  * A context similarity calculates a score for DBpedia resource candidates given its surrounding textual context.
  *
+ * The query and the contexts of the candidates are given as [[org.dbpedia.spotlight.db.model.TokenCounts]] (token IDs
+ * sorted in ascending order with their counts), so that they can be compared with a merge join. The Map-based
+ * methods convert their arguments and call the array-based methods.
+ *
  * @author Joachim Daiber
  */
 
@@ -17,11 +22,11 @@ trait ContextSimilarity {
    * as q query of tokens and their counts.
    *
    * @param query the text context of the document
-   * @param contextCounts the counts for all tokens in the context of the DBpedia resources
-   * @param totalContextCounts total count of the tokens in the context of a DBpedia resource
-   * @return
+   * @param contexts the counts for all tokens in the context of each DBpedia resource
+   * @param totalContextCounts total count of the tokens in the context of each DBpedia resource
+   * @return the scores in the same order as the contexts
    */
-  def score(query: java.util.Map[TokenType, Int], contextCounts: Map[DBpediaResource, java.util.Map[TokenType, Int]], totalContextCounts: Map[DBpediaResource, Int]): mutable.Map[DBpediaResource, Double]
+  def score(query: TokenCounts, contexts: Array[TokenCounts], totalContextCounts: Array[Int]): Array[Double]
 
 
   /**
@@ -32,6 +37,79 @@ trait ContextSimilarity {
    * @param query the text context of the document
    * @return
    */
-  def nilScore(query: java.util.Map[TokenType, Int]): Double
+  def nilScore(query: TokenCounts): Double
+
+
+  /**
+   * Prepares the query for scoring the contexts of single DBpedia resources. Returns null if the score
+   * of a DBpedia resource depends on the other candidates, the contexts must then be scored together.
+   *
+   * @param query the text context of the document
+   * @return
+   */
+  def scorer(query: TokenCounts): ContextScorer = null
+
+
+  /**
+   * Calculate the context score for all DBpedia resources in the given text. The text context is specified
+   * as q query of tokens and their counts.
+   *
+   * @param query the text context of the document
+   * @param contextCounts the counts for all tokens in the context of the DBpedia resources
+   * @param totalContextCounts total count of the tokens in the context of a DBpedia resource
+   * @return
+   */
+  def score(query: java.util.Map[TokenType, Int], contextCounts: Map[DBpediaResource, java.util.Map[TokenType, Int]], totalContextCounts: Map[DBpediaResource, Int]): mutable.Map[DBpediaResource, Double] = {
+    val resources = contextCounts.keys.toArray
+    val scores = score(
+      TokenCounts.fromMap(query),
+      resources.map{ res: DBpediaResource => TokenCounts.fromMap(contextCounts(res)) },
+      resources.map(totalContextCounts(_))
+    )
+
+    mutable.HashMap(resources.zip(scores): _*)
+  }
+
+
+  /**
+   * Calculate the context score for the context alone, see nilScore(query: TokenCounts).
+   *
+   * @param query the text context of the document
+   * @return
+   */
+  def nilScore(query: java.util.Map[TokenType, Int]): Double = nilScore(TokenCounts.fromMap(query))
+
+}
+
+
+/**
+ * Context similarity for a single query, scoring the context of one DBpedia resource at a time.
+ */
+trait ContextScorer {
+
+  /**
+   * Calculate the context score of a DBpedia resource.
+   *
+   * @param context the counts for all tokens in the context of the DBpedia resource
+   * @param totalContextCount total count of the tokens in the context of the DBpedia resource
+   * @return
+   */
+  def score(context: TokenCounts, totalContextCount: Int): Double
+
+  /**
+   * Upper bound for the context score of any DBpedia resource with the total count of tokens,
+   * used to skip DBpedia resources without reading their context.
+   *
+   * @param totalContextCount total count of the tokens in the context of the DBpedia resource
+   * @return
+   */
+  def upperBound(totalContextCount: Int): Double
+
+}
+
+object ContextScorer {
+
+  //Relative tolerance added to upper bounds to account for rounding:
+  val EPSILON = 1e-9
 
 }
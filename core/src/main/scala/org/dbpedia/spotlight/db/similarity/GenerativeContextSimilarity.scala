@@ -1,10 +1,7 @@
 package org.dbpedia.spotlight.db.similarity
 
 import org.dbpedia.spotlight.model.{DBpediaResource, TokenType}
-import collection.mutable
-import org.dbpedia.spotlight.db.model.TokenTypeStore
-import scala.collection.JavaConversions._
-import breeze.numerics._
+import org.dbpedia.spotlight.db.model.{TokenCounts, TokenTypeStore}
 
 /**
  * Generative context similarity based on Han et. al
@@ -59,22 +56,134 @@ class GenerativeContextSimilarity(tokenTypeStore: TokenTypeStore) extends Contex
     breeze.numerics.logSum(breeze.numerics.log(lambda) + breeze.numerics.log(pML), breeze.numerics.log(1-lambda) + pLM(token))
   }
 
-  def score(query: java.util.Map[TokenType, Int], contextCounts: Map[DBpediaResource, java.util.Map[TokenType, Int]], totalContextCounts: Map[DBpediaResource, Int]): mutable.Map[DBpediaResource, Double] = {
-    val contextScores = mutable.HashMap[DBpediaResource, Double]()
-    contextCounts.keys.map( res => {
-      contextScores.put(
-        res,
-        query.map({ case(t: TokenType, c: Int) => (breeze.numerics.log(c.toDouble) + p(t, res, contextCounts.get(res).get, totalContextCounts.get(res).get)) })
-          .filter({ s: Double => s != -inf}).foldLeft(0.0)(_+_)
-      )
-    })
-    contextScores
+  private val logLambda = breeze.numerics.log(lambda)
+  private val logOneMinusLambda = breeze.numerics.log(1-lambda)
+
+  /**
+   * Smoothed LM log probabilities of all tokens in the token store (see pLM), indexed by token ID,
+   * computed once when the model is loaded.
+   */
+  val lmLogProbs: Array[Double] = {
+    val norm = breeze.numerics.log(tokenTypeStore.getTotalTokenCount + tokenTypeStore.getVocabularySize)
+    val lm = new Array[Double](tokenTypeStore.getVocabularySize)
+    var id = 0
+    while (id < lm.length) {
+      lm(id) = breeze.numerics.log(tokenTypeStore.getTokenCountByID(id) + 1.0) - norm
+      id += 1
+    }
+    lm
+  }
+
+  private val unknownLMLogProb = pLM(TokenType.UNKNOWN)
+  private val stopwordLMLogProb = pLM(TokenType.STOPWORD)
+
+  /**
+   * Natural logarithms of small counts, larger counts are computed on demand.
+   */
+  private val logCounts: Array[Double] = Array.tabulate(GenerativeContextSimilarity.LOG_TABLE_SIZE)(c => breeze.numerics.log(c.toDouble))
+
+  @inline
+  private def logCount(c: Int): Double = if (c < logCounts.length) logCounts(c) else breeze.numerics.log(c.toDouble)
+
+  /**
+   * Smoothed LM log probability for a single token ID of a query.
+   */
+  private def pLM(tokenID: Int): Double = tokenID match {
+    case TokenCounts.UNKNOWN_ID  => unknownLMLogProb
+    case TokenCounts.STOPWORD_ID => stopwordLMLogProb
+    case _                       => lmLogProbs(tokenID)
   }
 
-  def nilScore(query: java.util.Map[TokenType, Int]): Double = {
-      query.map{ case(t: TokenType, c: Int) =>
-        (breeze.numerics.log(c.toDouble) + breeze.numerics.log(1-lambda) + pLM(t))
-      }.foldLeft(0.0)(_+_)
+  /**
+   * The score of the context of a candidate is the NIL score of the query plus the difference between
+   * the probability of the matching tokens in the context of the candidate and their probability in
+   * the general LM. All tokens not in the context of the candidate have the same probability as
+   * for the NIL score, hence only the matching tokens need to be scored for each candidate.
+   */
+  def score(query: TokenCounts, contexts: Array[TokenCounts], totalContextCounts: Array[Int]): Array[Double] = {
+    val s = scorer(query)
+
+    val scores = new Array[Double](contexts.length)
+    var i = 0
+    while (i < contexts.length) {
+      scores(i) = s.score(contexts(i), totalContextCounts(i))
+      i += 1
+    }
+
+    scores
   }
 
-}
\ No newline at end of file
+  override def scorer(query: TokenCounts): ContextScorer = new GenerativeContextScorer(query)
+
+  /**
+   * Scores contexts for a single query, the LM probabilities and the NIL score only depend on the query.
+   */
+  class GenerativeContextScorer(query: TokenCounts) extends ContextScorer {
+
+    private val queryLM = Array.tabulate(query.length) { j: Int => logOneMinusLambda + pLM(query.token(j)) }
+    private val nil = nilScore(query)
+
+    //Highest possible gain over the NIL score for the m best matching tokens (all with P_ML = 1):
+    private val maxGain = queryLM.map { lm: Double => breeze.numerics.logSum(logLambda, lm) - lm }
+      .sorted.reverse.scanLeft(0.0)(_ + _)
+
+    def score(context: TokenCounts, totalContextCount: Int): Double = {
+      if (totalContextCount == 0) {
+        //Without any context, P_ML is undefined (0/0) for all tokens:
+        return Double.NaN
+      }
+
+      val logTotal = breeze.numerics.log(totalContextCount.toDouble)
+      var s = nil
+
+      //Merge join of the query and the context, both sorted by token ID:
+      var j = 0
+      var k = 0
+      while (j < query.length && k < context.length) {
+        val token = query.token(j)
+        if (context.token(k) < token) {
+          k += 1
+        } else {
+          if (context.token(k) == token) {
+            val logPML = logCount(context.count(k)) - logTotal
+            s += breeze.numerics.logSum(logLambda + logPML, queryLM(j)) - queryLM(j)
+            k += 1
+          }
+          j += 1
+        }
+      }
+
+      s
+    }
+
+    /**
+     * A context with n tokens in total contains at most n of the query tokens.
+     */
+    def upperBound(totalContextCount: Int): Double = {
+      if (totalContextCount == 0)
+        Double.NegativeInfinity
+      else {
+        val bound = nil + maxGain(math.min(totalContextCount, query.length))
+        bound + ContextScorer.EPSILON * (1.0 + math.abs(bound))
+      }
+    }
+
+  }
+
+  def nilScore(query: TokenCounts): Double = {
+    var s = 0.0
+    var j = 0
+    while (j < query.length) {
+      s += logCount(query.count(j)) + logOneMinusLambda + pLM(query.token(j))
+      j += 1
+    }
+    s
+  }
+
+}
+
+object GenerativeContextSimilarity {
+
+  val LOG_TABLE_SIZE = 1024
+
+}
@@ -3,9 +3,8 @@ package org.dbpedia.spotlight.db.similarity
 import scala.collection.JavaConversions._
 
 import scala.Int
-import collection.immutable
-import collection.mutable
-import org.dbpedia.spotlight.model.{TokenType, DBpediaResource, Candidate, Token}
+import org.dbpedia.spotlight.model.TokenType
+import org.dbpedia.spotlight.db.model.TokenCounts
 
 /**
  * A context similarity model based on TF-ICF (modified TF-IDF).
@@ -78,26 +77,124 @@ class TFICFSimilarity extends ContextSimilarity {
     document.size().toDouble //math.sqrt( document.keys.map{ v: TokenType => math.pow(v.count, 2) }.sum )
   }
 
-  def score(query: java.util.Map[TokenType, Int], candidateContexts: immutable.Map[DBpediaResource, java.util.Map[TokenType, Int]], totalContextCounts: Map[DBpediaResource, Int]): mutable.Map[DBpediaResource, Double] = {
+  /**
+   * Scores all candidate contexts for the query in two steps: in a single pass over the contexts, the
+   * positions of the query tokens found in each context and their counts are collected. This gives
+   * the number of candidates containing each query token, hence its ICF. The score of each candidate
+   * is then the sparse dot product of its collected counts with the ICFs.
+   *
+   * The result is the same as the sum of tficf over all query tokens divided by norm for each candidate.
+   */
+  def score(query: TokenCounts, contexts: Array[TokenCounts], totalContextCounts: Array[Int]): Array[Double] = {
+
+    //The matching query positions and counts of all candidates, the matches of candidate c are in [offsets(c), offsets(c+1)):
+    var matchQuery = new Array[Int](math.max(16, query.length))
+    var matchCount = new Array[Int](matchQuery.length)
+    val offsets = new Array[Int](contexts.length + 1)
+
+    //Number of candidates containing each query token:
+    val candidateFrequency = new Array[Int](query.length)
+
+    var n = 0
+    var c = 0
+    while (c < contexts.length) {
+      val context = contexts(c)
 
-    val allDocs = candidateContexts.values
-    val scores = mutable.HashMap[DBpediaResource, Double]()
-    query.foreach{
-      case (token, count) => {
-        candidateContexts.keys foreach { candRes: DBpediaResource =>
-          scores(candRes) = scores.getOrElse(candRes, 0.0) + tficf(token, candidateContexts(candRes), allDocs)
+      //Gallop through contexts that are much longer than the query:
+      val gallop = context.length > TFICFSimilarity.GALLOP_FACTOR * query.length
+
+      var j = 0
+      var k = 0
+      while (j < query.length && k < context.length) {
+        val token = query.token(j)
+        if (gallop)
+          k = TFICFSimilarity.seek(context, token, k)
+
+        if (k < context.length) {
+          if (token < context.token(k))
+            j += 1
+          else if (token > context.token(k))
+            k += 1
+          else {
+            if (n == matchQuery.length) {
+              matchQuery = java.util.Arrays.copyOf(matchQuery, n * 2)
+              matchCount = java.util.Arrays.copyOf(matchCount, n * 2)
+            }
+            matchQuery(n) = j
+            matchCount(n) = context.count(k)
+            candidateFrequency(j) += 1
+            n += 1
+            j += 1
+            k += 1
+          }
         }
       }
+
+      c += 1
+      offsets(c) = n
     }
-    candidateContexts.keys foreach { candRes: DBpediaResource =>
-      scores(candRes) = scores(candRes) / norm(candidateContexts(candRes))
+
+    val icfs = new Array[Double](query.length)
+    var j = 0
+    while (j < query.length) {
+      icfs(j) = if (candidateFrequency(j) == 0)
+        0.0
+      else
+        math.log(contexts.length / candidateFrequency(j).toDouble) + 1.0
+      j += 1
+    }
+
+    val scores = new Array[Double](contexts.length)
+    c = 0
+    while (c < contexts.length) {
+      var score = 0.0
+      var m = offsets(c)
+      while (m < offsets(c + 1)) {
+        score += matchCount(m) * icfs(matchQuery(m))
+        m += 1
+      }
+      scores(c) = score / contexts(c).length
+      c += 1
     }
 
     scores
   }
 
-  def nilScore(query: java.util.Map[TokenType, Int]): Double = {
+  def nilScore(query: TokenCounts): Double = {
     0.0
   }
 
 }
+
+object TFICFSimilarity {
+
+  //Binary search is used to find the next query token in contexts that are this many times longer than the query:
+  val GALLOP_FACTOR = 8
+
+  /**
+   * Returns the first position p >= from in the context with context.token(p) >= token or context.length.
+   */
+  def seek(context: TokenCounts, token: Int, from: Int): Int = {
+    //Find a range that contains the position by doubling the step:
+    var lo = from
+    var step = 1
+    var hi = from
+    while (hi < context.length && context.token(hi) < token) {
+      lo = hi + 1
+      hi = from + step
+      step *= 2
+    }
+    hi = math.min(hi, context.length)
+
+    //Binary search in [lo, hi):
+    while (lo < hi) {
+      val mid = (lo + hi) >>> 1
+      if (context.token(mid) < token)
+        lo = mid + 1
+      else
+        hi = mid
+    }
+    lo
+  }
+
+}
@@ -22,6 +22,7 @@ import org.dbpedia.spotlight.exceptions.InputException
 import org.dbpedia.spotlight.exceptions.ItemNotFoundException
 import org.dbpedia.spotlight.exceptions.SearchException
 import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
 import java.io.IOException
 
 /**
@@ -43,6 +44,20 @@ trait ParagraphDisambiguator {
      */
     def disambiguate(paragraph: Paragraph): List[DBpediaResourceOccurrence]
 
+    /**
+     * Executes disambiguation per paragraph. The result is the same as for disambiguate(paragraph) without the
+     * occurrences whose resource is rejected by the filter, disambiguators may use the filter to skip occurrences
+     * without any accepted candidate. Disambiguators that cannot filter their candidates ignore the filter, the
+     * annotation filters of the request are applied to their results instead.
+     *
+     * @param paragraph
+     * @param filter the constraints of the request on the candidates, null to accept all candidates
+     * @return
+     */
+    def disambiguate(paragraph: Paragraph, filter: CandidateFilter): List[DBpediaResourceOccurrence] = {
+        disambiguate(paragraph)
+    }
+
     /**
      * Executes disambiguation per occurrence, returns a list of possible candidates.
      * Can be seen as a ranking (rather than classification) task: query instance in, ranked list of target URIs out.
@@ -59,6 +74,63 @@ trait ParagraphDisambiguator {
     @throws(classOf[InputException])
     def bestK(paragraph: Paragraph, k: Int): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]
 
+    /**
+     * Returns the best k candidates for each occurrence, occurrences whose best candidate is rejected by the filter
+     * may have no candidates (see disambiguate(paragraph, filter)).
+     *
+     * @param paragraph
+     * @param k
+     * @param filter the constraints of the request on the candidates, null to accept all candidates
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[ItemNotFoundException])
+    @throws(classOf[InputException])
+    def bestK(paragraph: Paragraph, k: Int, filter: CandidateFilter): Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]] = {
+        bestK(paragraph, k)
+    }
+
+    /**
+     * Executes disambiguation for a batch of paragraphs, the results are in the order of the paragraphs.
+     * Disambiguators can override this to share work between the paragraphs of the batch.
+     *
+     * @param paragraphs
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[InputException])
+    def disambiguateBatch(paragraphs: List[Paragraph]): List[List[DBpediaResourceOccurrence]] = {
+        paragraphs.map(disambiguate(_))
+    }
+
+    /**
+     * Executes disambiguation for a batch of paragraphs (see disambiguate(paragraph, filter)).
+     *
+     * @param paragraphs
+     * @param filter the constraints of the request on the candidates, null to accept all candidates
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[InputException])
+    def disambiguateBatch(paragraphs: List[Paragraph], filter: CandidateFilter): List[List[DBpediaResourceOccurrence]] = {
+        paragraphs.map(disambiguate(_, filter))
+    }
+
+    /**
+     * Returns the best k candidates for each occurrence of each paragraph of a batch,
+     * the results are in the order of the paragraphs.
+     *
+     * @param paragraphs
+     * @param k
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[ItemNotFoundException])
+    @throws(classOf[InputException])
+    def bestKBatch(paragraphs: List[Paragraph], k: Int): List[Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]] = {
+        paragraphs.map(bestK(_, k))
+    }
+
     /**
      * Every disambiguator has a name that describes its settings (used in evaluation to compare results)
      * @return a short description of the Disambiguator
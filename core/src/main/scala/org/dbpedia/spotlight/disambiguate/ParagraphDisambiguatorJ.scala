@@ -22,6 +22,7 @@ import org.dbpedia.spotlight.exceptions.InputException
 import org.dbpedia.spotlight.exceptions.ItemNotFoundException
 import org.dbpedia.spotlight.exceptions.SearchException
 import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
 import scala.collection.JavaConverters._
 import java.util.HashMap
 
@@ -44,6 +45,17 @@ class ParagraphDisambiguatorJ (val disambiguator : ParagraphDisambiguator) {
         disambiguator.disambiguate(paragraph).asJava
     }
 
+    /**
+     * Executes disambiguation per paragraph without the occurrences whose resource is rejected by the filter.
+     *
+     * @param paragraph
+     * @param filter the constraints of the request on the candidates, null to accept all candidates
+     * @return
+     */
+    def disambiguate(paragraph: Paragraph, filter: CandidateFilter): java.util.List[DBpediaResourceOccurrence] = {
+        disambiguator.disambiguate(paragraph, filter).asJava
+    }
+
     /**
      * Executes disambiguation per occurrence, returns a list of possible candidates.
      * Can be seen as a ranking (rather than classification) task: query instance in, ranked list of target URIs out.
@@ -64,6 +76,31 @@ class ParagraphDisambiguatorJ (val disambiguator : ParagraphDisambiguator) {
         return acc;
     }
 
+    /**
+     * Executes disambiguation for a batch of paragraphs, the results are in the order of the paragraphs.
+     *
+     * @param paragraphs
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[InputException])
+    def disambiguateBatch(paragraphs: java.util.List[Paragraph]): java.util.List[java.util.List[DBpediaResourceOccurrence]] = {
+        disambiguator.disambiguateBatch(paragraphs.asScala.toList).map(_.asJava).asJava
+    }
+
+    /**
+     * Executes disambiguation for a batch of paragraphs without the occurrences whose resource is rejected by the filter.
+     *
+     * @param paragraphs
+     * @param filter the constraints of the request on the candidates, null to accept all candidates
+     * @return
+     */
+    @throws(classOf[SearchException])
+    @throws(classOf[InputException])
+    def disambiguateBatch(paragraphs: java.util.List[Paragraph], filter: CandidateFilter): java.util.List[java.util.List[DBpediaResourceOccurrence]] = {
+        disambiguator.disambiguateBatch(paragraphs.asScala.toList, filter).map(_.asJava).asJava
+    }
+
     /**
      * Every disambiguator has a name that describes its settings (used in evaluation to compare results)
      * @return a short description of the Disambiguator
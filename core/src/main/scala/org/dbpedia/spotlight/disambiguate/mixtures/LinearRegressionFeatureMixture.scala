@@ -1,6 +1,6 @@
 package org.dbpedia.spotlight.disambiguate.mixtures
 
-import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
+import org.dbpedia.spotlight.model.{FeatureKey, DBpediaResourceOccurrence}
 
 /**
  * A linear regression mixture based on [[org.dbpedia.spotlight.model.Feature]]s.
@@ -14,14 +14,69 @@ import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
 
 class LinearRegressionFeatureMixture(weightedFeatures: List[Pair[String, Double]], offset: Double) extends Mixture(0) {
 
+  private val keys    = weightedFeatures.map(f => FeatureKey(f._1)).toArray
+  private val weights = weightedFeatures.map(_._2).toArray
+
   def getScore(occurrence: DBpediaResourceOccurrence) : Double = {
 
-    weightedFeatures.map{ case (f, w) =>
-      occurrence.featureValue[Double](f).get * w
-    }.sum + offset
+    var score = 0.0
+    var i = 0
+    while (i < keys.length) {
+      if (!occurrence.hasFeature(keys(i)))
+        throw new NoSuchElementException("Feature %s is not set.".format(keys(i).name))
+      score += occurrence.scoreValue(keys(i)) * weights(i)
+      i += 1
+    }
+    score + offset
+
+  }
+
+  private val columns = keys.map(k => Mixture.column(k.name))
+
+  override val isColumnar: Boolean = !columns.contains(-1)
+
+  override def getScore(pE: Double, pSE: Double, pCE: Double): Double = {
+    if (!isColumnar)
+      return super.getScore(pE, pSE, pCE)
 
+    var score = 0.0
+    var j = 0
+    while (j < columns.length) {
+      score += Mixture.columnValue(columns(j), pE, pSE, pCE) * weights(j)
+      j += 1
+    }
+    score + offset
   }
 
+  override def getScores(pE: Array[Double], pSE: Array[Double], pCE: Array[Double], n: Int, scores: Array[Double]) {
+    if (!isColumnar)
+      return super.getScores(pE, pSE, pCE, n, scores)
+
+    java.util.Arrays.fill(scores, 0, n, 0.0)
+
+    //Add the weighted features column by column, for each candidate in the same order as getScore:
+    val values = Array(pE, pSE, pCE)
+    var j = 0
+    while (j < columns.length) {
+      val column = values(columns(j))
+      val w = weights(j)
+      var i = 0
+      while (i < n) {
+        scores(i) += column(i) * w
+        i += 1
+      }
+      j += 1
+    }
+
+    var i = 0
+    while (i < n) {
+      scores(i) += offset
+      i += 1
+    }
+  }
+
+  override def isMonotoneInContext: Boolean = weightedFeatures.forall{ case (f, w) => f != "P(c|e)" || w >= 0 }
+
   override def toString = "LinearRegressionFeatureMixture[%s]".format(
     weightedFeatures.map{ case (f, w) => f + " * " + w }.mkString(" ") + " + " + offset
   )
@@ -1,6 +1,6 @@
 package org.dbpedia.spotlight.disambiguate.mixtures
 
-import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
+import org.dbpedia.spotlight.model.{FeatureKey, DBpediaResourceOccurrence}
 
 /**
  * Created by IntelliJ IDEA.
@@ -14,6 +14,81 @@ abstract class Mixture(val contextWeight: Double) {
 
     def getScore(occurrence: DBpediaResourceOccurrence) : Double
 
+    /**
+     * True if the score does not decrease when the contextual score (feature P(c|e)) increases,
+     * which allows to skip candidates based on an upper bound for their contextual score.
+     */
+    def isMonotoneInContext: Boolean = false
+
+    /**
+     * True if the score only depends on the features P(e), P(s|e) and P(c|e). Candidates can then be
+     * scored directly from the values of these features, without creating occurrences.
+     */
+    def isColumnar: Boolean = false
+
+    /**
+     * Score of a candidate with the features P(e), P(s|e) and P(c|e), which is the same as the
+     * score of getScore for an occurrence with these features. Only supported if isColumnar.
+     */
+    def getScore(pE: Double, pSE: Double, pCE: Double): Double = {
+        throw new UnsupportedOperationException("%s can not score feature columns.".format(this.toString))
+    }
+
+    /**
+     * Scores the first n candidates given by the columns of their features P(e), P(s|e) and P(c|e)
+     * and writes the scores to scores. Only supported if isColumnar.
+     */
+    def getScores(pE: Array[Double], pSE: Array[Double], pCE: Array[Double], n: Int, scores: Array[Double]) {
+        var i = 0
+        while (i < n) {
+            scores(i) = getScore(pE(i), pSE(i), pCE(i))
+            i += 1
+        }
+    }
+
     override def toString: String
 
-}
\ No newline at end of file
+}
+
+object Mixture {
+
+    //Features that can be used by columnar mixtures and their column index:
+    val COLUMNS = Array(FeatureKey.P_E, FeatureKey.P_SE, FeatureKey.P_CE)
+
+    /**
+     * @return the column of the feature in getScores or -1 if it is not available as a column
+     */
+    def column(featureName: String): Int = COLUMNS.indexWhere(_.name == featureName)
+
+    def columnValue(column: Int, pE: Double, pSE: Double, pCE: Double): Double = column match {
+        case 0 => pE
+        case 1 => pSE
+        case 2 => pCE
+    }
+
+    /**
+     * The logarithm of the sum of the exponentials of the first n values and the value extra,
+     * which is the denominator of the softmax function in log space.
+     */
+    def logSumExp(values: Array[Double], n: Int, extra: Double): Double = {
+        var max = extra
+        var i = 0
+        while (i < n) {
+            if (values(i) > max)
+                max = values(i)
+            i += 1
+        }
+
+        if (max.isInfinite)
+            return max
+
+        var sum = 0.0
+        i = 0
+        while (i < n) {
+            sum += math.exp(values(i) - max)
+            i += 1
+        }
+        max + math.log(sum + math.exp(extra - max))
+    }
+
+}
@@ -1,7 +1,6 @@
 package org.dbpedia.spotlight.disambiguate.mixtures
 
-import org.dbpedia.spotlight.model.{Feature, DBpediaResourceOccurrence}
-import breeze.numerics._
+import org.dbpedia.spotlight.model.{FeatureKey, DBpediaResourceOccurrence}
 
 /**
  * Multiplication of scores/probabilities. Assumes probabilities are logarithms.
@@ -11,9 +10,56 @@ import breeze.numerics._
 
 class UnweightedMixture(features: Set[String]) extends Mixture(1) {
 
+  private val keys = features.toArray.map(FeatureKey(_))
+
   def getScore(occurrence: DBpediaResourceOccurrence): Double = {
-    val fs = occurrence.features.values.filter({ f: Feature => features.contains(f.featureName) }).map(_.value.asInstanceOf[Double])
-    fs.foldLeft(0.0)(_+_)
+    var score = 0.0
+    var i = 0
+    while (i < keys.length) {
+      if (occurrence.hasFeature(keys(i)))
+        score += occurrence.scoreValue(keys(i))
+      i += 1
+    }
+    score
+  }
+
+  override def isMonotoneInContext: Boolean = true
+
+  //Columns of the features, in the same order as keys:
+  private val columns = keys.map(k => Mixture.column(k.name))
+
+  override val isColumnar: Boolean = !columns.contains(-1)
+
+  override def getScore(pE: Double, pSE: Double, pCE: Double): Double = {
+    if (!isColumnar)
+      return super.getScore(pE, pSE, pCE)
+
+    var score = 0.0
+    var j = 0
+    while (j < columns.length) {
+      score += Mixture.columnValue(columns(j), pE, pSE, pCE)
+      j += 1
+    }
+    score
+  }
+
+  override def getScores(pE: Array[Double], pSE: Array[Double], pCE: Array[Double], n: Int, scores: Array[Double]) {
+    if (!isColumnar)
+      return super.getScores(pE, pSE, pCE, n, scores)
+
+    java.util.Arrays.fill(scores, 0, n, 0.0)
+
+    val values = Array(pE, pSE, pCE)
+    var j = 0
+    while (j < columns.length) {
+      val column = values(columns(j))
+      var i = 0
+      while (i < n) {
+        scores(i) += column(i)
+        i += 1
+      }
+      j += 1
+    }
   }
 
   override def toString = "UnweightedMixture[%s]".format(features.mkString(","))
@@ -44,11 +44,12 @@ class SparqlFilter(val executer : SparqlQueryExecuter, val sparqlQuery: String,
         case FilterPolicy.Blacklist => (resource : DBpediaResource) => !uriSet.contains(resource.uri)
     }
 
+    def isEmpty : Boolean = sparqlQuery == null || sparqlQuery == ""
+
+    def accept(resource : DBpediaResource) : Boolean = isEmpty || acceptable(resource)
+
     override def touchOcc(occ : DBpediaResourceOccurrence) : Option[DBpediaResourceOccurrence] = {
-        if(sparqlQuery == null || sparqlQuery == "") {
-            Some(occ)
-        }
-        else if(acceptable(occ.resource)) {
+        if(accept(occ.resource)) {
             Some(occ)
         }
         else {
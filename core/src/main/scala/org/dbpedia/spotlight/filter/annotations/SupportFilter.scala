@@ -16,7 +16,7 @@
 
 package org.dbpedia.spotlight.filter.annotations
 
-import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
+import org.dbpedia.spotlight.model.{DBpediaResource, DBpediaResourceOccurrence}
 import org.dbpedia.spotlight.log.SpotlightLog
 import org.dbpedia.spotlight.filter.visitor.{FilterOccsVisitor, FilterElement}
 import java.util
@@ -25,8 +25,10 @@ import scala.collection.JavaConversions._
 
 class SupportFilter(val targetSupport : Int) extends AnnotationFilter with FilterElement  {
 
+    def accept(resource : DBpediaResource) : Boolean = resource.support > targetSupport
+
     override def touchOcc(occ : DBpediaResourceOccurrence) : Option[DBpediaResourceOccurrence] = {
-        if (occ.resource.support > targetSupport) {
+        if (accept(occ.resource)) {
             Some(occ)
         }
         else{
@@ -33,22 +33,30 @@ class TypeFilter(var ontologyTypes : List[OntologyType], val blacklistOrWhitelis
 
 
     private val acceptable = blacklistOrWhitelist match {
-        case FilterPolicy.Whitelist => (resource : DBpediaResource) =>
-            resource.types.filter(given => ontologyTypes.find(listed => given equals listed) != None).nonEmpty
-        case FilterPolicy.Blacklist => (resource : DBpediaResource) =>
-            resource.types.filter(given => ontologyTypes.find(listed => given equals listed) != None).isEmpty
+        case FilterPolicy.Whitelist => (types : List[OntologyType]) =>
+            types.filter(given => ontologyTypes.find(listed => given equals listed) != None).nonEmpty
+        case FilterPolicy.Blacklist => (types : List[OntologyType]) =>
+            types.filter(given => ontologyTypes.find(listed => given equals listed) != None).isEmpty
     }
 
     private val showUntyped = ontologyTypes.find(t => DBpediaType.UNKNOWN equals t) != None
 
+    def isEmpty : Boolean = ontologyTypes.isEmpty
+
+    /**
+     * Checks the types of a resource. Since only the types are checked, resources with the same
+     * types are either all accepted or all rejected.
+     */
+    def acceptTypes(types : List[OntologyType]) : Boolean = {
+        ontologyTypes.isEmpty ||   // hack, because web demo does not guarantee to check all types when loading!
+        (showUntyped && types.isEmpty) ||
+        acceptable(types)
+    }
+
+    def accept(resource : DBpediaResource) : Boolean = acceptTypes(resource.types)
+
     override def touchOcc(occ : DBpediaResourceOccurrence) : Option[DBpediaResourceOccurrence] = {
-        if(ontologyTypes.isEmpty) {   // hack, because web demo does not guarantee to check all types when loading!
-            Some(occ)
-        }
-        else if(showUntyped && occ.resource.types.isEmpty) {
-            Some(occ)
-        }
-        else if(acceptable(occ.resource)) {
+        if(accept(occ.resource)) {
             SpotlightLog.debug(this.getClass, "Acceptable! %s", occ.resource)
             Some(occ)
         }
@@ -0,0 +1,41 @@
+package org.dbpedia.spotlight.filter.candidates
+
+import org.dbpedia.spotlight.filter.annotations.{SparqlFilter, TypeFilter, SupportFilter}
+import org.dbpedia.spotlight.model.DBpediaResource
+
+/**
+ * The support, type and SPARQL constraints of a request, checked on the candidate resources
+ * during disambiguation. An occurrence whose best candidate is rejected would be removed by the
+ * annotation filters afterwards, hence candidates that can only change the result of such occurrences
+ * are not scored and the disambiguation of a request gets cheaper the more selective its constraints are.
+ *
+ * The filter does not change the result of the disambiguation: rejected candidates are still scored if
+ * they may be among the best candidates of an occurrence whose best candidate is accepted, so an occurrence
+ * whose best candidate is rejected is removed instead of being disambiguated to a lower ranked candidate.
+ * If the context similarity scores all candidates of a context window together (e.g. TF-ICF), all candidates
+ * are scored, since the context scores depend on them.
+ *
+ * @author Joachim Daiber
+ */
+class CandidateFilter(val supportFilter: SupportFilter, val typeFilter: TypeFilter, val sparqlFilter: SparqlFilter) {
+
+  def hasSupport: Boolean = supportFilter != null && supportFilter.targetSupport > 0
+
+  def hasTypes: Boolean = typeFilter != null && !typeFilter.isEmpty
+
+  def hasSparql: Boolean = sparqlFilter != null && !sparqlFilter.isEmpty
+
+  /**
+   * @return true if no candidate is rejected by the filter
+   */
+  def isEmpty: Boolean = !hasSupport && !hasTypes && !hasSparql
+
+  def accept(resource: DBpediaResource): Boolean = {
+    (!hasSupport || supportFilter.accept(resource)) &&
+    (!hasTypes   || typeFilter.accept(resource)) &&
+    (!hasSparql  || sparqlFilter.accept(resource))
+  }
+
+  override def toString = "CandidateFilter[support=%s, types=%s, sparql=%s]".format(hasSupport, hasTypes, hasSparql)
+
+}
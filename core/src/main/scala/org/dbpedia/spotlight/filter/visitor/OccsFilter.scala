@@ -16,6 +16,7 @@ package org.dbpedia.spotlight.filter.visitor
 
 import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
 import org.dbpedia.spotlight.filter.annotations._
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
 import org.dbpedia.spotlight.model.Factory._
 import org.dbpedia.spotlight.sparql.SparqlQueryExecuter
 import scala.collection.JavaConverters._
@@ -89,22 +90,38 @@ class OccsFilter(confidence: Double, support: Int,
   private val listColor = if (blacklist) FilterPolicy.Blacklist else FilterPolicy.Whitelist
 
 
+  private val supportElem = supportFilter(support)
+  private val typeElem    = typeFilter(ontologyTypes, listColor)
+  private val sparqlElem  = sparqlFilter(sparqlExecuter, sparqlQuery, listColor)
+
   /**
    * List of available filters
    */
   private val elements: List[FilterElement] = if (thresholds.size == 0)
-    List(supportFilter(support),
-      typeFilter(ontologyTypes, listColor),
-      sparqlFilter(sparqlExecuter, sparqlQuery, listColor),
+    List(supportElem,
+      typeElem,
+      sparqlElem,
       confidenceFilter(thresholds, confidence),
       percentageOfSecondFilter(confidence))
   else
-    List(supportFilter(support),
-      typeFilter(ontologyTypes, listColor),
-      sparqlFilter(sparqlExecuter, sparqlQuery, listColor),
+    List(supportElem,
+      typeElem,
+      sparqlElem,
       percentageOfSecondFilter(confidence))
 
 
+  /**
+   * The support, type and SPARQL filters as a filter for the candidates of the disambiguation,
+   * null if the filters are not applied (coreference resolution) or do not reject any candidate.
+   *
+   * @return
+   */
+  val candidateFilter: CandidateFilter = {
+    val filter = new CandidateFilter(supportElem, typeElem, sparqlElem)
+    if (coreferenceResolution || filter.isEmpty) null else filter
+  }
+
+
   /**
    *
    * Filtering DBpedia resource occurrences using available filters in the list
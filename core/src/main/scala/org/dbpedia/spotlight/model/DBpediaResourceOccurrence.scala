@@ -28,9 +28,9 @@ class DBpediaResourceOccurrence(val id : String,
                                 var contextualScore: Double = -1)
         extends HasFeatures with Comparable[DBpediaResourceOccurrence] {
 
-    setFeature(new Score("finalScore", similarityScore))
-    setFeature(new Score("contextualScore", contextualScore))
-    setFeature(new Score("percentageOfSecondRank", percentageOfSecondRank))
+    setScore(FeatureKey.FINAL_SCORE, similarityScore)
+    setScore(FeatureKey.CONTEXTUAL_SCORE, contextualScore)
+    setScore(FeatureKey.PERCENTAGE_OF_SECOND_RANK, percentageOfSecondRank)
 
     //TODO there are a lot of constructors here, because Scala keyword arguments do not mix well with Java; cleaning up anyone?
 
@@ -94,17 +94,17 @@ class DBpediaResourceOccurrence(val id : String,
 
 
     def setSimilarityScore(s: Double) {
-        setFeature(new Score("finalScore", similarityScore))
+        setScore(FeatureKey.FINAL_SCORE, similarityScore)
         this.similarityScore = s
     }
 
     def setPercentageOfSecondRank(p: Double) {
-        setFeature(new Score("percentageOfSecondRank", percentageOfSecondRank))
+        setScore(FeatureKey.PERCENTAGE_OF_SECOND_RANK, percentageOfSecondRank)
         this.percentageOfSecondRank = p
     }
 
     def setContextualScore(p: Double) {
-      setFeature(new Score("contextualScore", p))
+      setScore(FeatureKey.CONTEXTUAL_SCORE, p)
       this.contextualScore = p
     }
 
@@ -0,0 +1,78 @@
+package org.dbpedia.spotlight.model
+
+import java.util.concurrent.ConcurrentHashMap
+import collection.mutable.ArrayBuffer
+
+/**
+ * The name of a [[org.dbpedia.spotlight.model.Feature]] and the slot its value is stored in
+ * by [[org.dbpedia.spotlight.model.HasFeatures]].
+ *
+ * Slots are assigned once per feature name and are the same for all objects, so a feature that is
+ * read for every candidate (e.g. by a [[org.dbpedia.spotlight.disambiguate.mixtures.Mixture]]) can
+ * be looked up by its key once and then read by its slot.
+ *
+ * @author Joachim Daiber
+ */
+
+class FeatureKey private (val name: String, val slot: Int) {
+
+  override def toString = "FeatureKey[%s@%d]".format(name, slot)
+
+}
+
+object FeatureKey {
+
+  private val keys = new ConcurrentHashMap[String, FeatureKey]()
+  private val names = ArrayBuffer[String]()
+
+  /**
+   * Returns the key for the feature name, a new slot is assigned if the name was not used before.
+   */
+  def apply(name: String): FeatureKey = {
+    val key = keys.get(name)
+    if (key != null)
+      key
+    else
+      register(name)
+  }
+
+  /**
+   * Returns the key for the feature name without assigning a slot, None if the name was not used before.
+   * Reading a feature must not assign a slot, otherwise every name that is asked for would grow the slots
+   * of all objects with features.
+   */
+  def get(name: String): Option[FeatureKey] = Option(keys.get(name))
+
+  private def register(name: String): FeatureKey = synchronized {
+    val existing = keys.get(name)
+    if (existing != null)
+      existing
+    else {
+      val key = new FeatureKey(name, names.size)
+      names += name
+      keys.put(name, key)
+      key
+    }
+  }
+
+  def name(slot: Int): String = synchronized { names(slot) }
+
+  /**
+   * Number of slots assigned so far.
+   */
+  def size: Int = synchronized { names.size }
+
+  //Features that are set for every resource occurrence:
+  val FINAL_SCORE               = FeatureKey("finalScore")
+  val CONTEXTUAL_SCORE          = FeatureKey("contextualScore")
+  val PERCENTAGE_OF_SECOND_RANK = FeatureKey("percentageOfSecondRank")
+
+  //Features used by the statistical disambiguator:
+  val P_E  = FeatureKey("P(e)")
+  val P_SE = FeatureKey("P(s|e)")
+  val P_CE = FeatureKey("P(c|e)")
+
+  //Set if an occurrence was disambiguated by a fallback (e.g. by prior only, once the deadline of the request was close):
+  val FALLBACK = FeatureKey("fallback")
+
+}
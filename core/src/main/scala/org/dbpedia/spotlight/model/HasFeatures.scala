@@ -1,32 +1,122 @@
 package org.dbpedia.spotlight.model
 
-import collection.mutable.HashMap
-
 /**
+ * Features are stored in small arrays indexed by the slot of their [[org.dbpedia.spotlight.model.FeatureKey]].
+ * The values of [[org.dbpedia.spotlight.model.Score]]s are kept in a primitive array, the
+ * Score objects are only created if the feature is requested as a [[org.dbpedia.spotlight.model.Feature]].
+ *
  * @author Joachim Daiber
  */
 
 trait HasFeatures {
 
-  val features = HashMap[String, Feature]()
+  //Kind of the feature in each slot:
+  private var featureKinds: Array[Byte] = null
+  private var scoreValues: Array[Double] = null
+  private var featureObjects: Array[Feature] = null
+
+  private def ensureSlot(slot: Int) {
+    if (featureKinds == null || slot >= featureKinds.length) {
+      val size = math.max(slot + 1, FeatureKey.size)
+      val kinds = new Array[Byte](size)
+      val scores = new Array[Double](size)
+      val objects = new Array[Feature](size)
+
+      if (featureKinds != null) {
+        System.arraycopy(featureKinds, 0, kinds, 0, featureKinds.length)
+        System.arraycopy(scoreValues, 0, scores, 0, scoreValues.length)
+        System.arraycopy(featureObjects, 0, objects, 0, featureObjects.length)
+      }
 
-  def feature(featureName: String): Option[Feature] = {
-    features.get(featureName)
+      featureKinds = kinds
+      scoreValues = scores
+      featureObjects = objects
+    }
   }
 
+  private def kind(slot: Int): Byte =
+    if (featureKinds == null || slot >= featureKinds.length) HasFeatures.NONE else featureKinds(slot)
+
+  def hasFeature(key: FeatureKey): Boolean = kind(key.slot) != HasFeatures.NONE
+
+  def feature(key: FeatureKey): Option[Feature] = {
+    kind(key.slot) match {
+      case HasFeatures.SCORE => {
+        //Create the Score object only once:
+        if (featureObjects(key.slot) == null)
+          featureObjects(key.slot) = new Score(key.name, scoreValues(key.slot))
+        Some(featureObjects(key.slot))
+      }
+      case HasFeatures.OBJECT => Some(featureObjects(key.slot))
+      case _ => None
+    }
+  }
+
+  def feature(featureName: String): Option[Feature] = FeatureKey.get(featureName).flatMap(feature(_))
+
   def featureValue[T](featureName: String): Option[T] = {
-    features.get(featureName) match {
+    feature(featureName) match {
       case Some(f) => Option(f.value.asInstanceOf[T])
       case _ => None
     }
   }
 
   def featureValueJava(featureName: String): Object = {
-    features.get(featureName).getOrElse(null)
+    feature(featureName).getOrElse(null)
+  }
+
+  /**
+   * Returns the value of a numeric feature without creating any objects.
+   *
+   * @return the value or NaN if the feature is not set
+   */
+  def scoreValue(key: FeatureKey): Double = {
+    kind(key.slot) match {
+      case HasFeatures.SCORE => scoreValues(key.slot)
+      case HasFeatures.OBJECT => featureObjects(key.slot).value.asInstanceOf[Double]
+      case _ => Double.NaN
+    }
+  }
+
+  def setScore(key: FeatureKey, value: Double) {
+    ensureSlot(key.slot)
+    featureKinds(key.slot) = HasFeatures.SCORE
+    scoreValues(key.slot) = value
+    featureObjects(key.slot) = null
   }
 
   def setFeature(feature: Feature) {
-    features.put(feature.featureName, feature)
+    val key = FeatureKey(feature.featureName)
+    feature match {
+      case s: Score => {
+        setScore(key, s.value.asInstanceOf[Double])
+        featureObjects(key.slot) = s
+      }
+      case _ => {
+        ensureSlot(key.slot)
+        featureKinds(key.slot) = HasFeatures.OBJECT
+        featureObjects(key.slot) = feature
+      }
+    }
+  }
+
+  /**
+   * All features that are set, by their name.
+   */
+  def features: Map[String, Feature] = {
+    if (featureKinds == null)
+      Map()
+    else
+      (0 until featureKinds.length).filter(featureKinds(_) != HasFeatures.NONE).map { slot: Int =>
+        val key = FeatureKey.get(FeatureKey.name(slot)).get
+        key.name -> feature(key).get
+      }.toMap
   }
 
 }
+
+object HasFeatures {
+  val NONE: Byte   = 0
+  val SCORE: Byte  = 1
+  val OBJECT: Byte = 2
+}
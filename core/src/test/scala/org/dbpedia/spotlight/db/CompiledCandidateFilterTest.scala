@@ -0,0 +1,65 @@
+package org.dbpedia.spotlight.db
+
+import memory.MemoryResourceStore
+import model.ResourceStore
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.model.{OntologyType, Factory, DBpediaResource}
+import org.dbpedia.spotlight.filter.annotations.{FilterPolicy, TypeFilter, SupportFilter}
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
+
+class CompiledCandidateFilterTest extends FlatSpec with ShouldMatchers {
+
+  val person = Factory.OntologyType.fromQName("DBpedia:Person")
+  val place  = Factory.OntologyType.fromQName("DBpedia:Place")
+
+  val typeLists = Array(List[OntologyType](), List(person), List(place), List(place, person))
+
+  //Resources 0-7 with their support and the index of their type list:
+  val support  = Array(1, 5, 20, 50, 3, 100, 10, 7)
+  val typeList = Array(0, 1, 1, 2, 3, 2, 0, 3)
+
+  val memoryStore = new MemoryResourceStore()
+  memoryStore.supportForID = support
+  memoryStore.typeLists = typeLists
+  memoryStore.typeListForID = typeList
+
+  //A resource store that is not memory-based:
+  val resourceStore = new ResourceStore {
+    def getResource(id: Int) = {
+      val res = new DBpediaResource("Resource_" + id, support(id), 0.0, typeLists(typeList(id)))
+      res.id = id
+      res
+    }
+    def getResourceByName(name: String) = getResource(name.stripPrefix("Resource_").toInt)
+  }
+
+  def filters = List(
+    new CandidateFilter(new SupportFilter(5), null, null),
+    new CandidateFilter(null, new TypeFilter(List(person), FilterPolicy.Whitelist), null),
+    new CandidateFilter(null, new TypeFilter(List(person), FilterPolicy.Blacklist), null),
+    new CandidateFilter(new SupportFilter(8), new TypeFilter(List(place), FilterPolicy.Whitelist), null)
+  )
+
+  "A compiled candidate filter" should "accept the same resources as the candidate filter" in {
+    filters.foreach { filter: CandidateFilter =>
+      val compiled = CompiledCandidateFilter.compile(filter, memoryStore)
+      (0 until support.length).foreach { id: Int =>
+        compiled.accept(id) should be (filter.accept(resourceStore.getResource(id)))
+      }
+    }
+  }
+
+  it should "check the resources of other resource stores" in {
+    filters.foreach { filter: CandidateFilter =>
+      val compiled = CompiledCandidateFilter.compile(filter, resourceStore)
+      (0 until support.length).map(compiled.accept(_)) should equal ((0 until support.length).map(id => filter.accept(resourceStore.getResource(id))))
+    }
+  }
+
+  it should "not be created for filters that accept all candidates" in {
+    CompiledCandidateFilter.compile(null, memoryStore) should be (null)
+    CompiledCandidateFilter.compile(new CandidateFilter(new SupportFilter(0), new TypeFilter(List(), FilterPolicy.Whitelist), null), memoryStore) should be (null)
+  }
+
+}
@@ -0,0 +1,45 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+
+class ConcurrentLRUCacheTest extends FlatSpec with ShouldMatchers {
+
+  "A concurrent LRU cache" should "return cached values and count hits and misses" in {
+    val cache = new ConcurrentLRUCache[Int, String](100)
+    cache.get(1) should be (null)
+    cache.put(1, "one")
+    cache.get(1) should be ("one")
+
+    cache.hits.get() should be (1)
+    cache.misses.get() should be (1)
+    cache.hitRate should be (0.5)
+  }
+
+  it should "not grow beyond its maximum size" in {
+    val cache = new ConcurrentLRUCache[Int, String](64, 4)
+    (0 until 1000).foreach(i => cache.put(i, i.toString))
+    cache.size should be <= (64)
+  }
+
+  it should "hold exactly its maximum size if it is smaller than or not divisible by the number of segments" in {
+    List((3, 16), (100, 16), (1, 4)).foreach { case (maxSize: Int, segments: Int) =>
+      val cache = new ConcurrentLRUCache[Int, String](maxSize, segments)
+      (0 until 1000).foreach(i => cache.put(i, i.toString))
+      cache.size should be (maxSize)
+    }
+  }
+
+  it should "remove the least recently used entry of a full segment" in {
+    val cache = new ConcurrentLRUCache[Int, String](2, 1)
+    cache.put(1, "one")
+    cache.put(2, "two")
+    cache.get(1)
+    cache.put(3, "three")
+
+    cache.get(1) should be ("one")
+    cache.get(2) should be (null)
+    cache.get(3) should be ("three")
+  }
+
+}
@@ -0,0 +1,139 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.db.model.SurfaceFormStore
+import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
+import opennlp.tools.util.Span
+import scala.collection.JavaConversions._
+import scala.util.Random
+
+class DBSpotterTest extends FlatSpec with ShouldMatchers {
+
+  val spotter = new DBSpotter(null, None, Set[String]()) {
+    def generateCandidates(sentence: List[Token]) = Seq[Span]()
+    def typeOrder = Array("Capital_Sequences", "m")
+    def getName = "test"
+    def setName(name: String) {}
+  }
+
+  //The previous, quadratic implementation of dropOverlappingSpots:
+  def dropOverlappingSpotsReference(spots: Seq[SurfaceFormOccurrence]): List[SurfaceFormOccurrence] = {
+    val sortedSpots = spots.distinct.sortBy(sf => (sf.textOffset, sf.surfaceForm.name.length) ).toList
+
+    var remove = Set[Int]()
+    var lastSpot: SurfaceFormOccurrence = null
+
+    var i = 0
+    while (i < sortedSpots.size) {
+      val spot = sortedSpots(i)
+
+      if (lastSpot != null && lastSpot.intersects(spot)) {
+        val spotHasBetterType = spotter.typeOrder.indexOf(spot.featureValue[String]("spot_type")) < spotter.typeOrder.indexOf(lastSpot.featureValue[String]("spot_type"))
+        val spotIsLonger = spot.surfaceForm.name.length > lastSpot.surfaceForm.name.length
+
+        if(spotIsLonger && spot.spotProb > lastSpot.spotProb/2.0) {
+          remove += i-1
+          lastSpot = spot
+        } else if(!spotIsLonger && !(spot.spotProb > lastSpot.spotProb*2.0)) {
+          remove += i
+        } else if(spot.spotProb == lastSpot.spotProb && spotHasBetterType) {
+          remove += i-1
+          lastSpot = spot
+        } else if (spot.spotProb == lastSpot.spotProb && !spotHasBetterType) {
+          remove += i
+        } else if(spot.spotProb > lastSpot.spotProb) {
+          remove += i-1
+          lastSpot = spot
+        } else {
+          remove += i
+        }
+      } else {
+        lastSpot = spot
+      }
+      i += 1
+    }
+
+    sortedSpots.zipWithIndex.filter{ case (s: SurfaceFormOccurrence, i: Int) => !remove.contains(i) }.map(_._1)
+  }
+
+  def randomSpots(random: Random, n: Int): Seq[SurfaceFormOccurrence] = {
+    val text = new Text((1 to n * 3).map(_ => ('a' + random.nextInt(26)).toChar).mkString)
+    val probs = Array(0.1, 0.2, 0.4, 0.5, 0.8, 1.0)
+
+    (1 to n).map { _ =>
+      val offset = random.nextInt(n * 3 - 10)
+      val length = 1 + random.nextInt(10)
+      val spot = new SurfaceFormOccurrence(new SurfaceForm(text.text.substring(offset, offset + length)), text, offset, Provenance.Annotation, probs(random.nextInt(probs.length)))
+      spot.setFeature(new Nominal("spot_type", if (random.nextBoolean()) "Capital_Sequences" else "m"))
+      spot
+    }
+  }
+
+  "Dropping overlapping spots" should "keep the same spots as the previous implementation" in {
+    val random = new Random(42)
+
+    (1 to 200).foreach { _ =>
+      val spots = randomSpots(random, 1 + random.nextInt(100))
+      spotter.dropOverlappingSpots(spots).toList should be (dropOverlappingSpotsReference(spots))
+    }
+  }
+
+  it should "keep spots that do not overlap" in {
+    val text = new Text("Berlin is the capital of Germany")
+    val spots = List(
+      new SurfaceFormOccurrence(new SurfaceForm("Germany"), text, 25, Provenance.Annotation, 0.5),
+      new SurfaceFormOccurrence(new SurfaceForm("Berlin"), text, 0, Provenance.Annotation, 0.5)
+    )
+
+    spotter.dropOverlappingSpots(spots).toList.map(_.textOffset) should be (List(0, 25))
+  }
+
+  it should "prefer a longer spot with a similar probability" in {
+    val text = new Text("New York City")
+    val spots = List(
+      new SurfaceFormOccurrence(new SurfaceForm("New York"), text, 0, Provenance.Annotation, 0.5),
+      new SurfaceFormOccurrence(new SurfaceForm("New York City"), text, 0, Provenance.Annotation, 0.4),
+      new SurfaceFormOccurrence(new SurfaceForm("York"), text, 4, Provenance.Annotation, 0.5)
+    )
+
+    spotter.dropOverlappingSpots(spots).toList.map(_.surfaceForm.name) should be (List("New York City"))
+  }
+
+  "The spot lookups of a request" should "look up and score every span once" in {
+    var queries = List[String]()
+    val sfStore = new SurfaceFormStore {
+      def getSurfaceForm(surfaceform: String) = {
+        queries ::= surfaceform
+        if (surfaceform == "York")
+          new SurfaceForm("York", 1, 3, 4)
+        else
+          throw new SurfaceFormNotFoundException(surfaceform)
+      }
+      def getSurfaceFormNormalized(surfaceform: String) = getSurfaceForm(surfaceform)
+      def getTotalAnnotatedCount = 0
+      def getTotalOccurrenceCount = 0
+      def iterateSurfaceForms = Seq[SurfaceForm]()
+    }
+
+    val storeSpotter = new DBSpotter(sfStore, None, Set[String]()) {
+      def generateCandidates(sentence: List[Token]) = Seq[Span]()
+      def typeOrder = Array("Capital_Sequences", "m")
+      def getName = "test"
+      def setName(name: String) {}
+    }
+
+    val text = new Text("New York")
+    val lookups = new DBSpotter.SpotLookups(storeSpotter)
+
+    lookups.get(text, 4, 8).surfaceForm.name should be ("York")
+    lookups.get(text, 4, 8).score should be (0.75)
+    lookups.get(text, 0, 8).surfaceForm should be (null)
+    lookups.get(text, 0, 8).score should be (0.0)
+
+    queries.reverse should be (List("York", "New York"))
+    lookups.size should be (2)
+  }
+
+}
@@ -0,0 +1,255 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import memory.MemoryTokenTypeStore
+import memory.util.StringPool
+import model._
+import similarity.{ContextSimilarity, TFICFSimilarity, GenerativeContextSimilarity}
+import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.disambiguate.mixtures.UnweightedMixture
+import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
+import org.dbpedia.spotlight.filter.annotations.{FilterPolicy, TypeFilter}
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter
+import scala.util.Random
+
+class DBTwoStepDisambiguatorTest extends FlatSpec with ShouldMatchers {
+
+  val person = Factory.OntologyType.fromQName("DBpedia:Person")
+  val place  = Factory.OntologyType.fromQName("DBpedia:Place")
+
+  val personFilter = new CandidateFilter(null, new TypeFilter(List(person), FilterPolicy.Whitelist), null)
+
+  /**
+   * A small model with random token, candidate and context counts. The surface forms are named S1, S2, ...,
+   * the resources R1, R2, ... (resources with an even ID are persons, all others places). Every tenth resource
+   * has no context.
+   */
+  class TestModel(seed: Int) {
+    val random = new Random(seed)
+
+    val vocabulary = 50
+    val tokenStore = new MemoryTokenTypeStore()
+    tokenStore.tokenForId = StringPool.fromArray((0 until vocabulary).map("t" + _).toArray)
+    tokenStore.counts = Array.fill(vocabulary)(1 + random.nextInt(100))
+    tokenStore.loaded()
+
+    def randomToken = tokenStore.getTokenTypeByID(random.nextInt(vocabulary))
+
+    val resources = 40
+    val support = Array.fill(resources + 1)(1 + random.nextInt(1000))
+    val contexts = Array.tabulate(resources + 1) { id: Int =>
+      if (id % 10 == 9)
+        TokenCounts.empty
+      else
+        TokenCounts.fromTokenTypes((1 to 5 + random.nextInt(40)).map(_ => randomToken))
+    }
+    val totals = contexts.map { c: TokenCounts => (0 until c.length).map(c.count(_)).sum }
+
+    val surfaceForms = 12
+    val candidates = Array.tabulate(surfaceForms + 1) { sf: Int =>
+      if (sf == 0) Array[Int]() else random.shuffle((1 to resources).toList).take(1 + random.nextInt(15)).toArray
+    }
+    val counts = candidates.map(_.map(_ => 1 + random.nextInt(200)).sorted.reverse)
+
+    val resStore = new ResourceStore {
+      def getResource(id: Int) = {
+        val res = new DBpediaResource("R" + id, support(id), support(id) / support.sum.toDouble, List(if (id % 2 == 0) person else place))
+        res.id = id
+        res
+      }
+      def getResourceByName(name: String) = getResource(name.stripPrefix("R").toInt)
+    }
+
+    val sfStore = new SurfaceFormStore {
+      def getSurfaceForm(surfaceform: String) = {
+        val id = try { surfaceform.stripPrefix("S").toInt } catch { case e: NumberFormatException => -1 }
+        if (id < 1 || id > surfaceForms)
+          throw new SurfaceFormNotFoundException(surfaceform)
+        new SurfaceForm(surfaceform, id, counts(id).sum, 2 * counts(id).sum)
+      }
+      def getSurfaceFormNormalized(surfaceform: String) = throw new SurfaceFormNotFoundException(surfaceform)
+      def getTotalAnnotatedCount = counts.map(_.sum).sum
+      def getTotalOccurrenceCount = 2 * getTotalAnnotatedCount
+      def iterateSurfaceForms = (1 to surfaceForms).map(i => getSurfaceForm("S" + i))
+    }
+
+    val candidateMap = new CandidateMapStore {
+      def getCandidates(surfaceform: SurfaceForm) = throw new UnsupportedOperationException()
+      def getTopCandidateIDs(surfaceformID: Int, n: Int) =
+        if (surfaceformID < 1 || surfaceformID > surfaceForms)
+          CandidateSlice.empty
+        else
+          new CandidateSlice(candidates(surfaceformID), counts(surfaceformID), 0, math.min(n, candidates(surfaceformID).length))
+    }
+
+    val contextStore = new ContextStore {
+      def getContextCount(resource: DBpediaResource, token: TokenType) = throw new UnsupportedOperationException()
+      def getContextCounts(resource: DBpediaResource) = throw new UnsupportedOperationException()
+      def getTotalTokenCount(resource: DBpediaResource) = totals(resource.id)
+      override def getContextTokenCounts(resource: DBpediaResource) = contexts(resource.id)
+    }
+
+    def disambiguator(similarity: ContextSimilarity = new GenerativeContextSimilarity(tokenStore)) = new DBTwoStepDisambiguator(
+      tokenStore,
+      sfStore,
+      resStore,
+      new DBCandidateSearcher(resStore, sfStore, candidateMap),
+      contextStore,
+      new UnweightedMixture(Set("P(e)", "P(c|e)", "P(s|e)")),
+      similarity
+    )
+
+    /**
+     * A tokenized paragraph of random tokens with occurrences of random surface forms.
+     */
+    def paragraph(occurrences: Int): Paragraph = {
+      val tokenTypes = (1 to 60).map(_ => randomToken)
+      val text = new Text(tokenTypes.map(_.tokenType).mkString(" "))
+
+      var offset = 0
+      val tokens = tokenTypes.map { t: TokenType =>
+        val token = new Token(t.tokenType, offset, t)
+        offset += t.tokenType.length + 1
+        token
+      }.toList
+      tokens.last.setFeature(new Feature("end-of-sentence", true))
+      text.setFeature(new Feature("tokens", tokens))
+
+      val occs = (1 to occurrences).map { i: Int =>
+        new SurfaceFormOccurrence(new SurfaceForm("S" + (1 + random.nextInt(surfaceForms))), text, i * 3)
+      }.toList
+
+      new Paragraph(text, occs)
+    }
+  }
+
+  def sameOccurrences(actual: List[DBpediaResourceOccurrence], expected: List[DBpediaResourceOccurrence]) {
+    actual.map(_.resource.uri) should equal (expected.map(_.resource.uri))
+    actual.zip(expected).foreach { case (a: DBpediaResourceOccurrence, e: DBpediaResourceOccurrence) =>
+      a.textOffset should be (e.textOffset)
+      a.similarityScore should be (e.similarityScore plusOrMinus 1e-12)
+      a.contextualScore should be (e.contextualScore plusOrMinus 1e-12)
+      a.percentageOfSecondRank should be (e.percentageOfSecondRank plusOrMinus 1e-12)
+    }
+  }
+
+  "Disambiguating with a candidate filter" should "return the unfiltered result without the rejected resources" in {
+    (1 to 5).foreach { seed: Int =>
+      val model = new TestModel(seed)
+      val paragraph = model.paragraph(30)
+      val disambiguator = model.disambiguator()
+
+      val expected = disambiguator.disambiguate(paragraph).filter(o => personFilter.accept(o.resource))
+      sameOccurrences(disambiguator.disambiguate(paragraph, personFilter), expected)
+    }
+  }
+
+  it should "drop an occurrence whose best candidate is rejected by the filter" in {
+    val rejected = (1 to 5).flatMap { seed: Int =>
+      val model = new TestModel(seed)
+      val paragraph = model.paragraph(30)
+      val disambiguator = model.disambiguator()
+
+      val unfiltered = disambiguator.bestK(paragraph, 5)
+      val filtered = disambiguator.bestK(paragraph, 5, personFilter)
+
+      //Occurrences whose best candidate is a place, although they have a person among their candidates:
+      unfiltered.filter { case (occ, best) =>
+        best.nonEmpty && !personFilter.accept(best.head.resource) && best.exists(o => personFilter.accept(o.resource))
+      }.keys.map { occ: SurfaceFormOccurrence =>
+        filtered(occ) should be ('empty)
+        occ
+      }
+    }
+
+    rejected should not be ('empty)
+  }
+
+  it should "not change the candidates of occurrences whose best candidate is accepted" in {
+    val model = new TestModel(3)
+    val paragraph = model.paragraph(30)
+    val disambiguator = model.disambiguator()
+
+    List(1, 5, 20).foreach { k: Int =>
+      val unfiltered = disambiguator.bestK(paragraph, k)
+      val filtered = disambiguator.bestK(paragraph, k, personFilter)
+
+      unfiltered.foreach { case (occ, best) =>
+        if (best.nonEmpty && personFilter.accept(best.head.resource))
+          sameOccurrences(filtered(occ), best)
+        else
+          filtered(occ) should be ('empty)
+      }
+    }
+  }
+
+  it should "not change the context scores of a similarity that scores all candidates together" in {
+    (1 to 5).foreach { seed: Int =>
+      val model = new TestModel(seed)
+      val paragraph = model.paragraph(30)
+      val disambiguator = model.disambiguator(new TFICFSimilarity())
+
+      val unfiltered = disambiguator.bestK(paragraph, 5)
+      val filtered = disambiguator.bestK(paragraph, 5, personFilter)
+
+      unfiltered.foreach { case (occ, best) =>
+        if (best.nonEmpty && personFilter.accept(best.head.resource))
+          sameOccurrences(filtered(occ), best)
+        else
+          filtered(occ) should be ('empty)
+      }
+
+      val expected = disambiguator.disambiguate(paragraph).filter(o => personFilter.accept(o.resource))
+      sameOccurrences(disambiguator.disambiguate(paragraph, personFilter), expected)
+    }
+  }
+
+  it should "score fewer candidates than without the filter" in {
+    var scoredFiltered = 0L
+    var scoredUnfiltered = 0L
+
+    (1 to 5).foreach { seed: Int =>
+      val model = new TestModel(seed)
+      val paragraph = model.paragraph(30)
+
+      val filtered = model.disambiguator()
+      filtered.disambiguate(paragraph, personFilter)
+      scoredFiltered += filtered.scoredCandidates.get
+
+      val unfiltered = model.disambiguator()
+      unfiltered.disambiguate(paragraph)
+      scoredUnfiltered += unfiltered.scoredCandidates.get
+    }
+
+    scoredFiltered should be < (scoredUnfiltered)
+  }
+
+  "Pruning candidates" should "return the same best k candidates as scoring all candidates" in {
+    var skipped = 0L
+
+    (1 to 5).foreach { seed: Int =>
+      val model = new TestModel(seed)
+      val paragraph = model.paragraph(30)
+      val tokens = paragraph.text.featureValue[List[Token]]("tokens").get.map(_.tokenType)
+
+      val pruned = model.disambiguator()
+      val exhaustive = model.disambiguator()
+      exhaustive.pruneCandidates = false
+
+      List(1, 5, 20).foreach { k: Int =>
+        val expected = exhaustive.bestK_(paragraph, paragraph.occurrences, tokens, k)
+        val actual = pruned.bestK_(paragraph, paragraph.occurrences, tokens, k)
+
+        actual.keySet should equal (expected.keySet)
+        expected.foreach { case (occ, best) => sameOccurrences(actual(occ), best) }
+      }
+
+      exhaustive.skippedCandidates.get should be (0L)
+      skipped += pruned.skippedCandidates.get
+    }
+
+    skipped should be > (0L)
+  }
+
+}
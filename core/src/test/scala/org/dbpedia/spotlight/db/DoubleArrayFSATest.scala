@@ -0,0 +1,46 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+
+class DoubleArrayFSATest extends FlatSpec with ShouldMatchers {
+
+  //Trie for the surface forms (1), (1 2), (1 2 3), (5 2) and (7):
+  val dict = new FSADictionary()
+  dict.transitionsTokens = Array(Array(1, 1, 5, 7), Array(2, 2), Array(2), Array(3))
+  dict.transitionsStates = Array(Array(-1, 1, 2, -1), Array(-1, 3), Array(-1), Array(-1))
+
+  val surfaceForms = Set(List(1), List(1, 2), List(1, 2, 3), List(5, 2), List(7))
+
+  //Returns true if the FSA accepts exactly the token sequence:
+  def accepts(fsa: DoubleArrayFSA, tokens: List[Int]): Boolean = {
+    var transition = DoubleArrayFSA.REJECT
+    var state = DoubleArrayFSA.INITIAL_STATE
+    tokens.foreach { t: Int =>
+      if (state >= 0) {
+        transition = fsa.next(state, t)
+        state = if (transition == DoubleArrayFSA.REJECT) -1 else DoubleArrayFSA.state(transition)
+      }
+    }
+    state >= 0 && DoubleArrayFSA.isAccepting(transition)
+  }
+
+  "A double-array FSA" should "accept exactly the surface forms of the dictionary" in {
+    val fsa = DoubleArrayFSA.fromDictionary(dict)
+
+    val alphabet = 0 to 8
+    val sequences = alphabet.map(List(_)) ++
+      alphabet.flatMap(a => alphabet.map(List(a, _))) ++
+      alphabet.flatMap(a => alphabet.flatMap(b => alphabet.map(List(a, b, _))))
+
+    sequences.foreach { s: List[Int] =>
+      accepts(fsa, s) should be (surfaceForms.contains(s))
+    }
+  }
+
+  it should "reject tokens that are not in the dictionary" in {
+    val fsa = DoubleArrayFSA.fromDictionary(dict)
+    fsa.next(DoubleArrayFSA.INITIAL_STATE, 100000) should be (DoubleArrayFSA.REJECT)
+  }
+
+}
@@ -0,0 +1,81 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import scala.util.Random
+
+class FSADictionaryBuilderTest extends FlatSpec with ShouldMatchers {
+
+  val random = new Random(42)
+  val sequences = (1 to 2000).map(_ => Array.fill(1 + random.nextInt(4))(random.nextInt(10))).toList
+
+  //Builds the trie from the unsorted sequences, as FSASpotter.buildDictionary did before:
+  def unsortedDictionary(sequences: Seq[Array[Int]]): FSADictionary = {
+    val transitions = scala.collection.mutable.ArrayBuffer(scala.collection.mutable.Map[Int, Int]())
+    val accepting = scala.collection.mutable.ArrayBuffer(Set[Int]())
+
+    sequences.foreach { ids: Array[Int] =>
+      var state = FSASpotter.INITIAL_STATE
+      ids.init.foreach { t: Int =>
+        state = transitions(state).getOrElseUpdate(t, {
+          transitions += scala.collection.mutable.Map[Int, Int]()
+          accepting += Set[Int]()
+          transitions.size - 1
+        })
+      }
+      accepting(state) += ids.last
+    }
+
+    val pairs = transitions.zip(accepting).map { case (ts, es) =>
+      (ts.iterator ++ es.map((_, FSASpotter.ACCEPTING_STATE))).toList.sortBy(p => (p._1, p._2))
+    }
+
+    val d = new FSADictionary()
+    d.transitionsTokens = pairs.map(_.map(_._1).toArray).toArray
+    d.transitionsStates = pairs.map(_.map(_._2).toArray).toArray
+    d
+  }
+
+  def sortedDictionary(sequences: Seq[Array[Int]]): FSADictionary = {
+    val builder = new FSADictionaryBuilder()
+    sequences.sortWith(FSADictionaryBuilder.compare(_, _) < 0).foreach(builder.add(_))
+    builder.result()
+  }
+
+  "An FSA dictionary builder" should "build the same trie as the unsorted construction" in {
+    val expected = unsortedDictionary(sequences)
+    val dict = sortedDictionary(sequences)
+
+    dict.size should be (expected.size)
+
+    //The double-array tries only depend on the structure of the tries, not on the IDs of the states:
+    val expectedFSA = DoubleArrayFSA.fromDictionary(expected)
+    val fsa = DoubleArrayFSA.fromDictionary(dict)
+    fsa.base should equal (expectedFSA.base)
+    fsa.check should equal (expectedFSA.check)
+  }
+
+  it should "sort the transitions of each state" in {
+    val dict = sortedDictionary(sequences)
+    dict.transitionsTokens.zip(dict.transitionsStates).foreach { case (tokens: Array[Int], states: Array[Int]) =>
+      tokens.zip(states).toList should equal (tokens.zip(states).toList.sortBy(p => (p._1, p._2)))
+    }
+  }
+
+  it should "reject unsorted sequences" in {
+    val builder = new FSADictionaryBuilder()
+    builder.add(Array(2, 3))
+    evaluating { builder.add(Array(1)) } should produce [IllegalArgumentException]
+  }
+
+  "A token sequence sorter" should "sort sequences across chunks" in {
+    val sorter = new TokenSequenceSorter(100)
+    sequences.foreach(sorter.add(_))
+
+    val sorted = sorter.sorted.map(_.toList).toList
+    sorter.close()
+
+    sorted should equal (sequences.sortWith(FSADictionaryBuilder.compare(_, _) < 0).map(_.toList))
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.dbpedia.spotlight.db
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import java.io.{FileOutputStream, File}
+
+class SpotlightModelTest extends FlatSpec with ShouldMatchers {
+
+  def delete(file: File) {
+    if (file.isDirectory)
+      file.listFiles().foreach(delete)
+    file.delete()
+  }
+
+  def modelFolder(files: (String, Int)*)(f: File => Unit) {
+    val folder = File.createTempFile("spotlight-model", "")
+    folder.delete()
+    new File(folder, "model").mkdirs()
+
+    try {
+      files.foreach { case (name: String, size: Int) =>
+        val out = new FileOutputStream(new File(folder, name))
+        out.write(new Array[Byte](size))
+        out.close()
+      }
+      f(folder)
+    } finally {
+      delete(folder)
+    }
+  }
+
+  val stores = List("model/tokens.mem" -> 1, "model/sf.mem" -> 10, "model/res.mem" -> 100, "model/candmap.mem" -> 1000)
+
+  "The heap size estimate" should "only count the reverse lookups of the configured type" in {
+    val indexes = List("model/tokens.idx" -> 1, "model/sf.idx" -> 1, "model/res.idx" -> 1, "model/tokens.mph" -> 2, "model/sf.mph" -> 2, "model/res.mph" -> 2)
+
+    modelFolder(stores ++ indexes: _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 3)
+    }
+    modelFolder(stores ++ indexes: _*) { folder: File =>
+      val properties = new FileOutputStream(new File(folder, "model.properties"))
+      properties.write("reverse_lookup=mph\n".getBytes("UTF-8"))
+      properties.close()
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 6)
+    }
+  }
+
+  it should "only count the context store that is loaded" in {
+    modelFolder(stores ++ List("model/context.mem" -> 20000, "model/context.cmem" -> 5000): _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 5000)
+    }
+    modelFolder(stores ++ List("model/context.mem" -> 20000): _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 20000)
+    }
+  }
+
+  it should "only count the spotter dictionary that is loaded" in {
+    modelFolder(stores ++ List("fsa_dict.mem" -> 300, "fsa_da.mem" -> 200): _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 200)
+    }
+    modelFolder(stores ++ List("fsa_dict.mem" -> 300): _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (1111L + 300)
+    }
+  }
+
+  it should "not count memory-mapped stores" in {
+    modelFolder(List("model/tokens.mmap" -> 1000, "model/sf.mmap" -> 1000, "fsa_da.mem" -> 200): _*) { folder: File =>
+      SpotlightModel.estimateHeapSize(folder) should be (200L)
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+package org.dbpedia.spotlight.db.concurrent
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import java.util.concurrent.{TimeUnit, Executors, CountDownLatch}
+import java.util.concurrent.atomic.AtomicInteger
+import java.io.IOException
+import org.dbpedia.spotlight.exceptions.InputException
+
+class InstancePoolTest extends FlatSpec with ShouldMatchers {
+
+  class Worker {
+    val inUse = new AtomicInteger()
+    var name = ""
+  }
+
+  "An instance pool" should "reuse instances for sequential calls" in {
+    val pool = new InstancePool[Worker](new Worker())
+    val first = pool(w => w)
+    pool(w => w) should be theSameInstanceAs (first)
+    pool.size should be (1)
+  }
+
+  it should "never give an instance to two threads at once" in {
+    val pool = new InstancePool[Worker](new Worker(), 2)
+    val threads = 8
+    val executor = Executors.newFixedThreadPool(threads)
+    val start = new CountDownLatch(1)
+    val conflicts = new AtomicInteger()
+
+    (1 to threads).foreach { _ =>
+      executor.submit(new Runnable {
+        def run() {
+          start.await()
+          (1 to 1000).foreach { _ =>
+            pool { w: Worker =>
+              if (w.inUse.incrementAndGet() != 1)
+                conflicts.incrementAndGet()
+              Thread.`yield`()
+              w.inUse.decrementAndGet()
+            }
+          }
+        }
+      })
+    }
+    start.countDown()
+    executor.shutdown()
+    executor.awaitTermination(60, TimeUnit.SECONDS)
+
+    conflicts.get() should be (0)
+    pool.size should be <= (threads)
+  }
+
+  it should "discard instances that fail unexpectedly" in {
+    val pool = new InstancePool[Worker](new Worker())
+    evaluating { pool { w: Worker => throw new IllegalStateException() } } should produce [IllegalStateException]
+    pool.size should be (0)
+
+    evaluating { pool { w: Worker => throw new NullPointerException() } } should produce [NullPointerException]
+    evaluating { pool { w: Worker => throw new IOException() } } should produce [IOException]
+    pool.size should be (0)
+  }
+
+  it should "keep instances that reject their input" in {
+    val pool = new InstancePool[Worker](new Worker())
+    val first = pool(w => w)
+
+    evaluating { pool { w: Worker => throw new InputException("invalid text") } } should produce [InputException]
+    evaluating { pool { w: Worker => throw new IllegalArgumentException() } } should produce [IllegalArgumentException]
+
+    pool.size should be (1)
+    pool(w => w) should be theSameInstanceAs (first)
+  }
+
+  it should "configure existing and new instances" in {
+    val pool = new InstancePool[Worker](new Worker())
+    pool.configure(_.name = "configured")
+    pool.borrow()
+    pool.borrow()
+
+    pool.size should be (2)
+    pool.instances.map(_.name) should be (List("configured", "configured"))
+  }
+
+}
@@ -0,0 +1,46 @@
+package org.dbpedia.spotlight.db.memory
+
+import org.scalatest._
+import matchers.ShouldMatchers
+
+class MemoryCompressedContextStoreTest extends FlatSpec with ShouldMatchers {
+
+  val contextStore = new MemoryContextStore()
+  contextStore.tokens = Array(Array(5, 1, 300000, 2), null, Array(7))
+  contextStore.counts = Array(Array(1, 3, 4, 1000), null, Array(2))
+
+  "A compressed context store" should "decode the tokens sorted by their IDs with their counts" in {
+    val store = MemoryCompressedContextStore.fromContextStore(contextStore)
+    val cursor = store.cursor()
+
+    cursor.reset(0)
+    cursor.length should be (4)
+
+    val decoded = Iterator.continually(cursor.next()).takeWhile(identity).map(_ => (cursor.token, cursor.count)).toList
+    decoded should equal (List((1, 3), (2, 1000), (5, 1), (300000, 4)))
+  }
+
+  it should "return empty contexts for resources without context" in {
+    val store = MemoryCompressedContextStore.fromContextStore(contextStore)
+    val cursor = store.cursor()
+
+    cursor.reset(1)
+    cursor.next() should be (false)
+
+    cursor.reset(2)
+    cursor.next() should be (true)
+    (cursor.token, cursor.count) should equal ((7, 2))
+    cursor.next() should be (false)
+  }
+
+  it should "contain the total token counts" in {
+    val store = MemoryCompressedContextStore.fromContextStore(contextStore)
+    store.totalTokenCounts should equal (Array(1008, 0, 2))
+  }
+
+  it should "reject contexts with counts that are not positive" in {
+    evaluating { MemoryCompressedContextStore.encode(Array(1, 2), Array(3, 0)) } should produce [IllegalArgumentException]
+    evaluating { MemoryCompressedContextStore.encode(Array(1), Array(-1)) } should produce [IllegalArgumentException]
+  }
+
+}
@@ -0,0 +1,64 @@
+package org.dbpedia.spotlight.db.memory
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.db.memory.util.StringPool
+
+class StringIDIndexTest extends FlatSpec with ShouldMatchers {
+
+  val keys = StringPool.fromArray((0 until 10000).map(i => if (i % 100 == 0) null else "key" + i).toArray)
+
+  "A perfect hash index" should "map every key to its ID" in {
+    val index = MemoryPerfectHashIndex.build(keys)
+
+    (0 until keys.length).foreach { i: Int =>
+      if (!keys.isNull(i))
+        index.getID(keys(i)) should be (i)
+    }
+    index.getID(new java.lang.StringBuilder("key").append(42)) should be (42)
+  }
+
+  it should "not map unknown keys" in {
+    val index = MemoryPerfectHashIndex.build(keys)
+
+    index.getID("key0") should be (-1)
+    index.getID("unknown") should be (-1)
+    index.toMap(keys).get("key100") should be (null)
+  }
+
+  it should "map extra keys to their IDs" in {
+    val index = MemoryPerfectHashIndex.build(keys, StringPool.fromArray(Array("/key", "key1")), Array(1, 2))
+
+    index.getID("/key") should be (1)
+    index.getID("key1") should be (2)
+  }
+
+  "A hash table index" should "return the same IDs as a perfect hash index" in {
+    val mph = MemoryPerfectHashIndex.build(keys).toMap(keys)
+    val idx = MemoryStringIndex.build(keys).toMap(keys)
+
+    (0 until keys.length).foreach { i: Int =>
+      if (!keys.isNull(i))
+        idx.get(keys(i)) should equal (mph.get(keys(i)))
+    }
+  }
+
+  "A string pool" should "compare Strings with its keys like their UTF-8 encoding" in {
+    val strings = Array("Berlin", "Zürich", "東京", "\ud834\udd1e clef", "lone \ud834", "lone \udd1e", "", "?", "lone ?")
+    val pool = StringPool.fromArray(strings :+ null)
+    val random = new scala.util.Random(3)
+
+    //Random Strings over ASCII, 2-byte and 3-byte chars and surrogates:
+    val chars = Array('a', '?', 'ü', '東', '\ud834', '\udd1e')
+    val randomStrings = (1 to 2000).map(_ => (1 to random.nextInt(4)).map(_ => chars(random.nextInt(chars.length))).mkString)
+
+    (strings ++ randomStrings ++ Array("Berli", "Berlinn", "Zurich")).foreach { key: String =>
+      (0 until pool.length).foreach { i: Int =>
+        pool.equalsAt(i, key) should be (pool.equalsAt(i, key.getBytes(StringPool.UTF8)))
+      }
+    }
+
+    (0 until strings.length).foreach(i => pool.equalsAt(i, strings(i)) should be (true))
+  }
+
+}
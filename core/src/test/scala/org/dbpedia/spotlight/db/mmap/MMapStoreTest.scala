@@ -0,0 +1,57 @@
+package org.dbpedia.spotlight.db.mmap
+
+import java.io.File
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.db.memory.{MemorySurfaceFormStore, MemoryTokenTypeStore}
+import org.dbpedia.spotlight.db.memory.util.StringPool
+import org.dbpedia.spotlight.model.TokenType
+import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
+
+class MMapStoreTest extends FlatSpec with ShouldMatchers {
+
+  def tempFile(): File = {
+    val f = File.createTempFile("spotlight-test", ".mmap")
+    f.deleteOnExit()
+    f
+  }
+
+  "An mmap token type store" should "contain the same tokens as the memory store" in {
+    val memoryStore = new MemoryTokenTypeStore()
+    memoryStore.tokenForId = StringPool.fromArray(Array("<<UNKNOWN>>", "berlin", "capital", "germany", "ünïcödé"))
+    memoryStore.counts = Array(1, 10, 20, 30, 5)
+    memoryStore.loaded()
+
+    val file = tempFile()
+    MMapTokenTypeStore.write(memoryStore, file)
+    val mmapStore = MMapStore.loadTokenTypeStore(file)
+
+    mmapStore.getTokenType("capital").id should be (2)
+    mmapStore.getTokenType("ünïcödé").count should be (5)
+    mmapStore.getTokenType("paris") should be (TokenType.UNKNOWN)
+    mmapStore.getTokenTypeByID(3).tokenType should be ("germany")
+    mmapStore.getTotalTokenCount should be (memoryStore.getTotalTokenCount)
+    mmapStore.getVocabularySize should be (memoryStore.getVocabularySize)
+  }
+
+  "An mmap surface form store" should "find surface forms and normalized surface forms" in {
+    val memoryStore = new MemorySurfaceFormStore()
+    memoryStore.stringForID = StringPool.fromArray(Array[String](null, "Berlin", "The Beatles", "the beatles"))
+    memoryStore.annotatedCountForID = Array(0, 100, 50, 2)
+    memoryStore.totalCountForID = Array(0, 200, 60, 80)
+    memoryStore.loaded()
+
+    val file = tempFile()
+    MMapSurfaceFormStore.write(memoryStore, file)
+    val mmapStore = MMapStore.loadSurfaceFormStore(file)
+
+    mmapStore.getSurfaceForm("Berlin").id should be (1)
+    mmapStore.getSurfaceForm("the beatles").id should be (3)
+    mmapStore.getSurfaceFormNormalized("Beatles").id should be (memoryStore.getSurfaceFormNormalized("Beatles").id)
+    mmapStore.getTotalAnnotatedCount should be (memoryStore.getTotalAnnotatedCount)
+    mmapStore.iterateSurfaceForms.map(_.name) should be (memoryStore.iterateSurfaceForms.map(_.name))
+
+    evaluating { mmapStore.getSurfaceForm("Paris") } should produce [SurfaceFormNotFoundException]
+  }
+
+}
@@ -0,0 +1,137 @@
+package org.dbpedia.spotlight.db.similarity
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.db.memory.MemoryTokenTypeStore
+import org.dbpedia.spotlight.db.memory.util.StringPool
+import org.dbpedia.spotlight.db.model.TokenCounts
+import org.dbpedia.spotlight.model.{DBpediaResource, TokenType}
+import scala.collection.JavaConverters._
+
+class ContextSimilarityTest extends FlatSpec with ShouldMatchers {
+
+  val tokenStore = new MemoryTokenTypeStore()
+  tokenStore.tokenForId = StringPool.fromArray(Array("a", "b", "c", "d", "e"))
+  tokenStore.counts = Array(10, 20, 5, 1, 3)
+  tokenStore.loaded()
+
+  def token(id: Int) = tokenStore.getTokenTypeByID(id)
+
+  val query = Map(token(0) -> 1, token(1) -> 2, TokenType.UNKNOWN -> 1, TokenType.STOPWORD -> 3)
+
+  val res1 = new DBpediaResource("R1")
+  val res2 = new DBpediaResource("R2")
+  val contexts = Map(
+    res1 -> Map(token(0) -> 2, token(2) -> 1),
+    res2 -> Map(token(3) -> 5, token(1) -> 1, token(0) -> 1)
+  )
+  val totals = Map(res1 -> 3, res2 -> 7)
+
+  "Token counts" should "count the token types sorted by their IDs" in {
+    val counts = TokenCounts.fromTokenTypes(List(token(2), token(0), TokenType.STOPWORD, token(2), TokenType.UNKNOWN, TokenType.STOPWORD))
+
+    counts.tokens.take(counts.length) should equal (Array(TokenCounts.UNKNOWN_ID, TokenCounts.STOPWORD_ID, 0, 2))
+    counts.counts.take(counts.length) should equal (Array(1, 2, 1, 2))
+  }
+
+  "The generative context similarity" should "score token counts like the per-token probabilities" in {
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+
+    val scores = similarity.score(query.asJava, contexts.mapValues(_.asJava), totals)
+
+    contexts.keys.foreach { res: DBpediaResource =>
+      val expected = query.map { case (t, c) =>
+        math.log(c) + similarity.p(t, res, contexts(res).asJava, totals(res))
+      }.sum
+
+      scores(res) should be (expected plusOrMinus 1e-9)
+    }
+  }
+
+  it should "precompute the LM probabilities of all tokens" in {
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+
+    (0 until tokenStore.getVocabularySize).foreach { id: Int =>
+      similarity.lmLogProbs(id) should be (similarity.pLM(token(id)) plusOrMinus 1e-12)
+    }
+  }
+
+  it should "not score candidates without context" in {
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+
+    val scores = similarity.score(TokenCounts.fromMap(query.asJava), Array(TokenCounts.empty), Array(0))
+    scores(0).isNaN should be (true)
+  }
+
+  it should "score the query without any entity" in {
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+
+    val expected = query.map { case (t, c) => math.log(c) + math.log(1 - similarity.lambda) + similarity.pLM(t) }.sum
+    similarity.nilScore(query.asJava) should be (expected plusOrMinus 1e-9)
+  }
+
+  it should "never score a context higher than the upper bound for its total token count" in {
+    val similarity = new GenerativeContextSimilarity(tokenStore)
+    val random = new scala.util.Random(13)
+
+    def randomTokens(n: Int) = (1 to n).map { _ =>
+      random.nextInt(7) match {
+        case 5 => TokenType.UNKNOWN
+        case 6 => TokenType.STOPWORD
+        case id => token(id)
+      }
+    }
+
+    (1 to 500).foreach { _ =>
+      val scorer = similarity.scorer(TokenCounts.fromTokenTypes(randomTokens(1 + random.nextInt(10))))
+
+      //Contexts only contain tokens of the token store, small contexts get close to the bound:
+      val context = TokenCounts.fromTokenTypes((1 to 1 + random.nextInt(20)).map(_ => token(random.nextInt(1 + random.nextInt(5)))))
+      val total = (0 until context.length).map(context.count(_)).sum
+
+      scorer.score(context, total) should be <= (scorer.upperBound(total))
+      scorer.upperBound(0) should be (Double.NegativeInfinity)
+    }
+  }
+
+  "The TF-ICF similarity" should "weight the matching tokens by their inverse candidate frequency" in {
+    val scores = new TFICFSimilarity().score(query.asJava, contexts.mapValues(_.asJava), totals)
+
+    scores(res1) should be ((2 * 1.0) / 2 plusOrMinus 1e-9)
+    scores(res2) should be ((1 * 1.0 + 1 * (math.log(2) + 1.0)) / 3 plusOrMinus 1e-9)
+  }
+
+  it should "score like the per-token TF-ICF for short and long contexts" in {
+    val similarity = new TFICFSimilarity()
+    val random = new scala.util.Random(7)
+
+    //Tokens that are not in the token store are created with their ID:
+    def tokenWithID(id: Int) = new TokenType(id, "t" + id, 1)
+
+    def randomCounts(n: Int, vocabulary: Int): java.util.Map[TokenType, Int] =
+      (1 to n).map(_ => tokenWithID(random.nextInt(vocabulary))).groupBy(identity).mapValues(_.size).asJava
+
+    List(5, 50, 1000).foreach { contextSize: Int =>
+      val query = randomCounts(20, 200)
+      val candidates = (1 to 10).map(i => new DBpediaResource("R" + i) -> randomCounts(contextSize, 200)).toMap
+
+      val scores = similarity.score(query, candidates, candidates.mapValues(_ => 0))
+
+      candidates.foreach { case (res, context) =>
+        val expected = query.asScala.keys.map(similarity.tficf(_, context, candidates.values)).sum / similarity.norm(context)
+        scores(res) should be (expected plusOrMinus 1e-9)
+      }
+    }
+  }
+
+  "Seeking in token counts" should "find the first token not smaller than the searched token" in {
+    val counts = new TokenCounts(Array(1, 3, 5, 7, 9, 11), Array(1, 1, 1, 1, 1, 1))
+
+    TFICFSimilarity.seek(counts, 0, 0) should be (0)
+    TFICFSimilarity.seek(counts, 5, 0) should be (2)
+    TFICFSimilarity.seek(counts, 6, 1) should be (3)
+    TFICFSimilarity.seek(counts, 11, 4) should be (5)
+    TFICFSimilarity.seek(counts, 12, 0) should be (6)
+  }
+
+}
@@ -0,0 +1,51 @@
+package org.dbpedia.spotlight.disambiguate.mixtures
+
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.model._
+
+class MixtureTest extends FlatSpec with ShouldMatchers {
+
+  val pE  = Array(-10.0, -3.5, -7.25)
+  val pSE = Array(-0.5, -2.0, -0.125)
+  val pCE = Array(-120.0, -98.5, -101.75)
+
+  def occurrence(i: Int): DBpediaResourceOccurrence = {
+    val occ = new DBpediaResourceOccurrence(new DBpediaResource("R" + i), new SurfaceForm("s"), new Text("s"), 0)
+    occ.setScore(FeatureKey.P_E, pE(i))
+    occ.setScore(FeatureKey.P_SE, pSE(i))
+    occ.setScore(FeatureKey.P_CE, pCE(i))
+    occ
+  }
+
+  def checkColumns(mixture: Mixture) {
+    mixture.isColumnar should be (true)
+
+    val scores = new Array[Double](pE.length)
+    mixture.getScores(pE, pSE, pCE, pE.length, scores)
+
+    (0 until pE.length).foreach { i: Int =>
+      scores(i) should be (mixture.getScore(occurrence(i)))
+      mixture.getScore(pE(i), pSE(i), pCE(i)) should be (mixture.getScore(occurrence(i)))
+    }
+  }
+
+  "An unweighted mixture" should "score feature columns like occurrences" in {
+    checkColumns(new UnweightedMixture(Set("P(e)", "P(c|e)", "P(s|e)")))
+  }
+
+  "A linear regression feature mixture" should "score feature columns like occurrences" in {
+    checkColumns(new LinearRegressionFeatureMixture(List(("P(e)", 0.0216), ("P(c|e)", 0.0005), ("P(s|e)", 0.2021)), 1.5097))
+  }
+
+  "A mixture using other features" should "not be columnar" in {
+    new UnweightedMixture(Set("P(e)", "contextualScore")).isColumnar should be (false)
+  }
+
+  "The softmax denominator" should "be the log of the sum of the exponentials" in {
+    val values = Array(-1.0, -2.0, -3.0, 100.0)
+    val expected = math.log(math.exp(-1.0) + math.exp(-2.0) + math.exp(-3.0) + math.exp(-4.0))
+    Mixture.logSumExp(values, 3, -4.0) should be (expected plusOrMinus 1e-12)
+  }
+
+}
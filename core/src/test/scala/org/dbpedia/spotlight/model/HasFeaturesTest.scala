@@ -0,0 +1,58 @@
+package org.dbpedia.spotlight.model
+
+import org.scalatest._
+import matchers.ShouldMatchers
+
+class HasFeaturesTest extends FlatSpec with ShouldMatchers {
+
+  "An object with features" should "return scores by their name and by their key" in {
+    val text = new Text("Berlin")
+    text.setScore(FeatureKey.P_E, -2.5)
+
+    text.featureValue[Double]("P(e)") should be (Some(-2.5))
+    text.scoreValue(FeatureKey("P(e)")) should be (-2.5)
+    text.feature("P(e)").get.isInstanceOf[Score] should be (true)
+  }
+
+  it should "keep non-numeric features" in {
+    val text = new Text("Berlin")
+    text.setFeature(new Nominal("spot_type", "lexicalized"))
+    text.setFeature(new Feature("tokens", List(1, 2)))
+
+    text.featureValue[String]("spot_type") should be (Some("lexicalized"))
+    text.featureValue[List[Int]]("tokens") should be (Some(List(1, 2)))
+    text.features.keySet should equal (Set("spot_type", "tokens"))
+  }
+
+  it should "replace the value of a feature that is set again" in {
+    val text = new Text("Berlin")
+    text.setFeature(new Score("P(c|e)", -1.0))
+    text.setScore(FeatureKey.P_CE, -3.0)
+
+    text.featureValue[Double]("P(c|e)") should be (Some(-3.0))
+    text.features.size should be (1)
+  }
+
+  it should "return nothing for features that are not set" in {
+    val text = new Text("Berlin")
+    text.feature("not-set") should be (None)
+    text.hasFeature(FeatureKey.P_SE) should be (false)
+    java.lang.Double.isNaN(text.scoreValue(FeatureKey.P_SE)) should be (true)
+    text.features.isEmpty should be (true)
+  }
+
+  it should "not assign a slot to a feature that is only read" in {
+    val text = new Text("Berlin")
+    val slots = FeatureKey.size
+
+    text.feature("only-read") should be (None)
+    text.featureValue[Double]("only-read") should be (None)
+    FeatureKey.get("only-read") should be (None)
+    FeatureKey.size should be (slots)
+
+    text.setFeature(new Nominal("only-read", "now set"))
+    FeatureKey.get("only-read").isDefined should be (true)
+    text.featureValue[String]("only-read") should be (Some("now set"))
+  }
+
+}
@@ -0,0 +1,35 @@
+package org.dbpedia.spotlight.util
+
+import org.scalatest._
+import matchers.ShouldMatchers
+
+class DeadlineTest extends FlatSpec with ShouldMatchers {
+
+  "A deadline" should "not be started without a budget" in {
+    Deadline.start(0) should be (null)
+    Deadline.current() should be (null)
+  }
+
+  it should "be available to the current thread until it is cleared" in {
+    val deadline = Deadline.start(60000)
+    Deadline.current() should be theSameInstanceAs (deadline)
+
+    Deadline.clear()
+    Deadline.current() should be (null)
+  }
+
+  it should "not be close while most of the budget is left" in {
+    val deadline = new Deadline(600000)
+    deadline.isClose should be (false)
+    deadline.isExpired should be (false)
+    deadline.remainingMillis should be > (500000L)
+  }
+
+  it should "be close and expired once the budget has passed" in {
+    val deadline = new Deadline(10)
+    Thread.sleep(50)
+    deadline.isClose should be (true)
+    deadline.isExpired should be (true)
+  }
+
+}
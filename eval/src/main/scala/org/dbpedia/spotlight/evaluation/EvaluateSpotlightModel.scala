@@ -56,7 +56,7 @@ object EvaluateSpotlightModel {
     //Set tokenizer:
     spotter match {
       case spotter: DBSpotter => spotter.tokenizer = model.tokenizer
-      case spotterW: SpotterWrapper => spotterW.spotters.foreach(_.asInstanceOf[DBSpotter].tokenizer = model.tokenizer)
+      case spotterW: SpotterWrapper => spotterW.pool.configure(_.asInstanceOf[DBSpotter].tokenizer = model.tokenizer)
     }
     disambiguator.disambiguator.asInstanceOf[DBTwoStepDisambiguator].tokenizer = model.tokenizer
 
@@ -2,7 +2,7 @@ package org.dbpedia.spotlight.db
 
 import io._
 import java.io.{FileOutputStream, FileInputStream, File}
-import memory.MemoryStore
+import memory.{StringIDIndex, MemoryStore}
 import model.{TextTokenizer, StringTokenizer, Stemmer}
 import scala.io.Source
 import org.tartarus.snowball.SnowballProgram
@@ -132,6 +132,7 @@ object CreateSpotlightModel {
     defaultProperties.setProperty("stemmer",   args(5))
     defaultProperties.setProperty("namespace", namespace)
     defaultProperties.setProperty("locale", localeCode)
+    defaultProperties.setProperty(StringIDIndex.PROPERTY, StringIDIndex.HASH_TABLE)
 
 
     defaultProperties.store(new FileOutputStream(new File(outputFolder, "model.properties")), null)
@@ -172,8 +173,8 @@ object CreateSpotlightModel {
       )
     )
 
-    val resStore = MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")))
-    val sfStore  = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")))
+    val resStore = MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")), new FileInputStream(new File(modelDataFolder, "res.idx")))
+    val sfStore  = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")), new FileInputStream(new File(modelDataFolder, "sf.idx")))
 
     memoryIndexer.addCandidatesByID(
       CandidateMapSource.fromPigFiles(
@@ -192,7 +193,7 @@ object CreateSpotlightModel {
       )
     )
 
-    val tokenStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
+    val tokenStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")), new FileInputStream(new File(modelDataFolder, "tokens.idx")))
 
     memoryIndexer.createContextStore(resStore.size)
     memoryIndexer.addTokenOccurrences(
@@ -226,6 +227,7 @@ object CreateSpotlightModel {
     val fsaDict = FSASpotter.buildDictionary(sfStore, tokenizer)
 
     MemoryStore.dump(fsaDict, new File(outputFolder, "fsa_dict.mem"))
+    MemoryStore.dump(DoubleArrayFSA.fromDictionary(fsaDict), new File(outputFolder, "fsa_da.mem"))
 
     FileUtils.write(
       new File(outputFolder, "spotter_thresholds.txt"),
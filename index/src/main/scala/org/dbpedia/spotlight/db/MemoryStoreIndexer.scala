@@ -1,6 +1,7 @@
 package org.dbpedia.spotlight.db
 
 import memory._
+import memory.util.StringPool
 import model.StringTokenizer
 import org.apache.commons.lang.NotImplementedException
 import java.lang.{Short, String}
@@ -19,6 +20,11 @@ import collection.mutable
 /**
  * Implements memory-based indexing. The memory stores are serialized and deserialized using Kryo.
  *
+ * For the surface form, resource and token type stores, the reverse lookups (String to ID, including
+ * the normalized surface forms) are created here once and stored next to the stores, both as hash tables
+ * (.idx) and as minimal perfect hash functions (.mph). The model property "reverse_lookup" selects which
+ * of the two is used when the model is loaded.
+ *
  * @author Joachim Daiber
  */
 
@@ -109,11 +115,13 @@ class MemoryStoreIndexer(val baseDir: File)
     }
 
 
-    sfStore.stringForID  = stringForID
+    sfStore.stringForID  = StringPool.fromArray(stringForID)
     sfStore.annotatedCountForID = annotatedCountForID
     sfStore.totalCountForID = totalCountForID
 
     MemoryStore.dump(sfStore, new File(baseDir, "sf.mem"))
+    MemoryStore.dump(MemoryStringIndex.forSurfaceFormStore(sfStore), new File(baseDir, "sf.idx"))
+    MemoryStore.dump(MemoryPerfectHashIndex.forSurfaceFormStore(sfStore), new File(baseDir, "sf.mph"))
   }
 
 
@@ -153,10 +161,12 @@ class MemoryStoreIndexer(val baseDir: File)
 
     resStore.ontologyTypeStore = ontologyTypeStore
     resStore.supportForID = supportForID.array
-    resStore.uriForID = uriForID.array
+    resStore.uriForID = StringPool.fromArray(uriForID)
     resStore.typesForID = typesForID.array
 
     MemoryStore.dump(resStore, new File(baseDir, "res.mem"))
+    MemoryStore.dump(MemoryStringIndex.forResourceStore(resStore), new File(baseDir, "res.idx"))
+    MemoryStore.dump(MemoryPerfectHashIndex.forResourceStore(resStore), new File(baseDir, "res.mph"))
   }
 
 
@@ -184,8 +194,11 @@ class MemoryStoreIndexer(val baseDir: File)
       }
     }
 
-    candmapStore.candidates = (candidates map { l: ListBuffer[Int] => if(l != null) l.toArray else null} ).toArray
-    candmapStore.candidateCounts = (candidateCounts map { l: ListBuffer[Int] => if(l != null) l.toArray else null} ).toArray
+    MemoryCandidateMapStore.pack(
+      candmapStore,
+      (candidates map { l: ListBuffer[Int] => if(l != null) l.toArray else null} ).toArray,
+      (candidateCounts map { l: ListBuffer[Int] => if(l != null) l.toArray else null} ).toArray
+    )
 
     MemoryStore.dump(candmapStore, new File(baseDir, "candmap.mem"))
   }
@@ -209,8 +222,7 @@ class MemoryStoreIndexer(val baseDir: File)
       }
     }
 
-    candmapStore.candidates = candidates
-    candmapStore.candidateCounts = candidateCounts
+    MemoryCandidateMapStore.pack(candmapStore, candidates, candidateCounts)
 
     MemoryStore.dump(candmapStore, new File(baseDir, "candmap.mem"))
   }
@@ -233,10 +245,12 @@ class MemoryStoreIndexer(val baseDir: File)
       }
     }
 
-    tokenTypeStore.tokenForId = tokens.array
+    tokenTypeStore.tokenForId = StringPool.fromArray(tokens)
     tokenTypeStore.counts = counts.array
 
     MemoryStore.dump(tokenTypeStore, new File(baseDir, "tokens.mem"))
+    MemoryStore.dump(MemoryStringIndex.forTokenTypeStore(tokenTypeStore), new File(baseDir, "tokens.idx"))
+    MemoryStore.dump(MemoryPerfectHashIndex.forTokenTypeStore(tokenTypeStore), new File(baseDir, "tokens.mph"))
   }
 
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest;
+
+import org.dbpedia.spotlight.db.SpotlightModel;
+import org.dbpedia.spotlight.db.model.TextTokenizer;
+import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy;
+import org.dbpedia.spotlight.model.SpotlightConfiguration;
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy;
+import org.dbpedia.spotlight.sparql.SparqlQueryExecuter;
+import org.dbpedia.spotlight.spot.Spotter;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The spotters, disambiguators and tokenizer the Server currently answers requests with, together with
+ * the settings that belong to the model (namespace prefix, SPARQL endpoint and request timeout).
+ *
+ * A state is never modified after it has been created, a new model is served by replacing the
+ * whole state (see {@link Server#reloadModel(String)}). Every request works on a single state from
+ * start to end, the number of requests currently using a state is counted so that the state can be
+ * released once all requests on it have finished.
+ *
+ * @author Joachim Daiber
+ */
+public class ModelState {
+
+    private final Map<SpotterPolicy,Spotter> spotters;
+    private final Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators;
+    private final TextTokenizer tokenizer;
+
+    private final String namespacePrefix;
+    private final SparqlQueryExecuter sparqlExecuter;
+
+    // Time budget of a request in ms (0: no deadline), set by the system property spotlight.requestTimeout or
+    // the model property request_timeout. Once the deadline is close, occurrences are disambiguated by prior only.
+    private final long requestTimeout;
+
+    static final long DEFAULT_REQUEST_TIMEOUT = Long.getLong("spotlight.requestTimeout", 0L);
+
+    //Only set for the DB-based version, null if the state was created from a configuration file:
+    private final SpotlightModel model;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    public ModelState(Map<SpotterPolicy,Spotter> spotters, Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators, TextTokenizer tokenizer, SpotlightModel model,
+                      String namespacePrefix, SparqlQueryExecuter sparqlExecuter, long requestTimeout) {
+        this.spotters = spotters;
+        this.disambiguators = disambiguators;
+        this.tokenizer = tokenizer;
+        this.model = model;
+        this.namespacePrefix = namespacePrefix;
+        this.sparqlExecuter = sparqlExecuter;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public ModelState(SpotlightModel model) {
+        this(model.spotters(), model.disambiguators(), model.tokenizer(), model,
+                model.properties().getProperty("namespace", SpotlightConfiguration.DEFAULT_NAMESPACE),
+                sparqlExecuter(model.properties().getProperty("endpoint", ""), model.properties().getProperty("graph", "")),
+                requestTimeout(model.properties().getProperty("request_timeout")));
+    }
+
+    static SparqlQueryExecuter sparqlExecuter(String endpoint, String graph) {
+        if (endpoint == null || endpoint.equals(""))  endpoint= "http://dbpedia.org/sparql";
+        if (graph == null || graph.equals(""))  graph= "http://dbpedia.org";
+
+        return new SparqlQueryExecuter(graph, endpoint);
+    }
+
+    static long requestTimeout(String timeout) {
+        return timeout != null ? Long.parseLong(timeout.trim()) : DEFAULT_REQUEST_TIMEOUT;
+    }
+
+    public Map<SpotterPolicy,Spotter> getSpotters() {
+        return spotters;
+    }
+
+    public Map<DisambiguationPolicy,ParagraphDisambiguatorJ> getDisambiguators() {
+        return disambiguators;
+    }
+
+    public TextTokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public SpotlightModel getModel() {
+        return model;
+    }
+
+    public String getNamespacePrefix() {
+        return namespacePrefix;
+    }
+
+    public SparqlQueryExecuter getSparqlExecuter() {
+        return sparqlExecuter;
+    }
+
+    /**
+     * @return the time budget of a request in ms, 0 if requests have no deadline
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    int acquire() {
+        return inFlight.incrementAndGet();
+    }
+
+    int release() {
+        return inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return the number of requests that are currently using this state
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stops the worker threads of the model. Must only be called once no request uses this state anymore.
+     */
+    void close() {
+        if (model != null)
+            model.close();
+    }
+
+}
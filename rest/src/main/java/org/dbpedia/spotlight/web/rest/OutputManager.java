@@ -24,6 +24,7 @@ package org.dbpedia.spotlight.web.rest;
 import net.sf.json.xml.XMLSerializer;
 import org.dbpedia.spotlight.exceptions.OutputException;
 import org.dbpedia.spotlight.model.DBpediaResourceOccurrence;
+import org.dbpedia.spotlight.model.FeatureKey;
 import org.dbpedia.spotlight.model.OntologyType;
 import org.dbpedia.spotlight.model.SurfaceForm;
 import org.xml.sax.SAXException;
@@ -109,6 +110,44 @@ public class OutputManager {
         return xml;
     }
 
+    /**
+     * Creates one Annotation element per text, in an Annotations element.
+     */
+    protected String makeBatchXML(List<String> texts, List<List<DBpediaResourceOccurrence>> occLists, double confidence, int support, String targetTypesString, String sparqlQuery, String policy, boolean coreferenceResolution) throws OutputException {
+        String xml = "";
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TransformerHandler hd = initXMLDoc(out);
+
+            AttributesImpl atts = new AttributesImpl();
+            hd.startElement("","","Annotations",atts);
+
+            for (int i = 0; i < texts.size(); i++) {
+                List<DBpediaResourceOccurrence> occList = occLists.get(i);
+
+                atts.clear();
+                atts.addAttribute("","","text","CDATA",getText(texts.get(i), occList));
+                atts.addAttribute("","","confidence","CDATA",String.valueOf(confidence));
+                atts.addAttribute("","","support","CDATA",String.valueOf(support));
+                atts.addAttribute("","","types","CDATA",targetTypesString);
+                atts.addAttribute("","","sparql","CDATA",sparqlQuery);
+                atts.addAttribute("","","policy","CDATA",policy);
+                hd.startElement("","","Annotation",atts);
+
+                getResourcesXml(occList, hd, atts);
+
+                hd.endElement("","","Annotation");
+            }
+
+            hd.endElement("","","Annotations");
+            hd.endDocument();
+            xml = out.toString("utf-8");
+        } catch (Exception e) {
+            throw new OutputException("Error creating XML output.", e);
+        }
+        return xml;
+    }
+
     protected String makeNIF(String text, List<DBpediaResourceOccurrence> occList, String format, String prefix) throws OutputException {
     	return NIFOutputFormatter.fromResourceOccs(text, occList, format, prefix);
     }
@@ -131,6 +170,8 @@ public class OutputManager {
             atts.addAttribute("","","offset","CDATA",String.valueOf(occ.textOffset()));
             atts.addAttribute("", "", "similarityScore", "CDATA", String.valueOf(occ.similarityScore()));
             atts.addAttribute("","","percentageOfSecondRank","CDATA",String.valueOf(occ.percentageOfSecondRank()));
+            if (occ.hasFeature(FeatureKey.FALLBACK()))
+                atts.addAttribute("","","fallback","CDATA",String.valueOf(occ.feature(FeatureKey.FALLBACK()).get().value()));
 
             hd.startElement("","","Resource",atts);
             hd.endElement("","","Resource");
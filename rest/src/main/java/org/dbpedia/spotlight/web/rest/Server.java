@@ -28,9 +28,12 @@ import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
 import org.dbpedia.spotlight.exceptions.InitializationException;
 import org.dbpedia.spotlight.exceptions.InputException;
 import org.dbpedia.spotlight.model.DBpediaResource;
+import org.dbpedia.spotlight.model.Factory;
 import org.dbpedia.spotlight.model.SpotlightConfiguration;
 import org.dbpedia.spotlight.model.SpotlightFactory;
 import org.dbpedia.spotlight.model.SpotterConfiguration;
+import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
+import org.dbpedia.spotlight.model.Text;
 import org.dbpedia.spotlight.sparql.SparqlQueryExecuter;
 import org.dbpedia.spotlight.spot.Spotter;
 import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy;
@@ -45,6 +48,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Instantiates Web Service that will execute annotation and disambiguation tasks.
@@ -61,23 +66,38 @@ public class Server {
     // Server reads configuration parameters into this static configuration object that will be used by other classes downstream
     protected static SpotlightConfiguration configuration;
 
-    // Server will hold a few spotters that can be chosen from URL parameters
-    protected static Map<SpotterPolicy,Spotter> spotters = new HashMap<SpotterConfiguration.SpotterPolicy,Spotter>();
+    // Server will hold a few spotters and disambiguators that can be chosen from URL parameters. They are
+    // replaced together with the tokenizer when a new model is loaded, hence they are kept in a single state.
+    private static final AtomicReference<ModelState> state = new AtomicReference<ModelState>(
+            new ModelState(new HashMap<SpotterPolicy,Spotter>(), new HashMap<DisambiguationPolicy,ParagraphDisambiguatorJ>(), null, null,
+                    SpotlightConfiguration.DEFAULT_NAMESPACE, null, ModelState.DEFAULT_REQUEST_TIMEOUT));
 
-    // Server will hold a few disambiguators that can be chosen from URL parameters
-    protected static Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators = new HashMap<SpotlightConfiguration.DisambiguationPolicy,ParagraphDisambiguatorJ>();
+    // The state that is used by the request the current thread is working on (see beginRequest).
+    private static final ThreadLocal<ModelState> requestState = new ThreadLocal<ModelState>();
+
+    // Reloading a model requires at least the estimated size of the model times this factor as free heap.
+    private static final double RELOAD_HEADROOM_FACTOR = 1.5;
+
+    // Time to wait for the requests on the old model to finish before the old model is released anyway.
+    private static final long RELOAD_DRAIN_TIMEOUT = 10 * 60 * 1000;
+
+    private static final int RELOAD_WARM_UP_ITERATIONS = 10;
+
+    private static final String RELOAD_WARM_UP_TEXT = "President Obama called Wednesday on Congress to extend a tax break for students included in last year's economic stimulus package, arguing that the policy provides more generous assistance.";
+
+    private static final AtomicBoolean reloading = new AtomicBoolean(false);
+
+    private static volatile String reloadStatus = "No model reload was requested.";
 
     private static volatile Boolean running = true;
 
     static String usage = "usage: java -jar dbpedia-spotlight.jar org.dbpedia.spotlight.web.rest.Server [config file]"
                         + "   or: mvn scala:run \"-DaddArgs=[config file]\"";
 
-    //This is currently only used in the DB-based version.
-    private static TextTokenizer tokenizer;
-
-    private static String namespacePrefix = SpotlightConfiguration.DEFAULT_NAMESPACE;
-
-    private static SparqlQueryExecuter sparqlExecuter = null;
+    // Limits of a batch request: the maximum number of texts and their maximum total length in characters,
+    // set by the system properties spotlight.maxBatchSize and spotlight.maxBatchLength.
+    private static final int maxBatchSize = Integer.getInteger("spotlight.maxBatchSize", 100);
+    private static final long maxBatchLength = Long.getLong("spotlight.maxBatchLength", 1000000L);
 
     private static List<Double> similarityThresholds = new ArrayList<Double>();
 
@@ -101,8 +121,8 @@ public class Server {
         //ExternalUriWadlGeneratorConfig.setUri(configuration.getServerURI()); //TODO get another parameter, maybe getExternalServerURI since Grizzly will use this in order to find out to which port to bind
 
 
-        LOG.info(String.format("Initiated %d disambiguators.",disambiguators.size()));
-        LOG.info(String.format("Initiated %d spotters.",spotters.size()));
+        LOG.info(String.format("Initiated %d disambiguators.",state.get().getDisambiguators().size()));
+        LOG.info(String.format("Initiated %d spotters.",state.get().getSpotters().size()));
 
         final Map<String, String> initParams = new HashMap<String, String>();
         initParams.put("com.sun.jersey.config.property.resourceConfigClass", "com.sun.jersey.api.core.PackagesResourceConfig");
@@ -135,18 +155,53 @@ public class Server {
     }
 
 
-    private static void setSpotters(Map<SpotterPolicy,Spotter> s) throws InitializationException {
-        if (spotters.size() == 0)
-            spotters = s;
-        else
-            throw new InitializationException("Trying to overwrite singleton Server.spotters. Something fishy happened!");
+    private static void setState(ModelState s) throws InitializationException {
+        ModelState current = state.get();
+        if (current.getSpotters().size() != 0 || current.getDisambiguators().size() != 0 || !state.compareAndSet(current, s))
+            throw new InitializationException("Trying to overwrite singleton Server state. Use reloadModel to replace a loaded model.");
     }
 
-    private static void setDisambiguators(Map<SpotlightConfiguration.DisambiguationPolicy,ParagraphDisambiguatorJ> s) throws InitializationException {
-        if (disambiguators.size() == 0)
-            disambiguators = s;
-        else
-            throw new InitializationException("Trying to overwrite singleton Server.disambiguators. Something fishy happened!");
+    /**
+     * Pins the current model to the calling thread until {@link #endRequest()} is called, all spotters,
+     * disambiguators and the tokenizer returned by the Server to this thread in the meantime belong to
+     * the same model, even if a new model is loaded while the request is running. Nested calls
+     * keep the state of the outermost call.
+     *
+     * Usage:
+     *
+     * boolean started = Server.beginRequest();
+     * try { ... } finally { if (started) Server.endRequest(); }
+     *
+     * @return true if the request was started by this call
+     */
+    public static boolean beginRequest() {
+        if (requestState.get() != null)
+            return false;
+
+        while (true) {
+            ModelState s = state.get();
+            s.acquire();
+
+            //If the state was replaced in the meantime, the reload may already be waiting for the old state to drain:
+            if (state.get() == s) {
+                requestState.set(s);
+                return true;
+            }
+            s.release();
+        }
+    }
+
+    public static void endRequest() {
+        ModelState s = requestState.get();
+        if (s != null) {
+            requestState.remove();
+            s.release();
+        }
+    }
+
+    private static ModelState currentState() {
+        ModelState s = requestState.get();
+        return s != null ? s : state.get();
     }
 
     public static Spotter getSpotter(String name) throws InputException {
@@ -157,6 +212,7 @@ public class Server {
             throw new InputException(String.format("Specified parameter spotter=%s is invalid. Use one of %s.",name,SpotterPolicy.values()));
         }
 
+        Map<SpotterPolicy,Spotter> spotters = currentState().getSpotters();
         if (spotters.size() == 0)
             throw new InputException(String.format("No spotters were loaded. Please add one of %s.",spotters.keySet()));
 
@@ -175,6 +231,7 @@ public class Server {
             throw new InputException(String.format("Specified parameter disambiguator=%s is invalid. Use one of %s.",name,DisambiguationPolicy.values()));
         }
 
+        Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators = currentState().getDisambiguators();
         if (disambiguators.size() == 0)
             throw new InputException(String.format("No disambiguators were loaded. Please add one of %s.",disambiguators.keySet()));
 
@@ -204,32 +261,38 @@ public class Server {
         return configuration;
     }
 
+    //This is currently only used in the DB-based version.
     public static TextTokenizer getTokenizer() {
-        return tokenizer;
-    }
-
-    public static void setTokenizer(TextTokenizer tokenizer) {
-        Server.tokenizer = tokenizer;
+        return currentState().getTokenizer();
     }
 
     public static String getPrefixedDBpediaURL(DBpediaResource resource) {
-        return namespacePrefix + resource.uri();
+        return currentState().getNamespacePrefix() + resource.uri();
     }
 
-    public static void setNamespacePrefix(String namespacePrefix) {
-        Server.namespacePrefix = namespacePrefix;
+    public static SparqlQueryExecuter getSparqlExecute(){
+        return currentState().getSparqlExecuter();
     }
 
-    private static void setSparqlExecuter(String endpoint, String graph)
-    {
-        if (endpoint == null || endpoint.equals(""))  endpoint= "http://dbpedia.org/sparql";
-        if (graph == null || graph.equals(""))  endpoint= "http://dbpedia.org";
+    /**
+     * @return the time budget of a request in ms, 0 if requests have no deadline
+     */
+    public static long getRequestTimeout() {
+        return currentState().getRequestTimeout();
+    }
 
-        Server.sparqlExecuter = new SparqlQueryExecuter(graph, endpoint);
+    /**
+     * @return the maximum number of texts in a batch request
+     */
+    public static int getMaxBatchSize() {
+        return maxBatchSize;
     }
 
-    public static SparqlQueryExecuter getSparqlExecute(){
-        return sparqlExecuter;
+    /**
+     * @return the maximum total length of the texts in a batch request in characters
+     */
+    public static long getMaxBatchLength() {
+        return maxBatchLength;
     }
 
     private static void setSimilarityThresholds( List<Double> similarityThresholds){
@@ -254,9 +317,9 @@ public class Server {
 
         }
 
-        LOG.info(String.format("Initiated %d disambiguators.",disambiguators.size()));
+        LOG.info(String.format("Initiated %d disambiguators.",state.get().getDisambiguators().size()));
 
-        LOG.info(String.format("Initiated %d spotters.",spotters.size()));
+        LOG.info(String.format("Initiated %d spotters.",state.get().getSpotters().size()));
 
     }
 
@@ -273,10 +336,10 @@ public class Server {
         }
         // Set static annotator that will be used by Annotate and Disambiguate
         final SpotlightFactory factory  = new SpotlightFactory(configuration);
-        setDisambiguators(factory.disambiguators());
-        setSpotters(factory.spotters());
-        setNamespacePrefix(configuration.getDbpediaResource());
-        setSparqlExecuter(configuration.getSparqlEndpoint(), configuration.getSparqlMainGraph());
+        setState(new ModelState(factory.spotters(), factory.disambiguators(), null, null,
+                configuration.getDbpediaResource(),
+                ModelState.sparqlExecuter(configuration.getSparqlEndpoint(), configuration.getSparqlMainGraph()),
+                ModelState.DEFAULT_REQUEST_TIMEOUT));
         setSimilarityThresholds(configuration.getSimilarityThresholds());
 
     }
@@ -296,11 +359,137 @@ public class Server {
 
         SpotlightModel db = SpotlightModel.fromFolder(modelFolder);
 
-        setNamespacePrefix(db.properties().getProperty("namespace"));
-        setTokenizer(db.tokenizer());
-        setSpotters(db.spotters());
-        setDisambiguators(db.disambiguators());
-        setSparqlExecuter(db.properties().getProperty("endpoint", ""),db.properties().getProperty("graph", ""));
+        setState(new ModelState(db));
+
+    }
 
+    /**
+     * Replaces the served model by the model in the folder without interrupting the server.
+     *
+     * Before the new model is loaded, it is checked whether there is enough free heap to hold both models,
+     * the reload is refused otherwise. The new model is then loaded and warmed up in the background while
+     * requests are answered with the old model. Once it is ready, spotters, disambiguators and tokenizer are
+     * replaced at once. The old model is released after all requests that are still using it have finished.
+     *
+     * @param folder the model folder
+     * @throws InitializationException if a reload is already running, the folder is invalid or there is not enough memory
+     */
+    public static void reloadModel(final String folder) throws InitializationException {
+        final File modelFolder = new File(folder);
+        if (!new File(modelFolder, "model.properties").exists())
+            throw new InitializationException(String.format("Invalid Spotlight model folder: %s.", modelFolder.getAbsolutePath()));
+
+        if (!reloading.compareAndSet(false, true))
+            throw new InitializationException("A model is already being reloaded.");
+
+        try {
+            checkHeadroom(modelFolder);
+        } catch (InitializationException e) {
+            reloading.set(false);
+            reloadStatus = e.getMessage();
+            throw e;
+        }
+
+        reloadStatus = String.format("Loading model %s.", modelFolder.getAbsolutePath());
+        Thread reload = new Thread("model-reload") {
+            public void run() {
+                try {
+                    swapModel(modelFolder);
+                } catch (Exception e) {
+                    LOG.error(String.format("Could not reload model %s: %s", modelFolder.getAbsolutePath(), e.getMessage()), e);
+                    reloadStatus = String.format("Reloading model %s failed: %s", modelFolder.getAbsolutePath(), e.getMessage());
+                } finally {
+                    reloading.set(false);
+                }
+            }
+        };
+        reload.setDaemon(true);
+        reload.start();
+    }
+
+    public static String getReloadStatus() {
+        return reloadStatus;
+    }
+
+    /**
+     * @return the statistics of the served model, e.g. the hit rate of the candidate cache
+     */
+    public static String getStatistics() {
+        SpotlightModel model = currentState().getModel();
+        return model != null ? model.statistics() : "No statistics are available for this model.";
+    }
+
+    private static void checkHeadroom(File modelFolder) throws InitializationException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+
+        long required = (long) (SpotlightModel.estimateHeapSize(modelFolder) * RELOAD_HEADROOM_FACTOR);
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+
+        LOG.info(String.format("Reloading model requires approx. %d MB, %d MB available.", required / (1024 * 1024), available / (1024 * 1024)));
+        if (required > available)
+            throw new InitializationException(String.format("Not enough memory to reload the model: approx. %d MB required, %d MB available.",
+                    required / (1024 * 1024), available / (1024 * 1024)));
+    }
+
+    private static void swapModel(File modelFolder) throws Exception {
+        long start = System.currentTimeMillis();
+        SpotlightModel db = SpotlightModel.fromFolder(modelFolder);
+        ModelState next = new ModelState(db);
+        LOG.info(String.format("Loaded model %s in %d ms.", modelFolder.getAbsolutePath(), System.currentTimeMillis() - start));
+
+        reloadStatus = String.format("Warming up model %s.", modelFolder.getAbsolutePath());
+        warmUp(next);
+
+        ModelState old = swapState(next);
+        LOG.info(String.format("Serving model %s.", modelFolder.getAbsolutePath()));
+
+        reloadStatus = String.format("Serving model %s, waiting for %d requests on the old model.", modelFolder.getAbsolutePath(), old.getInFlight());
+        drain(old, RELOAD_DRAIN_TIMEOUT);
+        reloadStatus = String.format("Serving model %s.", modelFolder.getAbsolutePath());
+    }
+
+    /**
+     * Serves all requests that start from now on with the state next. Requests that are already running
+     * keep the state they have pinned (see {@link #beginRequest()}).
+     *
+     * @return the state that was served before
+     */
+    static ModelState swapState(ModelState next) {
+        return state.getAndSet(next);
+    }
+
+    /**
+     * Waits until no request uses the replaced state anymore, but at most timeout ms, and closes it.
+     */
+    static void drain(ModelState old, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (old.getInFlight() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(100);
+
+        if (old.getInFlight() > 0)
+            LOG.warn(String.format("Releasing old model with %d requests still running.", old.getInFlight()));
+
+        old.close();
+    }
+
+    /**
+     * Runs the default text through the model, so that the first requests on a new model are not slower than the others.
+     */
+    private static void warmUp(ModelState s) throws Exception {
+        Spotter spotter = s.getSpotters().get(SpotterPolicy.Default);
+        ParagraphDisambiguatorJ disambiguator = s.getDisambiguators().get(DisambiguationPolicy.Default);
+        if (spotter == null || disambiguator == null)
+            return;
+
+        for (int i = 0; i < RELOAD_WARM_UP_ITERATIONS; i++) {
+            Text text = new Text(RELOAD_WARM_UP_TEXT);
+            if (s.getTokenizer() != null)
+                s.getTokenizer().tokenizeMaybe(text);
+
+            List<SurfaceFormOccurrence> spots = spotter.extract(text);
+            if (spots.size() > 0)
+                disambiguator.disambiguate(Factory.paragraph().fromJ(spots));
+        }
     }
 }
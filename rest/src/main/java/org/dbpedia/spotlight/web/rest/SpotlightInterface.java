@@ -24,11 +24,12 @@ import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
 import org.dbpedia.spotlight.exceptions.InputException;
 import org.dbpedia.spotlight.exceptions.SearchException;
 import org.dbpedia.spotlight.exceptions.SpottingException;
-import org.dbpedia.spotlight.filter.visitor.FilterElement;
+import org.dbpedia.spotlight.filter.candidates.CandidateFilter;
 import org.dbpedia.spotlight.filter.visitor.FilterOccsImpl;
 import org.dbpedia.spotlight.filter.visitor.OccsFilter;
 import org.dbpedia.spotlight.model.*;
 import org.dbpedia.spotlight.spot.Spotter;
+import org.dbpedia.spotlight.util.Deadline;
 
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -54,6 +55,13 @@ public class SpotlightInterface {
     }
 
     public List<DBpediaResourceOccurrence> disambiguate(List<SurfaceFormOccurrence> spots, ParagraphDisambiguatorJ disambiguator) throws SearchException, InputException, SpottingException {
+        return disambiguate(spots, disambiguator, null);
+    }
+
+    /**
+     * Disambiguates the spots without the spots whose resource is rejected by the candidate filter (null to accept all candidates).
+     */
+    public List<DBpediaResourceOccurrence> disambiguate(List<SurfaceFormOccurrence> spots, ParagraphDisambiguatorJ disambiguator, CandidateFilter candidateFilter) throws SearchException, InputException, SpottingException {
         List<DBpediaResourceOccurrence> resources = new ArrayList<DBpediaResourceOccurrence>();
         if (spots.size()==0) return resources; // nothing to disambiguate
 
@@ -61,7 +69,7 @@ public class SpotlightInterface {
             Server.getTokenizer().tokenizeMaybe(spots.get(0).context());
 
         try {
-            resources = disambiguator.disambiguate(Factory.paragraph().fromJ(spots));
+            resources = disambiguator.disambiguate(Factory.paragraph().fromJ(spots), candidateFilter);
         } catch (UnsupportedOperationException e) {
             throw new SearchException(e);
         }
@@ -108,13 +116,18 @@ public class SpotlightInterface {
     }
 
     public List<SurfaceFormOccurrence> spot(String spotterName, Text context) throws InputException, SpottingException {
-        Spotter spotter = Server.getSpotter(spotterName);
+        boolean started = Server.beginRequest();
+        try {
+            Spotter spotter = Server.getSpotter(spotterName);
 
-        if(Server.getTokenizer() != null)
-            Server.getTokenizer().tokenizeMaybe(context);
+            if(Server.getTokenizer() != null)
+                Server.getTokenizer().tokenizeMaybe(context);
 
-        List<SurfaceFormOccurrence> spots = spotter.extract(context);
-        return spots;
+            List<SurfaceFormOccurrence> spots = spotter.extract(context);
+            return spots;
+        } finally {
+            if (started) Server.endRequest();
+        }
     }
 
     /**
@@ -133,42 +146,175 @@ public class SpotlightInterface {
                                                           String disambiguatorName
                                                           ) throws SearchException, InputException, SpottingException {
 
-        boolean blacklist = policyIsBlacklist(policy);
+        boolean started = Server.beginRequest();
+        // The deadline covers spotting and disambiguation, it is only started by the outermost call:
+        Deadline deadline = Deadline.current() == null ? Deadline.start(Server.getRequestTimeout()) : null;
+        try {
+            boolean blacklist = policyIsBlacklist(policy);
 
-        announce(textString,confidence,support,ontologyTypesString,sparqlQuery,policy,coreferenceResolution,clientIp,spotterName,disambiguatorName);
+            announce(textString,confidence,support,ontologyTypesString,sparqlQuery,policy,coreferenceResolution,clientIp,spotterName,disambiguatorName);
 
-        // Get input text
-        if (textString.trim().equals("")) {
-            throw new InputException("No text was specified in the &text parameter.");
-        }
-        Text context = new Text(textString);
+            // Get input text
+            if (textString.trim().equals("")) {
+                throw new InputException("No text was specified in the &text parameter.");
+            }
+            Text context = new Text(textString);
+
+            // Find spots to annotate/disambiguate
+            List<SurfaceFormOccurrence> spots = spot(spotterName,context);
+
+            // Call annotation or disambiguation
+            int maxLengthForOccurrenceCentric = 1200; //TODO configuration
+            if (Server.getTokenizer() == null && disambiguatorName.equals(SpotlightConfiguration.DisambiguationPolicy.Default.name())
+                    && textString.length() > maxLengthForOccurrenceCentric) {
+                disambiguatorName = SpotlightConfiguration.DisambiguationPolicy.Document.name();
+                LOG.info(String.format("Text length > %d. Using %s to disambiguate.",maxLengthForOccurrenceCentric,disambiguatorName));
+            }
+            ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
 
-        // Find spots to annotate/disambiguate
-        List<SurfaceFormOccurrence> spots = spot(spotterName,context);
+            // Occurrences without any candidate that passes the support, type and SPARQL constraints are not scored:
+            OccsFilter filter = new OccsFilter(confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, Server.getSimilarityThresholds(), Server.getSparqlExecute());
+            List<DBpediaResourceOccurrence> occList = disambiguate(spots, disambiguator, filter.candidateFilter());
+            occList = filter.accept(new FilterOccsImpl() ,occList);
 
-        // Call annotation or disambiguation
-        int maxLengthForOccurrenceCentric = 1200; //TODO configuration
-        if (Server.getTokenizer() == null && disambiguatorName.equals(SpotlightConfiguration.DisambiguationPolicy.Default.name())
-                && textString.length() > maxLengthForOccurrenceCentric) {
-            disambiguatorName = SpotlightConfiguration.DisambiguationPolicy.Document.name();
-            LOG.info(String.format("Text length > %d. Using %s to disambiguate.",maxLengthForOccurrenceCentric,disambiguatorName));
+
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Shown:");
+                for(DBpediaResourceOccurrence occ : occList) {
+                    LOG.debug(String.format("%s <- %s; score: %s, ctxscore: %3.2f, support: %s, prior: %s", occ.resource(), occ.surfaceForm(), occ.similarityScore(), occ.contextualScore(), occ.resource().support(), occ.resource().prior()));
+                }
+            }
+
+            return occList;
+        } finally {
+            if (deadline != null) Deadline.clear();
+            if (started) Server.endRequest();
         }
-        ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
-        List<DBpediaResourceOccurrence> occList = disambiguate(spots, disambiguator);
+    }
+
+    /**
+     * Annotates a batch of texts with the same parameters. The texts are disambiguated together, which
+     * is cheaper than annotating them one by one if the disambiguator supports batches.
+     *
+     * @return the occurrences for each text, in the order of the texts
+     */
+    public List<List<DBpediaResourceOccurrence>> getOccurrencesBatch(List<String> textStrings,
+                                                                      double confidence,
+                                                                      int support,
+                                                                      String ontologyTypesString,
+                                                                      String sparqlQuery,
+                                                                      String policy,
+                                                                      boolean coreferenceResolution,
+                                                                      String clientIp,
+                                                                      String spotterName,
+                                                                      String disambiguatorName
+                                                                      ) throws SearchException, InputException, SpottingException {
+
+        boolean started = Server.beginRequest();
+        // The deadline covers spotting and disambiguation of all texts, it is only started by the outermost call.
+        // Each text adds the time budget of a single request, the budget is bounded by the maximum batch size:
+        int batchSize = textStrings == null ? 1 : Math.max(1, Math.min(textStrings.size(), Server.getMaxBatchSize()));
+        Deadline deadline = Deadline.current() == null ? Deadline.start(Server.getRequestTimeout() * batchSize) : null;
+        try {
+            boolean blacklist = policyIsBlacklist(policy);
 
-        FilterElement filter = new OccsFilter(confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, Server.getSimilarityThresholds(), Server.getSparqlExecute());
-        occList = filter.accept(new FilterOccsImpl() ,occList);
+            if (textStrings == null || textStrings.isEmpty()) {
+                throw new InputException("No text was specified in the &text parameter.");
+            }
 
+            long totalLength = 0;
+            for (String textString : textStrings)
+                totalLength += textString.length();
 
+            if (textStrings.size() > Server.getMaxBatchSize()) {
+                throw new InputException(String.format("The batch contains %d texts, at most %d texts are allowed.", textStrings.size(), Server.getMaxBatchSize()));
+            }
+            if (totalLength > Server.getMaxBatchLength()) {
+                throw new InputException(String.format("The texts of the batch contain %d characters, at most %d characters are allowed.", totalLength, Server.getMaxBatchLength()));
+            }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Shown:");
-            for(DBpediaResourceOccurrence occ : occList) {
-                LOG.debug(String.format("%s <- %s; score: %s, ctxscore: %3.2f, support: %s, prior: %s", occ.resource(), occ.surfaceForm(), occ.similarityScore(), occ.contextualScore(), occ.resource().support(), occ.resource().prior()));
+            LOG.info("******************************** Parameters ********************************");
+            LOG.info("API: " + getApiName());
+            LOG.info("client ip: " + clientIp);
+            LOG.info("number of texts: " + textStrings.size());
+            LOG.info("spotter: "+spotterName);
+            LOG.info("disambiguator: "+disambiguatorName);
+
+            // Find spots to annotate/disambiguate in all texts, texts without spots are not disambiguated
+            List<Paragraph> paragraphs = new ArrayList<Paragraph>();
+            List<Integer> paragraphIndex = new ArrayList<Integer>();
+            int maxLength = 0;
+            for (String textString : textStrings) {
+                if (textString.trim().equals("")) {
+                    throw new InputException("One of the texts in the &text parameter is empty.");
+                }
+                maxLength = Math.max(maxLength, textString.length());
+
+                List<SurfaceFormOccurrence> spots = spot(spotterName, new Text(textString));
+                if (spots.size() == 0) {
+                    paragraphIndex.add(-1);
+                } else {
+                    paragraphIndex.add(paragraphs.size());
+                    paragraphs.add(Factory.paragraph().fromJ(spots));
+                }
             }
+
+            int maxLengthForOccurrenceCentric = 1200; //TODO configuration
+            if (Server.getTokenizer() == null && disambiguatorName.equals(SpotlightConfiguration.DisambiguationPolicy.Default.name())
+                    && maxLength > maxLengthForOccurrenceCentric) {
+                disambiguatorName = SpotlightConfiguration.DisambiguationPolicy.Document.name();
+                LOG.info(String.format("Text length > %d. Using %s to disambiguate.",maxLengthForOccurrenceCentric,disambiguatorName));
+            }
+            ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
+
+            OccsFilter filter = new OccsFilter(confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, Server.getSimilarityThresholds(), Server.getSparqlExecute());
+
+            List<List<DBpediaResourceOccurrence>> disambiguated;
+            try {
+                disambiguated = disambiguator.disambiguateBatch(paragraphs, filter.candidateFilter());
+            } catch (UnsupportedOperationException e) {
+                throw new SearchException(e);
+            }
+
+            List<List<DBpediaResourceOccurrence>> occLists = new ArrayList<List<DBpediaResourceOccurrence>>();
+            for (Integer i : paragraphIndex) {
+                if (i < 0)
+                    occLists.add(new ArrayList<DBpediaResourceOccurrence>());
+                else
+                    occLists.add(filter.accept(new FilterOccsImpl(), disambiguated.get(i)));
+            }
+
+            return occLists;
+        } finally {
+            if (deadline != null) Deadline.clear();
+            if (started) Server.endRequest();
         }
+    }
 
-        return occList;
+    public String getBatchXML(List<String> texts,
+                              double confidence,
+                              int support,
+                              String dbpediaTypesString,
+                              String sparqlQuery,
+                              String policy,
+                              boolean coreferenceResolution,
+                              String clientIp,
+                              String spotter,
+                              String disambiguator
+    ) throws Exception {
+        String result;
+        // The output is created with the namespace prefix of the model the occurrences come from:
+        boolean started = Server.beginRequest();
+        try {
+            List<List<DBpediaResourceOccurrence>> occLists = getOccurrencesBatch(texts, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter, disambiguator);
+            result = outputManager.makeBatchXML(texts, occLists, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution);
+        } finally {
+            if (started) Server.endRequest();
+        }
+        LOG.info("XML format (batch)");
+        LOG.debug("****************************************************************");
+        return result;
     }
 
     public String getHTML(String text,
@@ -187,8 +333,13 @@ public class SpotlightInterface {
         String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
 
         try {
-            List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter, disambiguator);
-            result = outputManager.makeHTML(textToProcess, occs);
+            boolean started = Server.beginRequest();
+            try {
+                List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter, disambiguator);
+                result = outputManager.makeHTML(textToProcess, occs);
+            } finally {
+                if (started) Server.endRequest();
+            }
         }
         catch (InputException e) { //TODO throw exception up to Annotate for WebApplicationException to handle.
             LOG.info("ERROR: "+e.getMessage());
@@ -215,8 +366,13 @@ public class SpotlightInterface {
         String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
 
         try {
-            List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter, disambiguator);
-            result = outputManager.makeRDFa(textToProcess, occs);
+            boolean started = Server.beginRequest();
+            try {
+                List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter, disambiguator);
+                result = outputManager.makeRDFa(textToProcess, occs);
+            } finally {
+                if (started) Server.endRequest();
+            }
         }
         catch (InputException e) { //TODO throw exception up to Annotate for WebApplicationException to handle.
             LOG.info("ERROR: "+e.getMessage());
@@ -243,8 +399,13 @@ public class SpotlightInterface {
         String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
 
 //        try {
-            List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
-            result = outputManager.makeXML(textToProcess, occs, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution);
+            boolean started = Server.beginRequest();
+            try {
+                List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
+                result = outputManager.makeXML(textToProcess, occs, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution);
+            } finally {
+                if (started) Server.endRequest();
+            }
 //        }
 //        catch (Exception e) { //TODO throw exception up to Annotate for WebApplicationException to handle.
 //            LOG.info("ERROR: "+e.getMessage());
@@ -282,8 +443,13 @@ public class SpotlightInterface {
 	    else if (prefix == null && !text.equals(""))
 	        prefix = requestedURL.concat("/?text=").concat(URLEncoder.encode(text, "UTF-8"));
 	
-	    List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
-	    result = outputManager.makeNIF(textToProcess, occs, format, prefix);
+	    boolean started = Server.beginRequest();
+	    try {
+	        List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
+	        result = outputManager.makeNIF(textToProcess, occs, format, prefix);
+	    } finally {
+	        if (started) Server.endRequest();
+	    }
 
 	    LOG.info("NIF format: " + format);
         LOG.debug("****************************************************************");
@@ -308,8 +474,13 @@ public class SpotlightInterface {
 
         String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
 
-        List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
-        result = outputManager.makeXML(textToProcess, occs, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution);
+        boolean started = Server.beginRequest();
+        try {
+            List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
+            result = outputManager.makeXML(textToProcess, occs, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution);
+        } finally {
+            if (started) Server.endRequest();
+        }
         LOG.info("XML format");
         LOG.debug("****************************************************************");
         return result;
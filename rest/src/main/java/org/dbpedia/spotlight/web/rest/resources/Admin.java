@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest.resources;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.web.rest.Server;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * REST Web Service for administrating the server. Only requests from the machine the server
+ * is running on are accepted.
+ *
+ * Reloading a model:
+ *
+ * curl -X POST -d "model=/data/spotlight/en" http://localhost:2222/rest/admin/reload
+ *
+ * Statistics of the served model (e.g. the hit rate of the candidate cache):
+ *
+ * curl http://localhost:2222/rest/admin/statistics
+ *
+ * @author Joachim Daiber
+ */
+
+@ApplicationPath(Server.APPLICATION_PATH)
+@Path("/admin")
+public class Admin {
+
+    Log LOG = LogFactory.getLog(this.getClass());
+
+    private static void checkLocal(HttpServletRequest request) {
+        boolean local = false;
+        try {
+            local = InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            //not local
+        }
+
+        if (!local)
+            throw new WebApplicationException(Response.status(Response.Status.FORBIDDEN).entity("Admin requests are only accepted from localhost.").type(MediaType.TEXT_PLAIN).build());
+    }
+
+    /**
+     * Starts loading the model in the folder, the current model is served until the new model is ready.
+     */
+    @POST
+    @Path("/reload")
+    @Consumes("application/x-www-form-urlencoded")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response reload(@FormParam("model") String model,
+                           @Context HttpServletRequest request) {
+        checkLocal(request);
+
+        if (model == null || model.trim().equals(""))
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST).entity("No model folder was specified in the &model parameter.").type(MediaType.TEXT_PLAIN).build());
+
+        try {
+            LOG.info("Reloading model " + model);
+            Server.reloadModel(model.trim());
+        } catch (InitializationException e) {
+            throw new WebApplicationException(Response.status(Response.Status.CONFLICT).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build());
+        }
+
+        return Response.status(Response.Status.ACCEPTED).entity(Server.getReloadStatus()).build();
+    }
+
+    @GET
+    @Path("/reload")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response reloadStatus(@Context HttpServletRequest request) {
+        checkLocal(request);
+        return Response.ok().entity(Server.getReloadStatus()).build();
+    }
+
+    @GET
+    @Path("/statistics")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response statistics(@Context HttpServletRequest request) {
+        checkLocal(request);
+        return Response.ok().entity(Server.getStatistics()).build();
+    }
+
+}
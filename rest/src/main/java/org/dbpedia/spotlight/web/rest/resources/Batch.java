@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest.resources;
+
+import org.dbpedia.spotlight.model.SpotlightConfiguration;
+import org.dbpedia.spotlight.web.rest.Server;
+import org.dbpedia.spotlight.web.rest.ServerUtils;
+import org.dbpedia.spotlight.web.rest.SpotlightInterface;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * REST Web Service for annotating many texts in one request. Each text is given as a separate
+ * text parameter, the result contains one Annotation element per text in the order of the texts:
+ *
+ * curl -d "text=Berlin is the capital of Germany." -d "text=Obama visited Berlin." http://localhost:2222/rest/batch
+ *
+ * The texts are disambiguated together, which is cheaper than annotating them one by one.
+ *
+ * Batches with more texts than spotlight.maxBatchSize (default 100) or with more characters in total than
+ * spotlight.maxBatchLength (default 1000000) are rejected with 400 Bad Request.
+ *
+ * @author Joachim Daiber
+ */
+
+@ApplicationPath(Server.APPLICATION_PATH)
+@Path("/batch")
+public class Batch {
+
+    private static SpotlightInterface batchInterface = new SpotlightInterface("/batch");
+
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces({MediaType.TEXT_XML,MediaType.APPLICATION_XML})
+    public Response postXML(
+      @FormParam("text") List<String> texts,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_CONFIDENCE) @FormParam("confidence") Double confidence,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_SUPPORT) @FormParam("support") int support,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_TYPES) @FormParam("types") String dbpediaTypes,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_SPARQL) @FormParam("sparql") String sparqlQuery,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_POLICY) @FormParam("policy") String policy,
+      @DefaultValue(SpotlightConfiguration.DEFAULT_COREFERENCE_RESOLUTION) @FormParam("coreferenceResolution") boolean coreferenceResolution,
+      @DefaultValue("Default") @FormParam("spotter") String spotterName,
+      @DefaultValue("Default") @FormParam("disambiguator") String disambiguatorName,
+      @Context HttpServletRequest request
+      ) {
+        String clientIp = request.getRemoteAddr();
+
+        try {
+            return ServerUtils.ok(batchInterface.getBatchXML(texts, confidence, support, dbpediaTypes, sparqlQuery, policy, coreferenceResolution, clientIp, spotterName, disambiguatorName));
+        } catch (Exception e) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST). entity(ServerUtils.print(e)).type(MediaType.TEXT_XML).build());
+        }
+    }
+
+}
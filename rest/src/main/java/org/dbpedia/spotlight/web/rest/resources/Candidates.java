@@ -33,6 +33,7 @@ import org.dbpedia.spotlight.filter.visitor.FilterOccsImpl;
 import org.dbpedia.spotlight.filter.visitor.OccsFilter;
 import org.dbpedia.spotlight.model.*;
 import org.dbpedia.spotlight.spot.Spotter;
+import org.dbpedia.spotlight.util.Deadline;
 import org.dbpedia.spotlight.web.rest.Server;
 import org.dbpedia.spotlight.web.rest.ServerUtils;
 import org.dbpedia.spotlight.web.rest.output.Annotation;
@@ -331,12 +332,22 @@ public class Candidates {
             LOG.info(String.format("Text length: %d. Using %s to disambiguate.",text.length(),disambiguatorName));
         }
 
-        Spotter spotter = Server.getSpotter(spotterName);
-        ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
-
         /* Running Annotation */
 
-        Annotation annotation = process(text, confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, spotter, disambiguator);
+        //All components used for the annotation must come from the same model:
+        Annotation annotation;
+        boolean started = Server.beginRequest();
+        // The deadline covers spotting, candidate search and scoring, it is only started by the outermost call:
+        Deadline deadline = Deadline.current() == null ? Deadline.start(Server.getRequestTimeout()) : null;
+        try {
+            Spotter spotter = Server.getSpotter(spotterName);
+            ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
+
+            annotation = process(text, confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, spotter, disambiguator);
+        } finally {
+            if (deadline != null) Deadline.clear();
+            if (started) Server.endRequest();
+        }
 
         LOG.debug("Shown: "+annotation.toXML());
         LOG.debug("****************************************************************");
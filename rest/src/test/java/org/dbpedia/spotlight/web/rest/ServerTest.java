@@ -0,0 +1,137 @@
+package org.dbpedia.spotlight.web.rest;
+
+import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
+import org.dbpedia.spotlight.model.DBpediaResource;
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy;
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy;
+import org.dbpedia.spotlight.spot.Spotter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests replacing the served model while requests are running.
+ */
+public class ServerTest {
+
+    static class TestState extends ModelState {
+        final AtomicInteger closed = new AtomicInteger(0);
+
+        TestState(String namespacePrefix, long requestTimeout) {
+            super(new HashMap<SpotterPolicy,Spotter>(), new HashMap<DisambiguationPolicy,ParagraphDisambiguatorJ>(), null, null,
+                    namespacePrefix, null, requestTimeout);
+        }
+
+        @Override
+        void close() {
+            closed.incrementAndGet();
+        }
+    }
+
+    private final DBpediaResource berlin = new DBpediaResource("Berlin");
+
+    @After
+    public void reset() {
+        Server.endRequest();
+    }
+
+    @Test
+    public void requestKeepsSettingsOfItsModel() throws Exception {
+        final TestState old = new TestState("http://old/", 100);
+        final TestState next = new TestState("http://new/", 200);
+        Server.swapState(old);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch swapped = new CountDownLatch(1);
+        final AtomicReference<String> seen = new AtomicReference<String>();
+
+        Thread request = new Thread() {
+            public void run() {
+                boolean pinned = Server.beginRequest();
+                try {
+                    started.countDown();
+                    swapped.await();
+                    seen.set(Server.getPrefixedDBpediaURL(berlin) + " " + Server.getRequestTimeout());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (pinned) Server.endRequest();
+                }
+            }
+        };
+        request.start();
+        started.await();
+
+        assertSame(old, Server.swapState(next));
+        assertEquals(1, old.getInFlight());
+        assertEquals("http://new/Berlin", Server.getPrefixedDBpediaURL(berlin));
+        assertEquals(200, Server.getRequestTimeout());
+
+        swapped.countDown();
+        Server.drain(old, TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals("http://old/Berlin 100", seen.get());
+        assertEquals(0, old.getInFlight());
+        assertEquals(1, old.closed.get());
+        assertEquals(0, next.closed.get());
+    }
+
+    @Test
+    public void drainClosesOldModelAfterTimeout() throws Exception {
+        TestState old = new TestState("http://old/", 0);
+        Server.swapState(old);
+
+        assertTrue(Server.beginRequest());
+        Server.swapState(new TestState("http://new/", 0));
+
+        Server.drain(old, 0);
+        assertEquals(1, old.closed.get());
+        assertEquals("http://old/Berlin", Server.getPrefixedDBpediaURL(berlin));
+    }
+
+    @Test
+    public void beginRequestRetriesIfModelIsReplaced() throws Exception {
+        final TestState next = new TestState("http://new/", 0);
+        TestState racing = new TestState("http://old/", 0) {
+            @Override
+            int acquire() {
+                int inFlight = super.acquire();
+                //The model is replaced between acquiring the old model and pinning it:
+                Server.swapState(next);
+                return inFlight;
+            }
+        };
+        Server.swapState(racing);
+
+        assertTrue(Server.beginRequest());
+        assertEquals("http://new/Berlin", Server.getPrefixedDBpediaURL(berlin));
+        assertEquals(0, racing.getInFlight());
+        assertEquals(1, next.getInFlight());
+
+        Server.endRequest();
+        assertEquals(0, next.getInFlight());
+    }
+
+    @Test
+    public void nestedRequestsKeepOutermostModel() throws Exception {
+        TestState old = new TestState("http://old/", 0);
+        Server.swapState(old);
+
+        assertTrue(Server.beginRequest());
+        Server.swapState(new TestState("http://new/", 0));
+        assertFalse(Server.beginRequest());
+        assertEquals("http://old/Berlin", Server.getPrefixedDBpediaURL(berlin));
+
+        Server.endRequest();
+        assertEquals(0, old.getInFlight());
+        assertEquals("http://new/Berlin", Server.getPrefixedDBpediaURL(berlin));
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.dbpedia.spotlight.web.rest;
+
+import org.dbpedia.spotlight.exceptions.InputException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the limits of batch requests.
+ */
+public class SpotlightInterfaceTest {
+
+    private final SpotlightInterface batchInterface = new SpotlightInterface("/batch");
+
+    private void annotate(List<String> texts) throws Exception {
+        batchInterface.getOccurrencesBatch(texts, 0.0, 0, "", "", "whitelist", true, "127.0.0.1", "Default", "Default");
+    }
+
+    @Test(expected = InputException.class)
+    public void rejectsTooManyTexts() throws Exception {
+        annotate(Collections.nCopies(Server.getMaxBatchSize() + 1, "Berlin"));
+    }
+
+    @Test(expected = InputException.class)
+    public void rejectsTooLongTexts() throws Exception {
+        char[] text = new char[(int) (Server.getMaxBatchLength() / 2) + 1];
+        Arrays.fill(text, 'a');
+        annotate(Collections.nCopies(2, new String(text)));
+    }
+
+}